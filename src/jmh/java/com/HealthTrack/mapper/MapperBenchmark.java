@@ -0,0 +1,90 @@
+package com.HealthTrack.mapper;
+
+import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.SymptomDto;
+import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.Notification;
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO and back for each mapper; every list endpoint runs one of these per row
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private User user;
+    private Appointment appointment;
+    private AppointmentDto appointmentDto;
+    private HealthMetric healthMetric;
+    private HealthMetricDto healthMetricDto;
+    private Symptom symptom;
+    private SymptomDto symptomDto;
+    private Notification notification;
+    private NotificationDto notificationDto;
+
+    @Setup
+    public void setup() {
+        LocalDateTime now = LocalDateTime.of(2030, 3, 1, 9, 30);
+        user = new User();
+        user.setId(1L);
+
+        appointment = new Appointment(10L, "Dr. Smith", "City Clinic", now, "Annual checkup", user);
+        appointmentDto = AppointmentMapper.mapToAppointmentDto(appointment);
+        healthMetric = new HealthMetric(20L, "Heart Rate", 72.0, now, user);
+        healthMetricDto = HealthMetricMapper.mapToHealthMetricDto(healthMetric);
+        symptom = new Symptom(30L, "Headache", 6, "Dull pain behind the eyes", now, user);
+        symptomDto = SymptomMapper.mapToSymptomDto(symptom);
+        notification = new Notification(40L, "Heart rate high", "Heart Rate", "HealthMetricAlert", false, now, user);
+        notificationDto = NotificationMapper.mapToNotificationDto(notification);
+    }
+
+    @Benchmark
+    public AppointmentDto appointmentToDto() {
+        return AppointmentMapper.mapToAppointmentDto(appointment);
+    }
+
+    @Benchmark
+    public Appointment appointmentFromDto() {
+        return AppointmentMapper.mapToAppointment(appointmentDto, user);
+    }
+
+    @Benchmark
+    public HealthMetricDto healthMetricToDto() {
+        return HealthMetricMapper.mapToHealthMetricDto(healthMetric);
+    }
+
+    @Benchmark
+    public HealthMetric healthMetricFromDto() {
+        return HealthMetricMapper.mapToHealthMetric(healthMetricDto, user);
+    }
+
+    @Benchmark
+    public SymptomDto symptomToDto() {
+        return SymptomMapper.mapToSymptomDto(symptom);
+    }
+
+    @Benchmark
+    public Symptom symptomFromDto() {
+        return SymptomMapper.mapToSymptom(symptomDto, user);
+    }
+
+    @Benchmark
+    public NotificationDto notificationToDto() {
+        return NotificationMapper.mapToNotificationDto(notification);
+    }
+
+    @Benchmark
+    public Notification notificationFromDto() {
+        return NotificationMapper.mapToNotification(notificationDto, user);
+    }
+}
@@ -0,0 +1,44 @@
+package com.HealthTrack.rules;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rule lookups done for every recorded metric and symptom, against the bundled rules file
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class HealthRuleEngineBenchmark {
+
+    private HealthRuleEngine healthRuleEngine;
+
+    @State(Scope.Benchmark)
+    public static class MetricTypes {
+        // A metric with a rule and one without
+        @Param({"Heart Rate", "Steps"})
+        private String metricType;
+    }
+
+    @Setup
+    public void setup() {
+        healthRuleEngine = new HealthRuleEngine(new DefaultResourceLoader(), HealthRuleEngine.DEFAULT_LOCATION);
+    }
+
+    @Benchmark
+    public double metricThreshold(MetricTypes metricTypes) {
+        return healthRuleEngine.metricThreshold(metricTypes.metricType);
+    }
+
+    @Benchmark
+    public boolean isCriticalSymptom() {
+        return healthRuleEngine.isCriticalSymptom("Chest Pain");
+    }
+
+    @Benchmark
+    public String wellnessTip() {
+        return healthRuleEngine.wellnessTip("Headache");
+    }
+}
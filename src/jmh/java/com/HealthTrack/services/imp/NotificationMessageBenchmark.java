@@ -0,0 +1,62 @@
+package com.HealthTrack.services.imp;
+
+import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.models.User;
+import com.HealthTrack.templates.MessageTemplates;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building notification and reminder text, done once per notification sent
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class NotificationMessageBenchmark {
+
+    private MessageTemplates messageTemplates;
+    private HealthMetric bloodPressure;
+    private HealthMetric bmi;
+    private Symptom symptom;
+    private LocalDateTime appointmentDate;
+
+    @Setup
+    public void setup() {
+        messageTemplates = new MessageTemplates(new DefaultResourceLoader(), MessageTemplates.DEFAULT_LOCATION,
+                Locale.ENGLISH);
+        LocalDateTime now = LocalDateTime.of(2030, 3, 1, 9, 30);
+        User user = new User();
+        user.setId(1L);
+
+        bloodPressure = new HealthMetric(1L, "Blood Pressure", 152.5, now, user);
+        bmi = new HealthMetric(2L, "BMI", 31.2, now, user);
+        symptom = new Symptom(3L, "Headache", 8, "Dull pain behind the eyes", now, user);
+        appointmentDate = now.plusDays(1);
+    }
+
+    @Benchmark
+    public String healthMetricMessage() {
+        return NotificationServiceImpl.buildHealthMetricNotificationMessage(messageTemplates, bloodPressure, 140.0);
+    }
+
+    @Benchmark
+    public String bmiMessage() {
+        return NotificationServiceImpl.buildHealthMetricNotificationMessage(messageTemplates, bmi, 30.0);
+    }
+
+    @Benchmark
+    public String symptomMessage() {
+        return NotificationServiceImpl.buildSymptomNotificationMessage(messageTemplates, symptom, "HighSeveritySymptom");
+    }
+
+    @Benchmark
+    public String appointmentReminder() {
+        return messageTemplates.render("appointment.reminder.24h", "Smith", appointmentDate, "City Clinic",
+                "Annual checkup");
+    }
+}
@@ -0,0 +1,144 @@
+package com.HealthTrack.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers username/password pairs that recently passed BCrypt verification, so repeated HTTP Basic
+ * requests skip both the user lookup and the deliberately slow BCrypt check.
+ *
+ * Passwords are never stored: an entry holds an HMAC-SHA256 of the password under a random key generated
+ * at startup, which is fast to check but useless outside this process. Only successful logins are cached,
+ * so guessing passwords still costs a full BCrypt check each time. Entries are dropped when the user is
+ * updated or deleted, and expire after a few minutes, which bounds how long another node's change can go unseen.
+ *
+ * A BCrypt check can start before a password change and finish after it. Each invalidation bumps the
+ * username's generation, and a success is only recorded if the generation read before the check is unchanged,
+ * so such a check cannot put the old password back into the cache.
+ */
+@Component
+public class CredentialCache {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    // Generations only need to outlive a BCrypt check that started before the bump
+    private static final Duration GENERATION_RETENTION = Duration.ofMinutes(1);
+
+    private final SecretKeySpec key;
+    private final Cache<String, VerifiedCredential> verified;
+    private final Cache<String, Long> generations;
+
+    public CredentialCache(@Value("${healthtrack.auth.credential-cache.max-entries:10000}") long maxEntries,
+                           @Value("${healthtrack.auth.credential-cache.ttl-seconds:300}") long ttlSeconds) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.generations = Caffeine.newBuilder()
+                .expireAfterWrite(GENERATION_RETENTION)
+                .build();
+    }
+
+    /**
+     * The user, if this username and password were verified recently; otherwise null
+     */
+    public UserDetails verify(String username, String password) {
+        if (username == null || password == null) {
+            return null;
+        }
+        VerifiedCredential credential = verified.getIfPresent(username);
+        if (credential == null || !MessageDigest.isEqual(credential.passwordMac(), mac(username, password))) {
+            return null;
+        }
+        // A fresh copy each time: authentication erases credentials on the principal it returns
+        return User.withUsername(username)
+                .password("")
+                .authorities(credential.authorities())
+                .build();
+    }
+
+    /**
+     * The username's current generation; read it before verifying a password and pass it to recordVerified
+     */
+    public long generation(String username) {
+        Long generation = username == null ? null : generations.getIfPresent(username);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Remember a username and password that just passed verification, unless the user was invalidated
+     * since the given generation was read
+     */
+    public void recordVerified(UserDetails user, String password, long generation) {
+        if (user == null || password == null) {
+            return;
+        }
+        VerifiedCredential credential = new VerifiedCredential(mac(user.getUsername(), password),
+                List.copyOf(user.getAuthorities()));
+        // Runs under the same lock as the bump in invalidate, so the check and the put cannot be split by it
+        generations.asMap().compute(user.getUsername(), (username, current) -> {
+            if ((current == null ? 0 : current) == generation) {
+                verified.put(username, credential);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Forget a user's cached login, now and again once the surrounding transaction commits,
+     * so a login verified against the old row in between is not kept
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        forget(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(username);
+                }
+            });
+        }
+    }
+
+    private void forget(String username) {
+        generations.asMap().merge(username, 1L, Long::sum);
+        verified.invalidate(username);
+    }
+
+    private byte[] mac(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private record VerifiedCredential(byte[] passwordMac, Collection<? extends GrantedAuthority> authorities) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.HealthTrack.cache;
+
+import com.HealthTrack.repositories.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Remembers when each user was last sent a notification of each metric type, so cooldown checks
+ * ("was a similar notification sent in the last N hours") are answered from memory.
+ *
+ * A miss is warmed with one indexed MAX(timestamp) lookup, and every notification saved through
+ * NotificationService updates the entry once its transaction commits. Entries expire after a few hours,
+ * which bounds how stale they get when another node sends notifications. With db-fallback enabled, a
+ * "not sent" answer is always confirmed against the database, so several nodes never double-send.
+ */
+@Component
+public class NotificationCooldownCache {
+
+    // Caffeine does not store nulls; this marks "never sent"
+    private static final LocalDateTime NEVER = LocalDateTime.MIN;
+    private static final Duration ENTRY_TTL = Duration.ofHours(6);
+
+    private final NotificationRepository notificationRepository;
+    private final boolean dbFallback;
+    private final Cache<CooldownKey, LocalDateTime> lastSent;
+
+    public NotificationCooldownCache(NotificationRepository notificationRepository,
+                                     @Value("${healthtrack.notifications.cooldown.max-entries:100000}") long maxEntries,
+                                     @Value("${healthtrack.notifications.cooldown.db-fallback:false}") boolean dbFallback) {
+        this.notificationRepository = notificationRepository;
+        this.dbFallback = dbFallback;
+        this.lastSent = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ENTRY_TTL)
+                .build();
+    }
+
+    /**
+     * Whether the user was sent a notification of this metric type after the given time
+     */
+    public boolean wasSentSince(Long userId, String metricType, LocalDateTime since) {
+        if (userId == null || metricType == null) {
+            return false;
+        }
+        CooldownKey key = new CooldownKey(userId, metricType);
+        if (lastSent.get(key, this::loadLastSent).isAfter(since)) {
+            return true;
+        }
+        if (!dbFallback) {
+            return false;
+        }
+
+        // Another node may have sent one since this entry was loaded
+        LocalDateTime latest = loadLastSent(key);
+        recordLastSent(key, latest);
+        return latest.isAfter(since);
+    }
+
+    /**
+     * Record a notification sent to the user; applied once the surrounding transaction commits,
+     * so a rolled-back notification does not start a cooldown
+     */
+    public void recordSent(Long userId, String metricType, LocalDateTime timestamp) {
+        if (userId == null || metricType == null || timestamp == null) {
+            return;
+        }
+        CooldownKey key = new CooldownKey(userId, metricType);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordLastSent(key, timestamp);
+                }
+            });
+        } else {
+            recordLastSent(key, timestamp);
+        }
+    }
+
+    private void recordLastSent(CooldownKey key, LocalDateTime timestamp) {
+        lastSent.asMap().merge(key, timestamp, (current, sent) -> sent.isAfter(current) ? sent : current);
+    }
+
+    private LocalDateTime loadLastSent(CooldownKey key) {
+        LocalDateTime latest = notificationRepository.findLatestNotificationTimestamp(key.userId(), key.metricType());
+        return latest != null ? latest : NEVER;
+    }
+
+    private record CooldownKey(Long userId, String metricType) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.HealthTrack.cache;
+
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers which user ids exist, so write paths can attach a user to a new row without reading the user.
+ *
+ * A known id is answered with a reference (an uninitialized proxy from getReferenceById), which is all a
+ * foreign key needs; an unknown id is checked once against the users table. Only ids that exist are cached,
+ * so a user just created on another node is found straight away. UserService drops a deleted user's entry,
+ * and entries expire after a while, which bounds how long a user deleted on another node is still accepted
+ * here (the foreign key then rejects the insert). Hit and miss counts are published as the
+ * "userReferences" cache metrics.
+ */
+@Component
+public class UserReferenceCache {
+
+    private static final Duration ENTRY_TTL = Duration.ofMinutes(10);
+
+    private final UserRepository userRepository;
+    // Caffeine needs a value; presence of the key is what matters
+    private final Cache<Long, Boolean> knownUsers;
+
+    public UserReferenceCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${healthtrack.users.reference-cache.max-entries:100000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.knownUsers = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ENTRY_TTL)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownUsers, "userReferences");
+    }
+
+    /**
+     * A reference to the user, or empty if there is no user with this id
+     */
+    public Optional<User> findReference(Long userId) {
+        return exists(userId) ? Optional.of(userRepository.getReferenceById(userId)) : Optional.empty();
+    }
+
+    /**
+     * References to the users with these ids, checking the ids not cached in one query; unknown ids are left out
+     */
+    public Map<Long, User> findReferences(Collection<Long> userIds) {
+        Set<Long> unknownIds = new HashSet<>();
+        for (Long userId : userIds) {
+            if (userId != null && knownUsers.getIfPresent(userId) == null) {
+                unknownIds.add(userId);
+            }
+        }
+        Set<Long> existingIds = new HashSet<>(userIds);
+        if (!unknownIds.isEmpty()) {
+            existingIds.removeAll(unknownIds);
+            for (Long userId : userRepository.findExistingIds(unknownIds)) {
+                knownUsers.put(userId, Boolean.TRUE);
+                existingIds.add(userId);
+            }
+        }
+
+        Map<Long, User> references = new HashMap<>();
+        for (Long userId : existingIds) {
+            if (userId != null) {
+                references.put(userId, userRepository.getReferenceById(userId));
+            }
+        }
+        return references;
+    }
+
+    public boolean exists(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        if (knownUsers.getIfPresent(userId) == null) {
+            if (!userRepository.existsById(userId)) {
+                return false;
+            }
+            knownUsers.put(userId, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    /**
+     * Forget a user, now and again once the surrounding transaction commits, so a lookup racing the
+     * deletion cannot cache it again
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        knownUsers.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownUsers.invalidate(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.HealthTrack.config;
+
+import com.HealthTrack.cache.CredentialCache;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Answers username/password authentication from the CredentialCache when it can,
+ * and otherwise delegates to the database-backed BCrypt check and caches a success
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final CredentialCache credentialCache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, CredentialCache credentialCache) {
+        this.delegate = delegate;
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        String password = authentication.getCredentials() instanceof String credentials ? credentials : null;
+
+        UserDetails cachedUser = credentialCache.verify(username, password);
+        if (cachedUser != null) {
+            UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+                    cachedUser, null, cachedUser.getAuthorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+
+        // Read first: a password change during the check must keep its result out of the cache
+        long generation = credentialCache.generation(username);
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.getPrincipal() instanceof UserDetails user) {
+            credentialCache.recordVerified(user, password, generation);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,30 @@
+package com.HealthTrack.config;
+
+import com.HealthTrack.push.NotificationPushHub;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Timers for the methods annotated with @Timed, and gauges that are read from beans when scraped.
+ * Repository query latency is recorded by Spring Boot as spring.data.repository.invocations.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder notificationStreamMetrics(NotificationPushHub notificationPushHub) {
+        return registry -> Gauge.builder("healthtrack.notifications.streams", notificationPushHub,
+                        NotificationPushHub::openStreamCount)
+                .description("Open notification streams on this node")
+                .register(registry);
+    }
+}
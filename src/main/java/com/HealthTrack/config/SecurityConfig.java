@@ -1,11 +1,13 @@
 package com.HealthTrack.config;
 
+import com.HealthTrack.cache.CredentialCache;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -31,6 +33,8 @@ public class SecurityConfig {
 
     private  final PasswordEncoder passwordEncoder;
 
+    private final CredentialCache credentialCache;
+
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -68,12 +72,13 @@ public class SecurityConfig {
         return new CorsFilter(source);
     }
 
+    // The only AuthenticationProvider bean, so every authentication manager goes through the credential cache
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(customUserDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
-        return authProvider;
+        return new CachingAuthenticationProvider(authProvider, credentialCache);
     }
 
 
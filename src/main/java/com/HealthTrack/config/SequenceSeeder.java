@@ -0,0 +1,60 @@
+package com.HealthTrack.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the pooled id sequences past the ids already in their tables.
+ *
+ * Tables that moved from IDENTITY columns to pooled sequences already hold ids from 1 up, while a new sequence
+ * starts at 1. MySQL has no sequences, so Hibernate keeps each one in a single-row table; on startup, after the
+ * schema update and before anything is inserted, this raises its next_val above MAX(id) plus one allocation.
+ * It only ever moves next_val forward, so it is safe on every start and on several nodes at once.
+ * Databases with native sequences (H2 in tests) are left alone.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class SequenceSeeder {
+
+    private static final List<PooledSequence> SEQUENCES = List.of(
+            new PooledSequence("health_metric_seq", "health_metrics", 50),
+            new PooledSequence("notification_seq", "notifications", 50)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void seed() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database)) {
+            return;
+        }
+
+        for (PooledSequence sequence : SEQUENCES) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + sequence.table(), Long.class);
+            // Hibernate hands out the allocationSize ids ending at the value it reads
+            long nextVal = maxId + sequence.allocationSize() + 1;
+            if (jdbcTemplate.update("UPDATE " + sequence.name() + " SET next_val = ? WHERE next_val < ?", nextVal, nextVal) > 0) {
+                log.atInfo().setMessage("Raised id sequence past existing rows")
+                        .addKeyValue("sequence", sequence.name())
+                        .addKeyValue("nextVal", nextVal)
+                        .log();
+            }
+        }
+    }
+
+    private record PooledSequence(String name, String table, int allocationSize) {
+    }
+}
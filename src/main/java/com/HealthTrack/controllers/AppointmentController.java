@@ -1,12 +1,15 @@
 package com.HealthTrack.controllers;
 
 import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.AppointmentPageDto;
 import com.HealthTrack.services.AppointmentService;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
@@ -29,6 +32,26 @@ public class AppointmentController {
         return new ResponseEntity<>(appointments, HttpStatus.OK);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<AppointmentPageDto> getAppointmentPage(
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "when", required = false) String when,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        AppointmentPageDto page = appointmentService.findAppointmentPage(userId, when, from, to, after, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<AppointmentDto>> searchAppointments(@RequestParam("userId") Long userId,
+                                                                   @RequestParam("q") String query,
+                                                                   @RequestParam(value = "limit", required = false) Integer limit) {
+        List<AppointmentDto> appointments = appointmentService.searchAppointments(userId, query, limit);
+        return new ResponseEntity<>(appointments, HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<AppointmentDto> getAppointmentById(@PathVariable("id") Long appointmentId) {
         AppointmentDto appointment = appointmentService.findAppointmentById(appointmentId);
@@ -1,14 +1,21 @@
 package com.HealthTrack.controllers;
 
 
+import com.HealthTrack.dtos.HealthMetricBatchResultDto;
 import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.HealthMetricSeriesDto;
 import com.HealthTrack.services.HealthMetricService;
 import com.HealthTrack.services.NotificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
@@ -18,6 +25,7 @@ import java.util.List;
 public class HealthMetricController {
 
     private HealthMetricService healthMetricService;
+    private ObjectMapper objectMapper;
 
 
     @PostMapping
@@ -27,6 +35,25 @@ public class HealthMetricController {
 
     }
 
+    /**
+     * Store many samples for one user at once, sent as a JSON array
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<HealthMetricBatchResultDto> createHealthMetricBatch(@RequestParam("userId") Long userId,
+                                                                              @RequestBody List<HealthMetricDto> healthMetricDtos) {
+        return ResponseEntity.ok(healthMetricService.createHealthMetricBatch(userId, healthMetricDtos.iterator()));
+    }
+
+    /**
+     * Store many samples for one user at once, streamed as one JSON object per line
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<HealthMetricBatchResultDto> streamHealthMetricBatch(@RequestParam("userId") Long userId,
+                                                                              InputStream body) {
+        return ResponseEntity.ok(healthMetricService.createHealthMetricBatch(userId,
+                new NdjsonIterator<>(body, objectMapper, HealthMetricDto.class)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<HealthMetricDto> getHealthMetricsById(@PathVariable("id") Long healthMetricId) {
         HealthMetricDto metric = healthMetricService.findHealthMetricById(healthMetricId);
@@ -40,6 +67,22 @@ public class HealthMetricController {
     }
 
 
+    /**
+     * One series aggregated into buckets for charts, e.g. ?type=Heart Rate&bucket=1h&agg=avg,min,max,p95.
+     * from and to are on the same clock as the timestamps this API returns.
+     */
+    @GetMapping("/series")
+    public ResponseEntity<HealthMetricSeriesDto> getHealthMetricSeries(
+            @RequestParam("userId") Long userId,
+            @RequestParam("type") String metricType,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "bucket", required = false) String bucket,
+            @RequestParam(value = "agg", required = false) List<String> aggregates) {
+        HealthMetricSeriesDto series = healthMetricService.findHealthMetricSeries(userId, metricType, from, to, bucket, aggregates);
+        return ResponseEntity.ok(series);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<HealthMetricDto> updateHealthMetrics(@PathVariable("id") Long healthMetricId, @RequestBody HealthMetricDto healthMetricDto) {
         HealthMetricDto updatedHealthMetric = healthMetricService.updateHealthMetric(healthMetricId, healthMetricDto);
@@ -1,11 +1,17 @@
 package com.HealthTrack.controllers;
 
 import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.NotificationPageDto;
+import com.HealthTrack.push.NotificationPushHub;
 import com.HealthTrack.services.NotificationService;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
@@ -15,13 +21,63 @@ import java.util.List;
 public class NotificationController {
 
     private  NotificationService notificationService;
+    private NotificationPushHub notificationPushHub;
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<NotificationDto>> getUserNotifications(@PathVariable Long userId) {
         List<NotificationDto> notifications = notificationService.getUserNotifications(userId);
-        System.out.println(notifications);
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/user/{userId}/inbox")
+    public ResponseEntity<NotificationPageDto> getUserInbox(
+            @PathVariable Long userId,
+            @RequestParam(value = "unread", required = false) Boolean unread,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "metricType", required = false) String metricType,
+            @RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        NotificationPageDto page = notificationService.getUserInbox(userId, unread, type, metricType, since, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Stream the user's new notifications as Server-Sent Events; browsers reconnect with Last-Event-ID
+     * and are sent what they missed, which can repeat notifications they already have; clients drop
+     * repeats by notification id
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserNotifications(@PathVariable Long userId,
+                                              @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return notificationPushHub.subscribe(userId, lastEventId);
+    }
+
+    @GetMapping("/user/{userId}/unread-count")
+    public ResponseEntity<Long> getUnreadCount(@PathVariable Long userId) {
+        return ResponseEntity.ok(notificationService.countUnreadNotifications(userId));
+    }
+
+    @PutMapping("/user/{userId}/read-all")
+    public ResponseEntity<Integer> markAllNotificationsAsRead(@PathVariable Long userId) {
+        return ResponseEntity.ok(notificationService.markAllNotificationsAsRead(userId));
+    }
+
+    @PutMapping("/user/{userId}/read")
+    public ResponseEntity<Integer> markNotificationsAsRead(@PathVariable Long userId, @RequestBody List<Long> notificationIds) {
+        return ResponseEntity.ok(notificationService.markNotificationsAsRead(userId, notificationIds));
+    }
+
+    @DeleteMapping("/user/{userId}")
+    public ResponseEntity<Integer> deleteNotifications(
+            @PathVariable Long userId,
+            @RequestParam(value = "read", required = false) Boolean read,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "metricType", required = false) String metricType,
+            @RequestParam(value = "before", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before) {
+        return ResponseEntity.ok(notificationService.deleteNotifications(userId, read, type, metricType, before));
+    }
+
     @PutMapping("/{notificationId}/read")
     public ResponseEntity<Void> markNotificationAsRead(@PathVariable Long notificationId) {
         notificationService.markNotificationAsRead(notificationId);
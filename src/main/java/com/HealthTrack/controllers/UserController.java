@@ -1,14 +1,22 @@
 package com.HealthTrack.controllers;
 
 import com.HealthTrack.dtos.UserDto;
+import com.HealthTrack.models.ExportFormat;
+import com.HealthTrack.services.ExportService;
 import com.HealthTrack.services.UserService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 @AllArgsConstructor
@@ -17,6 +25,7 @@ import java.util.List;
 public class UserController {
 
     private UserService userService;
+    private ExportService exportService;
 
     @PostMapping
     public ResponseEntity<UserDto> createUsers(@Valid @RequestBody UserDto userDto){
@@ -28,16 +37,58 @@ public class UserController {
 
 
 
+    /**
+     * A user's profile; related records are added with e.g. ?include=symptoms,appointments
+     */
     @GetMapping("{id}")
-    public ResponseEntity<UserDto> findUsersById(@PathVariable("id") Long userId){
+    public ResponseEntity<UserDto> findUsersById(@PathVariable("id") Long userId,
+                                                 @RequestParam(value = "include", required = false) Set<String> includes){
 
-        UserDto foundUserById = userService.findUserById(userId);
+        UserDto foundUserById = userService.findUserById(userId, includes);
         return ResponseEntity.ok(foundUserById);
 
     }
+    /**
+     * Download everything stored about a user as NDJSON (default) or CSV, written as it is read.
+     * Compressed with gzip on the fly when the client accepts it.
+     */
+    @GetMapping("{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportUserRecord(@PathVariable("id") Long userId,
+                                                                  @RequestParam(value = "format", required = false) String format,
+                                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(exportFormat.getContentType()));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename("healthtrack-user-" + userId + "." + exportFormat.getFileExtension())
+                .build());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                exportService.exportUserRecord(userId, exportFormat, compressed);
+                compressed.finish();
+            } else {
+                exportService.exportUserRecord(userId, exportFormat, out);
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * A page of user profiles ordered by id; ?include= works as for a single user
+     */
     @GetMapping
-    public ResponseEntity<List<UserDto>> findAllUsers(){
-        List<UserDto> userDto = userService.findAllUser();
+    public ResponseEntity<List<UserDto>> findAllUsers(@RequestParam(value = "page", required = false) Integer page,
+                                                      @RequestParam(value = "size", required = false) Integer size,
+                                                      @RequestParam(value = "include", required = false) Set<String> includes){
+        List<UserDto> userDto = userService.findAllUser(page, size, includes);
         return ResponseEntity.ok(userDto);
     }
 
@@ -0,0 +1,17 @@
+package com.HealthTrack.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDto {
+
+    private int index;          // Position of the item in the submitted batch
+    private Long id;            // Id of the stored record; null if the item was rejected
+    private String error;       // Why the item was rejected; null if it was stored
+}
@@ -0,0 +1,19 @@
+package com.HealthTrack.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthMetricBatchResultDto {
+
+    private int accepted;
+    private int rejected;
+    private List<BatchItemResultDto> items;     // One result per submitted sample, in submission order
+}
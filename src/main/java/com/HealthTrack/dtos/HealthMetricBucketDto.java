@@ -0,0 +1,23 @@
+package com.HealthTrack.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthMetricBucketDto {
+
+    private LocalDateTime start;
+    private Long count;
+    // Only the requested aggregates are filled in
+    private Double avg;
+    private Double min;
+    private Double max;
+    private Double p95;
+}
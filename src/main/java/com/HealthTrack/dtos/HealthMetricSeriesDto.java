@@ -0,0 +1,20 @@
+package com.HealthTrack.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthMetricSeriesDto {
+
+    private Long userId;
+    private String metricType;
+    private String bucket;
+    private List<HealthMetricBucketDto> buckets;    // Oldest first; buckets without samples are left out
+}
@@ -0,0 +1,19 @@
+package com.HealthTrack.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPageDto {
+
+    private List<NotificationDto> items;
+    // Pass back as "after" to fetch the next page; null on the last page
+    private String nextCursor;
+}
@@ -1,9 +1,7 @@
 package com.HealthTrack.dtos;
 
-import com.HealthTrack.models.Appointment;
-import com.HealthTrack.models.HealthMetric;
-import com.HealthTrack.models.Notification;
-import com.HealthTrack.models.Symptom;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -23,14 +21,20 @@ public class UserDto {
 
 
     private String username;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)      // Accepted on create/update, never returned
     private String password;
     @NotNull(message = "Email is required")
     @Email(message = "Invalid email format")
     private String email;
     private String phoneNumber;
 
-    private List<Symptom> symptoms;
-    private List<HealthMetric> healthMetrics;
-    private List<Appointment> appointments;
-    private List<Notification> notifications;
+    // Only filled in when asked for with ?include=
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<SymptomDto> symptoms;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<HealthMetricDto> healthMetrics;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AppointmentDto> appointments;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<NotificationDto> notifications;
 }
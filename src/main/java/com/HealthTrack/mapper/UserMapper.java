@@ -1,18 +1,8 @@
 package com.HealthTrack.mapper;
 
 import com.HealthTrack.dtos.UserDto;
-import com.HealthTrack.models.Appointment;
-import com.HealthTrack.models.HealthMetric;
-import com.HealthTrack.models.Symptom;
 import com.HealthTrack.models.User;
-import com.HealthTrack.repositories.AppointmentRepository;
-import com.HealthTrack.repositories.HealthMetricRepository;
-import com.HealthTrack.repositories.SymptomRepository;
-import com.HealthTrack.services.AppointmentService;
-
-import java.util.ArrayList;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import com.HealthTrack.repositories.UserRepository;
 
 
 
@@ -20,21 +10,26 @@ public class UserMapper {
 
 
 
-    // Map User entity to UserDto
+    // Map User entity to UserDto; the password hash and related records are left out
     public static UserDto mapToUserTdo(User user) {
         return new UserDto(
                 user.getId(),
                 user.getUsername(),
-                user.getPassword(),
+                null,
                 user.getEmail(),
                 user.getPhoneNumber(),
-                user.getSymptoms(),
-                user.getHealthMetrics(),
-                user.getAppointments(),
-                user.getNotifications()
+                null,
+                null,
+                null,
+                null
         );
     }
 
+    public static UserDto mapToUserTdo(UserRepository.UserSummary user) {
+        return new UserDto(user.getId(), user.getUsername(), null, user.getEmail(), user.getPhoneNumber(),
+                null, null, null, null);
+    }
+
 
     public static User mapToUser(UserDto userDto){
 
@@ -44,10 +39,6 @@ public class UserMapper {
         user.setPassword(userDto.getPassword());
         user.setEmail(userDto.getEmail());
         user.setPhoneNumber(userDto.getPhoneNumber());
-        user.setSymptoms(userDto.getSymptoms());
-        user.setHealthMetrics(userDto.getHealthMetrics());
-        user.setAppointments(userDto.getAppointments());
-        user.setNotifications(userDto.getNotifications());
         return user;
 
     }
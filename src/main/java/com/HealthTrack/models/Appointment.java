@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_user_date", columnList = "user_id, appointmentDate"),
+        @Index(name = "idx_appointments_date", columnList = "appointmentDate")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
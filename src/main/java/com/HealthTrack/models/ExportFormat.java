@@ -0,0 +1,41 @@
+package com.HealthTrack.models;
+
+/**
+ * File formats a user's health record can be exported in
+ */
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    ExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Format by name, case-insensitive; NDJSON when none is given
+     */
+    public static ExportFormat fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return NDJSON;
+        }
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unknown export format: " + name);
+    }
+}
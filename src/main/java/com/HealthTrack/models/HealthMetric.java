@@ -5,15 +5,20 @@ import lombok.*;
 
 import java.time.LocalDateTime;
 
-@Table(name = "health_metrics")
+@Table(name = "health_metrics", indexes = {
+        // One user's samples of one metric type in time order: latest-value lookups, rollup rebuilds and compaction
+        @Index(name = "idx_health_metrics_series", columnList = "user_id, metric_type, timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 public class HealthMetric {
 
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "health_metric_seq")
+    @SequenceGenerator(name = "health_metric_seq", sequenceName = "health_metric_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "metric_type")
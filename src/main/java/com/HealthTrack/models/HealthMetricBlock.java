@@ -0,0 +1,46 @@
+package com.HealthTrack.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Up to a fixed number of consecutive samples of one user's metric type, compressed with
+ * delta-of-delta timestamps and XOR-encoded values (see GorillaCodec).
+ * Samples are moved here from health_metrics once they are past the raw retention period.
+ */
+@Table(name = "health_metric_blocks", indexes = {
+        @Index(name = "idx_health_metric_blocks_series", columnList = "user_id, metric_type, block_start")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class HealthMetricBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "metric_type", nullable = false)
+    private String metricType;
+
+    // Timestamps of the first and last sample in the block
+    @Column(name = "block_start", nullable = false)
+    private LocalDateTime blockStart;
+
+    @Column(name = "block_end", nullable = false)
+    private LocalDateTime blockEnd;
+
+    @Column(name = "sample_count", nullable = false)
+    private int sampleCount;
+
+    @Column(name = "data", nullable = false, length = 1048576)
+    private byte[] data;
+}
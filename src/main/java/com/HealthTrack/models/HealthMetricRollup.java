@@ -0,0 +1,55 @@
+package com.HealthTrack.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Count, sum, min and max of one user's samples of one metric type within a minute, hour or day
+ */
+@Table(name = "health_metric_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_health_metric_rollups_bucket",
+                columnNames = {"user_id", "metric_type", "resolution", "bucket_start"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class HealthMetricRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "metric_type", nullable = false)
+    private String metricType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 10)
+    private RollupResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "value_sum", nullable = false)
+    private double valueSum;
+
+    @Column(name = "min_value", nullable = false)
+    private double minValue;
+
+    @Column(name = "max_value", nullable = false)
+    private double maxValue;
+
+    public double getAverage() {
+        return sampleCount == 0 ? 0 : valueSum / sampleCount;
+    }
+}
@@ -0,0 +1,46 @@
+package com.HealthTrack.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The health metrics the app has rules for, along with the name they are recorded under
+ */
+public enum MetricType {
+
+    BLOOD_PRESSURE("Blood Pressure"),
+    BLOOD_PRESSURE_DIASTOLIC("Blood Pressure Diastolic"),
+    HEART_RATE("Heart Rate"),
+    BLOOD_SUGAR("Blood Sugar"),
+    CHOLESTEROL("Cholesterol"),
+    BODY_TEMPERATURE("Body Temperature"),
+    RESPIRATORY_RATE("Respiratory Rate"),
+    OXYGEN_SATURATION("Oxygen Saturation"),
+    BMI("BMI"),
+    WEIGHT("Weight"),
+    HEIGHT("Height");
+
+    private static final Map<String, MetricType> BY_DISPLAY_NAME = new HashMap<>();
+    static {
+        for (MetricType metricType : values()) {
+            BY_DISPLAY_NAME.put(metricType.displayName, metricType);
+        }
+    }
+
+    private final String displayName;
+
+    MetricType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * The metric type recorded under the given name, or null if there is none
+     */
+    public static MetricType fromDisplayName(String displayName) {
+        return displayName == null ? null : BY_DISPLAY_NAME.get(displayName);
+    }
+}
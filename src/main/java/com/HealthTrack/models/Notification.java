@@ -7,15 +7,26 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        // Serves the latest-notification lookup behind notification cooldowns
+        @Index(name = "idx_notifications_user_metric_time", columnList = "user_id, metricType, timestamp"),
+        // Serves inbox pages (unread first, newest first) and unread counts
+        @Index(name = "idx_notifications_user_read_time", columnList = "user_id, isRead, timestamp"),
+        // Serves stream replays and the push poll, which read users' notifications from a point in time on
+        @Index(name = "idx_notifications_user_time", columnList = "user_id, timestamp"),
+        // Serves the retention purge of old read notifications across users
+        @Index(name = "idx_notifications_read_time", columnList = "isRead, timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 public class Notification {
 
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_seq")
+    @SequenceGenerator(name = "notification_seq", sequenceName = "notification_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,10 @@
+package com.HealthTrack.models;
+
+/**
+ * Domain events that produce notifications once they are dispatched from the outbox
+ */
+public enum OutboxEventType {
+    APPOINTMENT_CREATED,
+    SYMPTOM_CREATED,
+    HEALTH_METRIC_CREATED
+}
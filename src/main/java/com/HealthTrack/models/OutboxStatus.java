@@ -0,0 +1,8 @@
+package com.HealthTrack.models;
+
+public enum OutboxStatus {
+    // Waiting to be dispatched, possibly after an earlier failed attempt
+    PENDING,
+    // Gave up after the maximum number of attempts; kept for inspection
+    FAILED
+}
@@ -0,0 +1,38 @@
+package com.HealthTrack.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of an appointment reminder that has already been sent, so it is never sent twice
+ */
+@Entity
+@Table(name = "reminder_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reminder_ledger_appointment_type_fire_time",
+                columnNames = {"appointment_id", "reminder_type", "fire_time"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reminder_type", nullable = false, length = 32)
+    private ReminderType reminderType;
+
+    @Column(name = "fire_time", nullable = false)
+    private LocalDateTime fireTime;
+
+    @Column(nullable = false)
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,45 @@
+package com.HealthTrack.models;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * The reminders sent ahead of every appointment, along with the notification type they are stored under
+ */
+public enum ReminderType {
+
+    TWENTY_FOUR_HOUR("Appointment24HourReminder"),
+    TWO_HOUR("Appointment2HourReminder"),
+    DAY_OF("AppointmentDayOfReminder");
+
+    // Day-of reminders go out at 8 AM on the day of the appointment
+    private static final LocalTime DAY_OF_REMINDER_TIME = LocalTime.of(8, 0);
+
+    private final String notificationType;
+
+    ReminderType(String notificationType) {
+        this.notificationType = notificationType;
+    }
+
+    public String getNotificationType() {
+        return notificationType;
+    }
+
+    /**
+     * When this reminder should fire for an appointment at the given time,
+     * or null if the reminder does not apply (e.g. a day-of reminder for an appointment before 8 AM)
+     */
+    public LocalDateTime fireTimeFor(LocalDateTime appointmentDate) {
+        switch (this) {
+            case TWENTY_FOUR_HOUR:
+                return appointmentDate.minusHours(24);
+            case TWO_HOUR:
+                return appointmentDate.minusHours(2);
+            case DAY_OF:
+                LocalDateTime morning = appointmentDate.toLocalDate().atTime(DAY_OF_REMINDER_TIME);
+                return morning.isBefore(appointmentDate) ? morning : null;
+            default:
+                return null;
+        }
+    }
+}
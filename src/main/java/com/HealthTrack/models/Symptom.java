@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "symptoms")
+@Table(name = "symptoms", indexes = {
+        // Serves the past-week lookup that rebuilds a user's symptom pattern window
+        @Index(name = "idx_symptoms_user_time", columnList = "user_id, timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
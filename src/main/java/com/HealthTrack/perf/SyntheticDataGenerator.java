@@ -0,0 +1,248 @@
+package com.HealthTrack.perf;
+
+import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.AppointmentRepository;
+import com.HealthTrack.repositories.SymptomRepository;
+import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.scheduling.ReminderTimingWheel;
+import com.HealthTrack.search.AppointmentSearchIndex;
+import com.HealthTrack.services.HealthMetricService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the database with synthetic users and their records when the app starts with the perf profile.
+ *
+ * Users are named perf-user-1 to perf-user-N and share one password, so a load driver can log in as any of
+ * them. How active a user is follows a long-tailed distribution: most have a few records and a few have many,
+ * as in real usage. Appointments are mostly past, some upcoming and a few due within two days, so the reminder
+ * sweep has work. Health metrics go through the batch upload, so rollups, BMI and alerts are derived as they
+ * are in production. The random seed is fixed, so every run generates the same data.
+ */
+@Component
+@Profile("perf")
+@Slf4j
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    public static final String USERNAME_PREFIX = "perf-user-";
+
+    private static final int USERS_PER_CHUNK = 100;
+    private static final int HISTORY_DAYS = 90;
+
+    private static final String[] DOCTORS = {"Dr. Smith", "Dr. Johnson", "Dr. Williams", "Dr. Brown", "Dr. Jones",
+            "Dr. Garcia", "Dr. Miller", "Dr. Davis", "Dr. Rodriguez", "Dr. Martinez", "Dr. Hernandez", "Dr. Lopez",
+            "Dr. Gonzalez", "Dr. Wilson", "Dr. Anderson", "Dr. Thomas", "Dr. Taylor", "Dr. Moore", "Dr. Jackson",
+            "Dr. Martin"};
+    private static final String[] LOCATIONS = {"City Clinic", "General Hospital", "Downtown Medical Center",
+            "Riverside Health", "Northside Family Practice", "Lakeview Specialists"};
+    private static final String[] REASONS = {"Annual checkup", "Follow-up visit", "Blood work", "Vaccination",
+            "Back pain", "Skin rash", "Blood pressure review", "Physical therapy", "Eye exam", "Dental cleaning"};
+    // Common symptoms first, repeated so they are drawn more often; the critical ones are rare
+    private static final String[] SYMPTOM_TYPES = {"Headache", "Headache", "Headache", "Fatigue", "Fatigue",
+            "Fatigue", "Cough", "Cough", "Fever", "Fever", "Nausea", "Nausea", "Back Pain", "Back Pain", "Dizziness",
+            "Insomnia", "Sore Throat", "Joint Pain", "Chest Pain", "Difficulty Breathing", "Severe Headache",
+            "Confusion"};
+    // Metric type, typical value and spread between users; a user's samples vary by a third of the spread
+    private static final Object[][] METRICS = {
+            {"Heart Rate", 72.0, 10.0},
+            {"Blood Pressure", 122.0, 14.0},
+            {"Blood Sugar", 105.0, 25.0},
+            {"Body Temperature", 36.8, 0.4},
+            {"Oxygen Saturation", 97.0, 1.5},
+            {"Respiratory Rate", 16.0, 3.0},
+            {"Weight", 175.0, 35.0}};
+
+    private final UserRepository userRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SymptomRepository symptomRepository;
+    private final HealthMetricService healthMetricService;
+    private final AppointmentSearchIndex searchIndex;
+    private final ReminderTimingWheel reminderWheel;
+    private final PasswordEncoder passwordEncoder;
+    private final int users;
+    private final double appointmentsPerUser;
+    private final double symptomsPerUser;
+    private final double metricsPerUser;
+    private final String password;
+    private final long seed;
+
+    public SyntheticDataGenerator(UserRepository userRepository,
+                                  AppointmentRepository appointmentRepository,
+                                  SymptomRepository symptomRepository,
+                                  HealthMetricService healthMetricService,
+                                  AppointmentSearchIndex searchIndex,
+                                  ReminderTimingWheel reminderWheel,
+                                  PasswordEncoder passwordEncoder,
+                                  @Value("${healthtrack.perf.users:1000}") int users,
+                                  @Value("${healthtrack.perf.appointments-per-user:6}") double appointmentsPerUser,
+                                  @Value("${healthtrack.perf.symptoms-per-user:25}") double symptomsPerUser,
+                                  @Value("${healthtrack.perf.metrics-per-user:150}") double metricsPerUser,
+                                  @Value("${healthtrack.perf.password:perf-password}") String password,
+                                  @Value("${healthtrack.perf.seed:42}") long seed) {
+        this.userRepository = userRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.symptomRepository = symptomRepository;
+        this.healthMetricService = healthMetricService;
+        this.searchIndex = searchIndex;
+        this.reminderWheel = reminderWheel;
+        this.passwordEncoder = passwordEncoder;
+        this.users = users;
+        this.appointmentsPerUser = appointmentsPerUser;
+        this.symptomsPerUser = symptomsPerUser;
+        this.metricsPerUser = metricsPerUser;
+        this.password = password;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (userRepository.findByUsername(USERNAME_PREFIX + 1).isPresent()) {
+            log.atInfo().setMessage("Synthetic data already present, skipping generation").log();
+            return;
+        }
+
+        long started = System.nanoTime();
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        // Hashing is deliberately slow, so every user shares one hash
+        String passwordHash = passwordEncoder.encode(password);
+        long appointments = 0;
+        long symptoms = 0;
+        long metrics = 0;
+
+        for (int first = 1; first <= users; first += USERS_PER_CHUNK) {
+            List<User> chunk = new ArrayList<>(USERS_PER_CHUNK);
+            for (int n = first; n < first + USERS_PER_CHUNK && n <= users; n++) {
+                chunk.add(user(n, passwordHash));
+            }
+            userRepository.saveAll(chunk);
+
+            List<Appointment> chunkAppointments = new ArrayList<>();
+            List<Symptom> chunkSymptoms = new ArrayList<>();
+            for (User user : chunk) {
+                double activity = activity(random);
+                for (int i = count(random, appointmentsPerUser * activity); i > 0; i--) {
+                    chunkAppointments.add(appointment(random, user, now));
+                }
+                for (int i = count(random, symptomsPerUser * activity); i > 0; i--) {
+                    chunkSymptoms.add(symptom(random, user, now));
+                }
+                List<HealthMetricDto> samples = metrics(random, user, now, count(random, metricsPerUser * activity));
+                healthMetricService.createHealthMetricBatch(user.getId(), samples.iterator());
+                metrics += samples.size();
+            }
+            appointmentRepository.saveAll(chunkAppointments);
+            symptomRepository.saveAll(chunkSymptoms);
+            appointments += chunkAppointments.size();
+            symptoms += chunkSymptoms.size();
+        }
+
+        // Written around the services, so bring the derived state up to date
+        searchIndex.rebuild();
+        reminderWheel.invalidate();
+
+        log.atInfo().setMessage("Generated synthetic data")
+                .addKeyValue("users", users)
+                .addKeyValue("appointments", appointments)
+                .addKeyValue("symptoms", symptoms)
+                .addKeyValue("healthMetrics", metrics)
+                .addKeyValue("seconds", (System.nanoTime() - started) / 1_000_000_000.0)
+                .log();
+    }
+
+    private static User user(int n, String passwordHash) {
+        User user = new User();
+        user.setUsername(USERNAME_PREFIX + n);
+        user.setPassword(passwordHash);
+        user.setEmail(USERNAME_PREFIX + n + "@example.com");
+        user.setPhoneNumber(String.format("555-%07d", n));
+        return user;
+    }
+
+    private static Appointment appointment(Random random, User user, LocalDateTime now) {
+        LocalDateTime day;
+        double when = random.nextDouble();
+        if (when < 0.05) {
+            // Due for a reminder within the next two days
+            day = now.plusDays(random.nextInt(2));
+        } else if (when < 0.30) {
+            day = now.plusDays(2 + random.nextInt(60));
+        } else {
+            day = now.minusDays(1 + random.nextInt(365));
+        }
+        // Office hours, on the quarter hour
+        LocalDateTime date = day.toLocalDate().atTime(8 + random.nextInt(10), 15 * random.nextInt(4));
+        return new Appointment(null, pick(random, DOCTORS), pick(random, LOCATIONS), date, pick(random, REASONS), user);
+    }
+
+    private static Symptom symptom(Random random, User user, LocalDateTime now) {
+        String symptomType = pick(random, SYMPTOM_TYPES);
+        // Mostly mild, rarely severe
+        int severity = Math.min(10, 1 + (int) (-Math.log(1 - random.nextDouble()) * 3));
+        LocalDateTime timestamp = now.minusMinutes(random.nextInt(HISTORY_DAYS * 24 * 60));
+        return new Symptom(null, symptomType, severity, symptomType + " logged with severity " + severity,
+                timestamp, user);
+    }
+
+    /**
+     * Samples of a few metric types, each at a steady interval over the history with some jitter,
+     * plus the user's height so BMI is derived from their weight
+     */
+    private static List<HealthMetricDto> metrics(Random random, User user, LocalDateTime now, int samples) {
+        List<HealthMetricDto> metrics = new ArrayList<>(samples + 1);
+        metrics.add(new HealthMetricDto(null, "Height", 60 + random.nextInt(16) + 0.0,
+                now.minusDays(HISTORY_DAYS), user.getId()));
+
+        int types = 2 + random.nextInt(3);
+        int perType = Math.max(1, samples / types);
+        long intervalMinutes = Math.max(1, HISTORY_DAYS * 24 * 60L / perType);
+        // Weight is always tracked, so it is the first type
+        for (int t = 0; t < types; t++) {
+            Object[] metric = t == 0 ? METRICS[METRICS.length - 1] : METRICS[random.nextInt(METRICS.length - 1)];
+            String metricType = (String) metric[0];
+            double spread = (Double) metric[2];
+            double baseline = (Double) metric[1] + random.nextGaussian() * spread;
+
+            LocalDateTime timestamp = now.minusMinutes(intervalMinutes * perType);
+            for (int i = 0; i < perType; i++) {
+                double value = Math.round((baseline + random.nextGaussian() * spread / 3) * 10) / 10.0;
+                LocalDateTime jittered = timestamp.plusMinutes(random.nextInt((int) Math.min(intervalMinutes, 60)));
+                metrics.add(new HealthMetricDto(null, metricType, value, jittered, user.getId()));
+                timestamp = timestamp.plusMinutes(intervalMinutes);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * How much more or less active than average a user is; log-normal with a mean of 1
+     */
+    private static double activity(Random random) {
+        double sigma = 0.8;
+        return Math.exp(random.nextGaussian() * sigma - sigma * sigma / 2);
+    }
+
+    private static int count(Random random, double mean) {
+        // Rounds up or down in proportion, so fractional means are kept on average
+        int whole = (int) mean;
+        return whole + (random.nextDouble() < mean - whole ? 1 : 0);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
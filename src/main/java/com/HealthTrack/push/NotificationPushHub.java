@@ -0,0 +1,333 @@
+package com.HealthTrack.push;
+
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.repositories.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes new notifications to their users' open streams over Server-Sent Events.
+ *
+ * An idle stream holds no thread, only its emitter and a small queue of pending events; a queue is drained
+ * on a virtual thread, so a slow client only delays itself. A client that falls further behind than its
+ * queue holds is disconnected, and catches up when it reconnects: the browser sends the id of the last event
+ * it saw (Last-Event-ID) and the notifications created since are replayed from the notifications table.
+ * Streams get a heartbeat comment regularly, which keeps proxies from closing them and finds clients that
+ * went away.
+ *
+ * The node that creates a notification pushes it as soon as it commits. Every node also polls the table on
+ * a short interval for the users with streams open on it, so notifications created elsewhere (by another API
+ * node, or the outbox and reminder jobs on the lease holder) reach those streams a poll interval later.
+ * A notification seen by both is pushed once.
+ *
+ * Event ids are a (timestamp, id) cursor rather than the notification id: ids come from a pooled sequence,
+ * so each node hands out its own block and they do not follow creation order, and transactions commit out
+ * of order. A replay therefore starts a fixed overlap window before the cursor's timestamp, which covers
+ * notifications stamped earlier but committed after the client's last event; it resends some the client
+ * already has, and clients drop those by notification id. The poll reads back over the same window.
+ */
+@Component
+public class NotificationPushHub {
+
+    // Most notifications a reconnecting client is sent from the table; the inbox has the rest
+    private static final int REPLAY_LIMIT = 500;
+    // Most users one poll query asks about
+    private static final int POLL_USERS_PER_QUERY = 500;
+
+    private final NotificationRepository notificationRepository;
+    private final long streamTimeoutMillis;
+    private final int maxPendingEvents;
+    private final Duration replayOverlap;
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Timestamps of the notifications pushed to this node's streams that a poll can still read back, by id
+    private final Map<Long, LocalDateTime> delivered = new ConcurrentHashMap<>();
+    private volatile LocalDateTime polledUntil = LocalDateTime.now();
+
+    public NotificationPushHub(NotificationRepository notificationRepository,
+                               @Value("${healthtrack.notifications.push.timeout-minutes:30}") long streamTimeoutMinutes,
+                               @Value("${healthtrack.notifications.push.max-pending-events:100}") int maxPendingEvents,
+                               @Value("${healthtrack.notifications.push.replay-overlap-seconds:60}") long replayOverlapSeconds) {
+        this.notificationRepository = notificationRepository;
+        this.streamTimeoutMillis = Duration.ofMinutes(streamTimeoutMinutes).toMillis();
+        this.maxPendingEvents = maxPendingEvents;
+        this.replayOverlap = Duration.ofSeconds(replayOverlapSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::close));
+        executor.shutdown();
+    }
+
+    /**
+     * Open a stream of the user's new notifications, first replaying those created after lastEventId if given
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        ReplayCursor cursor = resolveCursor(lastEventId);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscription subscription = new Subscription(userId, emitter, cursor != null);
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> remove(subscription));
+
+        // Registered before the replay is read, so nothing created in between is missed
+        subscriptions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        if (cursor != null) {
+            List<NotificationDto> missed = notificationRepository.findNotificationDtosByUserIdSince(
+                    userId, cursor.timestamp().minus(replayOverlap), PageRequest.of(0, REPLAY_LIMIT));
+            subscription.replay(missed.stream().filter(notification -> !cursor.id().equals(notification.getId())).toList());
+        }
+        return emitter;
+    }
+
+    /**
+     * Push a saved notification to its user's streams; applied once the surrounding transaction commits,
+     * so a rolled-back notification is never pushed
+     */
+    public void publish(NotificationDto notification) {
+        if (notification.getId() == null || notification.getUserId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(notification);
+                }
+            });
+        } else {
+            deliver(notification);
+        }
+    }
+
+    /**
+     * Push the notifications created on any node since the last poll, less the overlap window,
+     * to the streams open on this node
+     */
+    @Scheduled(fixedDelayString = "${healthtrack.notifications.push.poll-ms:2000}")
+    public void pollNotifications() {
+        LocalDateTime pollStart = LocalDateTime.now();
+        LocalDateTime since = polledUntil.minus(replayOverlap);
+        List<Long> userIds = new ArrayList<>(subscriptions.keySet());
+        for (int from = 0; from < userIds.size(); from += POLL_USERS_PER_QUERY) {
+            List<Long> batch = userIds.subList(from, Math.min(from + POLL_USERS_PER_QUERY, userIds.size()));
+            List<NotificationDto> page;
+            int pageNumber = 0;
+            do {
+                page = notificationRepository.findNotificationDtosByUserIdInSince(
+                        batch, since, PageRequest.of(pageNumber++, REPLAY_LIMIT));
+                page.forEach(this::deliver);
+            } while (page.size() == REPLAY_LIMIT);
+        }
+
+        // The next poll reads from pollStart less the overlap, so anything older cannot come back
+        LocalDateTime forgetBefore = pollStart.minus(replayOverlap);
+        delivered.values().removeIf(timestamp -> timestamp.isBefore(forgetBefore));
+        polledUntil = pollStart;
+    }
+
+    /**
+     * Send a comment down every stream that has nothing else pending
+     */
+    @Scheduled(fixedDelayString = "${healthtrack.notifications.push.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::heartbeat));
+    }
+
+    public int openStreamCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void deliver(NotificationDto notification) {
+        Set<Subscription> userSubscriptions = subscriptions.get(notification.getUserId());
+        if (userSubscriptions == null) {
+            return;
+        }
+        LocalDateTime timestamp = notification.getTimestamp() != null ? notification.getTimestamp() : LocalDateTime.now();
+        if (delivered.putIfAbsent(notification.getId(), timestamp) == null) {
+            userSubscriptions.forEach(subscription -> subscription.push(notification));
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (userId, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    /**
+     * The cursor a Last-Event-ID names: "timestamp_id" as sent by this hub, or a bare notification id from
+     * streams opened before cursors were used, whose timestamp is looked up; null if there is nothing to resume
+     */
+    private ReplayCursor resolveCursor(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            int separator = lastEventId.lastIndexOf('_');
+            if (separator < 0) {
+                Long id = Long.valueOf(lastEventId.trim());
+                return notificationRepository.findTimestampById(id)
+                        .map(timestamp -> new ReplayCursor(timestamp, id))
+                        .orElse(null);
+            }
+            return new ReplayCursor(LocalDateTime.parse(lastEventId.substring(0, separator)),
+                    Long.valueOf(lastEventId.substring(separator + 1)));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static String eventId(NotificationDto notification) {
+        if (notification.getTimestamp() == null) {
+            return String.valueOf(notification.getId());
+        }
+        return notification.getTimestamp() + "_" + notification.getId();
+    }
+
+    private static SseEmitter.SseEventBuilder notificationEvent(NotificationDto notification) {
+        return SseEmitter.event()
+                .id(eventId(notification))
+                .name("notification")
+                .data(notification, MediaType.APPLICATION_JSON);
+    }
+
+    private record ReplayCursor(LocalDateTime timestamp, Long id) {
+    }
+
+    /**
+     * One open stream: its pending events, sent in order by at most one drain task at a time
+     */
+    private final class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        // Live notifications that arrive while the replay is being read, sent after it
+        private List<NotificationDto> heldBack;
+        private boolean draining;
+        private boolean closed;
+
+        private Subscription(Long userId, SseEmitter emitter, boolean replaying) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.heldBack = replaying ? new ArrayList<>() : null;
+        }
+
+        void push(NotificationDto notification) {
+            synchronized (this) {
+                if (heldBack != null) {
+                    heldBack.add(notification);
+                    return;
+                }
+            }
+            enqueue(notificationEvent(notification));
+        }
+
+        void replay(List<NotificationDto> missed) {
+            Set<Long> replayedIds = new HashSet<>();
+            missed.forEach(notification -> {
+                replayedIds.add(notification.getId());
+                enqueue(notificationEvent(notification));
+            });
+            List<NotificationDto> live;
+            synchronized (this) {
+                live = heldBack;
+                heldBack = null;
+            }
+            live.stream()
+                    .filter(notification -> !replayedIds.contains(notification.getId()))
+                    .forEach(notification -> enqueue(notificationEvent(notification)));
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                if (!pending.isEmpty() || draining) {
+                    return;
+                }
+            }
+            enqueue(SseEmitter.event().comment("heartbeat"));
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.size() < maxPendingEvents) {
+                    pending.add(event);
+                    if (!draining) {
+                        draining = true;
+                        executor.execute(this::drain);
+                    }
+                    return;
+                }
+            }
+            // Too far behind; the client resumes from its last event when it reconnects
+            close();
+        }
+
+        void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = closed ? null : pending.poll();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (Exception e) {
+                    // The client went away; the container reports it and completes the emitter
+                    synchronized (this) {
+                        closed = true;
+                        pending.clear();
+                        draining = false;
+                    }
+                    remove(this);
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            remove(this);
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package com.HealthTrack.repositories;
 
+import com.HealthTrack.dtos.AppointmentDto;
 import com.HealthTrack.models.Appointment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -13,6 +21,10 @@ import org.springframework.data.repository.query.Param;
 
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -22,6 +34,32 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      */
     List<Appointment> findByUserId(Long userId);
 
+    /**
+     * Stream a user's appointments as DTOs, a page of rows at a time, for exports.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.HealthTrack.dtos.AppointmentDto(a.id, a.doctorName, a.location, a.appointmentDate, " +
+            "a.reasonForVisit, a.user.id) FROM Appointment a WHERE a.user.id = :userId ORDER BY a.id ASC")
+    Stream<AppointmentDto> streamAppointmentDtosByUserId(@Param("userId") Long userId);
+
+    /**
+     * Appointments of several users as DTOs in one query, for user listings
+     */
+    @Query("SELECT new com.HealthTrack.dtos.AppointmentDto(a.id, a.doctorName, a.location, a.appointmentDate, " +
+            "a.reasonForVisit, a.user.id) FROM Appointment a WHERE a.user.id IN :userIds ORDER BY a.id ASC")
+    List<AppointmentDto> findAppointmentDtosByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Find all appointments for a specific user, oldest first
+     */
+    List<Appointment> findByUserIdOrderByAppointmentDateAscIdAsc(Long userId);
+
+    /**
+     * Next batch of appointments after the given id, used to walk the whole table without offsets
+     */
+    List<Appointment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     /**
      * Find appointments within a specific timeframe
      * Used for reminder notifications and conflict detection
@@ -49,10 +87,26 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     /**
      * Find appointments for a specific user on a specific date
      */
+    default List<Appointment> findAppointmentsByUserIdAndDate(Long userId, LocalDateTime date) {
+        return findAppointmentsByUserIdAndDate(userId, date.toLocalDate(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Find appointments for a specific user on a calendar date in the user's time zone
+     */
+    default List<Appointment> findAppointmentsByUserIdAndDate(Long userId, LocalDate date, ZoneId zone) {
+        return findAppointmentsByUserIdInRange(userId, startOfDay(date, zone), startOfDay(date.plusDays(1), zone));
+    }
+
+    /**
+     * Find a user's appointments in [start, end); a plain range on the column so the (user_id, appointment_date) index applies
+     */
     @Query("SELECT a FROM Appointment a WHERE a.user.id = :userId " +
-            "AND DATE(a.appointmentDate) = DATE(:date)")
-    List<Appointment> findAppointmentsByUserIdAndDate(@Param("userId") Long userId,
-                                                      @Param("date") LocalDateTime date);
+            "AND a.appointmentDate >= :start AND a.appointmentDate < :end " +
+            "ORDER BY a.appointmentDate ASC")
+    List<Appointment> findAppointmentsByUserIdInRange(@Param("userId") Long userId,
+                                                      @Param("start") LocalDateTime start,
+                                                      @Param("end") LocalDateTime end);
 
     /**
      * Find appointments for a specific user with a specific doctor
@@ -79,15 +133,47 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     /**
      * Find appointments for today (for day-of reminders)
      */
-    @Query("SELECT a FROM Appointment a WHERE DATE(a.appointmentDate) = DATE(:today)")
-    List<Appointment> findAppointmentsForToday(@Param("today") LocalDateTime today);
+    default List<Appointment> findAppointmentsForToday(LocalDateTime today) {
+        LocalDateTime startOfDay = today.toLocalDate().atStartOfDay();
+        return findAppointmentsInRange(startOfDay, startOfDay.plusDays(1));
+    }
+
+    /**
+     * Find appointments for the current calendar date in the given time zone
+     */
+    default List<Appointment> findAppointmentsForToday(ZoneId zone) {
+        LocalDate today = LocalDate.now(zone);
+        return findAppointmentsInRange(startOfDay(today, zone), startOfDay(today.plusDays(1), zone));
+    }
+
+    /**
+     * Find all appointments in [start, end), served by the appointment_date index
+     */
+    @Query("SELECT a FROM Appointment a WHERE a.appointmentDate >= :start AND a.appointmentDate < :end")
+    List<Appointment> findAppointmentsInRange(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
 
     /**
      * Check if user has any appointments on a specific date
      */
-    @Query("SELECT CASE WHEN COUNT(a) > 0 THEN true ELSE false END FROM Appointment a " +
-            "WHERE a.user.id = :userId AND DATE(a.appointmentDate) = DATE(:date)")
-    boolean hasAppointmentsOnDate(@Param("userId") Long userId, @Param("date") LocalDateTime date);
+    default boolean hasAppointmentsOnDate(Long userId, LocalDateTime date) {
+        return hasAppointmentsOnDate(userId, date.toLocalDate(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Check if user has any appointments on a calendar date in the user's time zone
+     */
+    default boolean hasAppointmentsOnDate(Long userId, LocalDate date, ZoneId zone) {
+        return existsByUserIdAndAppointmentDateGreaterThanEqualAndAppointmentDateLessThan(
+                userId, startOfDay(date, zone), startOfDay(date.plusDays(1), zone));
+    }
+
+    /**
+     * Existence probe that stops at the first matching index entry instead of counting them all
+     */
+    boolean existsByUserIdAndAppointmentDateGreaterThanEqualAndAppointmentDateLessThan(Long userId,
+                                                                                       LocalDateTime start,
+                                                                                       LocalDateTime end);
 
     /**
      * Count total appointments for a user
@@ -137,6 +223,62 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
                                                            @Param("startDate") LocalDateTime startDate,
                                                            @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Find the id and date of every appointment after the given time
+     * Used to rebuild the reminder timing wheel at startup
+     */
+    @Query("SELECT a.id AS id, a.appointmentDate AS appointmentDate FROM Appointment a " +
+            "WHERE a.appointmentDate > :currentTime")
+    List<AppointmentSchedule> findAppointmentSchedulesAfter(@Param("currentTime") LocalDateTime currentTime);
+
+    /**
+     * Find the id and date of every appointment within a timeframe
+     * Used to reconcile the reminder timing wheel with appointments written by other nodes
+     */
+    @Query("SELECT a.id AS id, a.appointmentDate AS appointmentDate FROM Appointment a " +
+            "WHERE a.appointmentDate > :start AND a.appointmentDate <= :end")
+    List<AppointmentSchedule> findAppointmentSchedulesWithinTimeframe(@Param("start") LocalDateTime start,
+                                                                      @Param("end") LocalDateTime end);
+
+    /**
+     * Find the id, doctor and time of a user's other appointments in [start, end)
+     * Used for same-day and conflict checks; served by the (user_id, appointment_date) index
+     */
+    @Query("SELECT a.id AS id, a.doctorName AS doctorName, a.appointmentDate AS appointmentDate " +
+            "FROM Appointment a WHERE a.user.id = :userId " +
+            "AND a.appointmentDate >= :start AND a.appointmentDate < :end AND a.id <> :excludeId " +
+            "ORDER BY a.appointmentDate ASC")
+    List<AppointmentSlot> findUserAppointmentSlots(@Param("userId") Long userId,
+                                                   @Param("start") LocalDateTime start,
+                                                   @Param("end") LocalDateTime end,
+                                                   @Param("excludeId") Long excludeId);
+
+    /**
+     * Keyset page of a user's appointments in ascending (appointmentDate, id) order
+     * Returns appointments strictly after (afterDate, afterId) and before :end; walks the (user_id, appointment_date) index
+     */
+    @Query("SELECT a FROM Appointment a WHERE a.user.id = :userId AND a.appointmentDate < :end " +
+            "AND (a.appointmentDate > :afterDate OR (a.appointmentDate = :afterDate AND a.id > :afterId)) " +
+            "ORDER BY a.appointmentDate ASC, a.id ASC")
+    List<Appointment> findAppointmentPageAscending(@Param("userId") Long userId,
+                                                   @Param("end") LocalDateTime end,
+                                                   @Param("afterDate") LocalDateTime afterDate,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    /**
+     * Keyset page of a user's appointments in descending (appointmentDate, id) order
+     * Returns appointments strictly before (beforeDate, beforeId) and at or after :start
+     */
+    @Query("SELECT a FROM Appointment a WHERE a.user.id = :userId AND a.appointmentDate >= :start " +
+            "AND (a.appointmentDate < :beforeDate OR (a.appointmentDate = :beforeDate AND a.id < :beforeId)) " +
+            "ORDER BY a.appointmentDate DESC, a.id DESC")
+    List<Appointment> findAppointmentPageDescending(@Param("userId") Long userId,
+                                                    @Param("start") LocalDateTime start,
+                                                    @Param("beforeDate") LocalDateTime beforeDate,
+                                                    @Param("beforeId") Long beforeId,
+                                                    Pageable pageable);
+
     /**
      * Find all appointments that need 24-hour reminders
      * (appointments 23-25 hours from now that haven't been reminded)
@@ -144,4 +286,31 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a WHERE a.appointmentDate BETWEEN :start AND :end")
     List<Appointment> findAppointmentsNeedingReminders(@Param("start") LocalDateTime start,
                                                        @Param("end") LocalDateTime end);
+
+    /**
+     * Appointment dates are stored as UTC; this is where a day in the given zone begins on that clock
+     */
+    private static LocalDateTime startOfDay(LocalDate date, ZoneId zone) {
+        return date.atStartOfDay(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    /**
+     * Id, doctor and date of an appointment, without loading the entity
+     */
+    interface AppointmentSlot {
+        Long getId();
+
+        String getDoctorName();
+
+        LocalDateTime getAppointmentDate();
+    }
+
+    /**
+     * Id and date of an appointment, without loading the entity
+     */
+    interface AppointmentSchedule {
+        Long getId();
+
+        LocalDateTime getAppointmentDate();
+    }
 }
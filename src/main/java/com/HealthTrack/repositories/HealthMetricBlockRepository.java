@@ -0,0 +1,67 @@
+package com.HealthTrack.repositories;
+
+import com.HealthTrack.models.HealthMetricBlock;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@Repository
+public interface HealthMetricBlockRepository extends JpaRepository<HealthMetricBlock, Long> {
+
+    List<HealthMetricBlock> findByUserIdOrderByMetricTypeAscBlockStartAsc(Long userId);
+
+    /**
+     * Stream the metric type and compressed samples of a user's blocks, one block at a time.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "10"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b.metricType AS metricType, b.data AS data FROM HealthMetricBlock b WHERE b.userId = :userId " +
+            "ORDER BY b.metricType ASC, b.blockStart ASC")
+    Stream<BlockData> streamBlockDataByUserId(@Param("userId") Long userId);
+
+    /**
+     * Blocks of one metric type for a user holding any sample in [start, end), oldest first
+     */
+    @Query("SELECT b FROM HealthMetricBlock b WHERE b.userId = :userId AND b.metricType = :metricType " +
+            "AND b.blockStart < :end AND b.blockEnd >= :start ORDER BY b.blockStart ASC")
+    List<HealthMetricBlock> findOverlapping(@Param("userId") Long userId,
+                                            @Param("metricType") String metricType,
+                                            @Param("start") LocalDateTime start,
+                                            @Param("end") LocalDateTime end);
+
+    /**
+     * Every series (user and metric type) with blocks, in a stable order for paging
+     */
+    @Query("SELECT DISTINCT b.userId AS userId, b.metricType AS metricType FROM HealthMetricBlock b " +
+            "ORDER BY b.userId ASC, b.metricType ASC")
+    List<HealthMetricRepository.SeriesKey> findSeries(Pageable pageable);
+
+    /**
+     * Number of samples in one series' blocks and the time of the first and last
+     */
+    @Query("SELECT COALESCE(SUM(b.sampleCount), 0) AS sampleCount, MIN(b.blockStart) AS firstTimestamp, " +
+            "MAX(b.blockEnd) AS lastTimestamp FROM HealthMetricBlock b " +
+            "WHERE b.userId = :userId AND b.metricType = :metricType")
+    HealthMetricRepository.SeriesSpan findSeriesSpan(@Param("userId") Long userId, @Param("metricType") String metricType);
+
+    @Modifying
+    @Query("DELETE FROM HealthMetricBlock b WHERE b.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    interface BlockData {
+        String getMetricType();
+        byte[] getData();
+    }
+}
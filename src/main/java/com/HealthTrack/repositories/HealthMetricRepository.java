@@ -1,11 +1,23 @@
 package com.HealthTrack.repositories;
 
+import com.HealthTrack.dtos.HealthMetricDto;
 import com.HealthTrack.models.HealthMetric;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface HealthMetricRepository extends JpaRepository<HealthMetric, Long> {
@@ -14,5 +26,95 @@ public interface HealthMetricRepository extends JpaRepository<HealthMetric, Long
 
     Optional<HealthMetric> findTopByUserIdAndMetricTypeOrderByTimestampDesc(Long userId, String metricType);
 
+    /**
+     * Stream a user's raw samples as DTOs, by metric type and then oldest first, for exports.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.HealthTrack.dtos.HealthMetricDto(m.id, m.metricType, m.value, m.timestamp, m.user.id) " +
+            "FROM HealthMetric m WHERE m.user.id = :userId ORDER BY m.metricType ASC, m.timestamp ASC")
+    Stream<HealthMetricDto> streamHealthMetricDtosByUserId(@Param("userId") Long userId);
+
+    /**
+     * Raw samples of several users as DTOs in one query, for user listings
+     */
+    @Query("SELECT new com.HealthTrack.dtos.HealthMetricDto(m.id, m.metricType, m.value, m.timestamp, m.user.id) " +
+            "FROM HealthMetric m WHERE m.user.id IN :userIds ORDER BY m.id ASC")
+    List<HealthMetricDto> findHealthMetricDtosByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Oldest samples of one series recorded before the cutoff, used to compact them into blocks
+     */
+    List<HealthMetric> findByUserIdAndMetricTypeAndTimestampBeforeOrderByTimestampAscIdAsc(Long userId,
+                                                                                         String metricType,
+                                                                                         LocalDateTime cutoff,
+                                                                                         Pageable pageable);
+
+    /**
+     * Series (user and metric type) that still hold samples recorded before the cutoff
+     */
+    @Query("SELECT DISTINCT m.user.id AS userId, m.metricType AS metricType FROM HealthMetric m " +
+            "WHERE m.timestamp < :cutoff")
+    List<SeriesKey> findSeriesWithSamplesBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Every series (user and metric type) with raw samples, in a stable order for paging
+     */
+    @Query("SELECT DISTINCT m.user.id AS userId, m.metricType AS metricType FROM HealthMetric m " +
+            "ORDER BY m.user.id ASC, m.metricType ASC")
+    List<SeriesKey> findSeries(Pageable pageable);
+
+    /**
+     * Number of raw samples of one series and the time of the first and last
+     */
+    @Query("SELECT COUNT(m) AS sampleCount, MIN(m.timestamp) AS firstTimestamp, MAX(m.timestamp) AS lastTimestamp " +
+            "FROM HealthMetric m WHERE m.user.id = :userId AND m.metricType = :metricType")
+    SeriesSpan findSeriesSpan(@Param("userId") Long userId, @Param("metricType") String metricType);
+
+    /**
+     * Count, sum, min and max of one series' samples with timestamps in [start, end)
+     */
+    @Query("SELECT COUNT(m) AS sampleCount, SUM(m.value) AS valueSum, MIN(m.value) AS minValue, MAX(m.value) AS maxValue " +
+            "FROM HealthMetric m WHERE m.user.id = :userId AND m.metricType = :metricType " +
+            "AND m.timestamp >= :start AND m.timestamp < :end")
+    SampleAggregate aggregateSamples(@Param("userId") Long userId,
+                                     @Param("metricType") String metricType,
+                                     @Param("start") LocalDateTime start,
+                                     @Param("end") LocalDateTime end);
+
+    /**
+     * Timestamps and values of one series' samples in [start, end), oldest first, read a page of rows at a time.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m.timestamp AS timestamp, m.value AS value FROM HealthMetric m " +
+            "WHERE m.user.id = :userId AND m.metricType = :metricType " +
+            "AND m.timestamp >= :start AND m.timestamp < :end ORDER BY m.timestamp ASC")
+    Stream<SampleValue> streamSamples(@Param("userId") Long userId,
+                                      @Param("metricType") String metricType,
+                                      @Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end);
+
+    interface SeriesKey {
+        Long getUserId();
+        String getMetricType();
+    }
+
+    interface SeriesSpan {
+        Long getSampleCount();
+        LocalDateTime getFirstTimestamp();
+        LocalDateTime getLastTimestamp();
+    }
+
+    interface SampleAggregate {
+        Long getSampleCount();
+        Double getValueSum();
+        Double getMinValue();
+        Double getMaxValue();
+    }
 
+    interface SampleValue {
+        LocalDateTime getTimestamp();
+        Double getValue();
+    }
 }
@@ -0,0 +1,81 @@
+package com.HealthTrack.repositories;
+
+import com.HealthTrack.models.HealthMetricRollup;
+import com.HealthTrack.models.RollupResolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HealthMetricRollupRepository extends JpaRepository<HealthMetricRollup, Long> {
+
+    /**
+     * Rollups of one metric type for a user with bucketStart in [start, end), oldest first
+     */
+    @Query("SELECT r FROM HealthMetricRollup r WHERE r.userId = :userId AND r.metricType = :metricType " +
+            "AND r.resolution = :resolution AND r.bucketStart >= :start AND r.bucketStart < :end " +
+            "ORDER BY r.bucketStart ASC")
+    List<HealthMetricRollup> findRollups(@Param("userId") Long userId,
+                                         @Param("metricType") String metricType,
+                                         @Param("resolution") RollupResolution resolution,
+                                         @Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    /**
+     * Merge samples into a bucket in one statement, creating the bucket if needed.
+     * Concurrent writers to the same bucket are serialized by the unique key, so no update is lost.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO health_metric_rollups " +
+            "(user_id, metric_type, resolution, bucket_start, sample_count, value_sum, min_value, max_value) " +
+            "VALUES (:userId, :metricType, :resolution, :bucketStart, :sampleCount, :valueSum, :minValue, :maxValue) " +
+            "ON DUPLICATE KEY UPDATE sample_count = sample_count + VALUES(sample_count), " +
+            "value_sum = value_sum + VALUES(value_sum), " +
+            "min_value = LEAST(min_value, VALUES(min_value)), " +
+            "max_value = GREATEST(max_value, VALUES(max_value))", nativeQuery = true)
+    int addToRollup(@Param("userId") Long userId,
+                    @Param("metricType") String metricType,
+                    @Param("resolution") String resolution,
+                    @Param("bucketStart") LocalDateTime bucketStart,
+                    @Param("sampleCount") long sampleCount,
+                    @Param("valueSum") double valueSum,
+                    @Param("minValue") double minValue,
+                    @Param("maxValue") double maxValue);
+
+    @Modifying
+    @Query("DELETE FROM HealthMetricRollup r WHERE r.userId = :userId AND r.metricType = :metricType " +
+            "AND r.resolution = :resolution AND r.bucketStart = :bucketStart")
+    int deleteRollup(@Param("userId") Long userId,
+                     @Param("metricType") String metricType,
+                     @Param("resolution") RollupResolution resolution,
+                     @Param("bucketStart") LocalDateTime bucketStart);
+
+    /**
+     * Number of samples one series' rollups of the given resolution account for
+     */
+    @Query("SELECT COALESCE(SUM(r.sampleCount), 0) FROM HealthMetricRollup r " +
+            "WHERE r.userId = :userId AND r.metricType = :metricType AND r.resolution = :resolution")
+    long countRolledUpSamples(@Param("userId") Long userId,
+                              @Param("metricType") String metricType,
+                              @Param("resolution") RollupResolution resolution);
+
+    /**
+     * Delete one series' rollups of every resolution with bucketStart in [start, end)
+     */
+    @Modifying
+    @Query("DELETE FROM HealthMetricRollup r WHERE r.userId = :userId AND r.metricType = :metricType " +
+            "AND r.bucketStart >= :start AND r.bucketStart < :end")
+    int deleteRollups(@Param("userId") Long userId,
+                      @Param("metricType") String metricType,
+                      @Param("start") LocalDateTime start,
+                      @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query("DELETE FROM HealthMetricRollup r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
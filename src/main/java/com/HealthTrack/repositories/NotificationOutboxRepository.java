@@ -0,0 +1,32 @@
+package com.HealthTrack.repositories;
+
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /**
+     * Oldest events in the given status that are due for an attempt, served by the (status, next_attempt_at) index
+     */
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id ASC")
+    List<NotificationOutbox> findDue(@Param("status") OutboxStatus status,
+                                     @Param("now") LocalDateTime now,
+                                     Pageable pageable);
+
+    /**
+     * Delete an event, returning 0 if it no longer exists; runs inside the dispatcher's transaction
+     */
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox o WHERE o.id = :id")
+    int deleteEvent(@Param("id") Long id);
+}
@@ -1,23 +1,136 @@
 package com.HealthTrack.repositories;
 
+import com.HealthTrack.dtos.NotificationDto;
 import com.HealthTrack.models.Notification;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface NotificationRepository extends JpaRepository <Notification, Long> {
 
     List<Notification> findByUserId(Long userId);
-    // Custom query to find similar notifications based on userId, metricType, and timestamp
-    @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Notification n " +
-            "WHERE n.user.id = :userId AND n.metricType = :metricType AND n.timestamp > :timestamp")
-    boolean existsSimilarNotification(@Param("userId") Long userId,
-                                      @Param("metricType") String metricType,
-                                      @Param("timestamp") LocalDateTime timestamp);
 
+    /**
+     * All of a user's notifications as DTOs, newest first
+     */
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id = :userId " +
+            "ORDER BY n.timestamp DESC, n.id DESC")
+    List<NotificationDto> findNotificationDtosByUserId(@Param("userId") Long userId);
+
+    /**
+     * A user's notifications stamped at or after the given time, oldest first, to replay to a reconnecting stream
+     */
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id = :userId AND n.timestamp >= :since " +
+            "ORDER BY n.timestamp ASC, n.id ASC")
+    List<NotificationDto> findNotificationDtosByUserIdSince(@Param("userId") Long userId,
+                                                            @Param("since") LocalDateTime since,
+                                                            Pageable pageable);
+
+    /**
+     * Notifications of any of the users with timestamps from since on, in (timestamp, id) order, for the push poll
+     */
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id IN :userIds AND n.timestamp >= :since " +
+            "ORDER BY n.timestamp ASC, n.id ASC")
+    List<NotificationDto> findNotificationDtosByUserIdInSince(@Param("userIds") Collection<Long> userIds,
+                                                              @Param("since") LocalDateTime since,
+                                                              Pageable pageable);
+
+    @Query("SELECT n.timestamp FROM Notification n WHERE n.id = :id")
+    Optional<LocalDateTime> findTimestampById(@Param("id") Long id);
+
+    /**
+     * Keyset page of a user's read or unread notifications in descending (timestamp, id) order
+     * Returns notifications strictly before (beforeTime, beforeId) and at or after :since, optionally of one
+     * type and metric type; walks the (user_id, is_read, timestamp) index
+     */
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id = :userId AND n.isRead = :read " +
+            "AND n.timestamp >= :since " +
+            "AND (n.timestamp < :beforeTime OR (n.timestamp = :beforeTime AND n.id < :beforeId)) " +
+            "AND (:type IS NULL OR n.type = :type) AND (:metricType IS NULL OR n.metricType = :metricType) " +
+            "ORDER BY n.timestamp DESC, n.id DESC")
+    List<NotificationDto> findInboxPage(@Param("userId") Long userId,
+                                        @Param("read") boolean read,
+                                        @Param("type") String type,
+                                        @Param("metricType") String metricType,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("beforeTime") LocalDateTime beforeTime,
+                                        @Param("beforeId") Long beforeId,
+                                        Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false")
+    long countUnreadByUserId(@Param("userId") Long userId);
+
+    /**
+     * Stream a user's notifications as DTOs, a page of rows at a time, for exports.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id = :userId ORDER BY n.id ASC")
+    Stream<NotificationDto> streamNotificationDtosByUserId(@Param("userId") Long userId);
+
+    /**
+     * Notifications of several users as DTOs in one query, for user listings
+     */
+    @Query("SELECT new com.HealthTrack.dtos.NotificationDto(n.id, n.message, n.metricType, n.type, n.isRead, " +
+            "n.timestamp, n.user.id) FROM Notification n WHERE n.user.id IN :userIds ORDER BY n.id ASC")
+    List<NotificationDto> findNotificationDtosByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // When the user was last sent a notification for this metric type, or null if never
+    @Query("SELECT MAX(n.timestamp) FROM Notification n WHERE n.user.id = :userId AND n.metricType = :metricType")
+    LocalDateTime findLatestNotificationTimestamp(@Param("userId") Long userId,
+                                                  @Param("metricType") String metricType);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllReadByUserId(@Param("userId") Long userId);
+
+    /**
+     * Mark the listed notifications read; ids that are not the user's are left alone
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.id IN :ids AND n.isRead = false")
+    int markReadByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete a user's notifications matching every given filter; null filters match anything
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId " +
+            "AND (:read IS NULL OR n.isRead = :read) " +
+            "AND (:type IS NULL OR n.type = :type) AND (:metricType IS NULL OR n.metricType = :metricType) " +
+            "AND (:before IS NULL OR n.timestamp < :before)")
+    int deleteByUserIdAndFilter(@Param("userId") Long userId,
+                                @Param("read") Boolean read,
+                                @Param("type") String type,
+                                @Param("metricType") String metricType,
+                                @Param("before") LocalDateTime before);
+
+    /**
+     * Ids of the oldest read notifications sent before the cutoff, a chunk at a time, for the retention purge
+     */
+    @Query("SELECT n.id FROM Notification n WHERE n.isRead = true AND n.timestamp < :cutoff ORDER BY n.timestamp ASC")
+    List<Long> findReadNotificationIdsBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,17 @@
+package com.HealthTrack.repositories;
+
+import com.HealthTrack.models.ReminderLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReminderLedgerRepository extends JpaRepository<ReminderLedgerEntry, Long> {
+
+    /**
+     * Find every reminder already sent for the given appointments in a single query
+     */
+    List<ReminderLedgerEntry> findByAppointmentIdIn(Collection<Long> appointmentIds);
+}
@@ -0,0 +1,38 @@
+package com.HealthTrack.repositories;
+
+import com.HealthTrack.models.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    /**
+     * Take or renew a lease if it has expired or is already held by the owner
+     * Returns the number of rows updated (1 when the lease was acquired)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.owner = :owner, l.lockedUntil = :lockedUntil " +
+            "WHERE l.name = :name AND (l.lockedUntil < :now OR l.owner = :owner)")
+    int tryAcquire(@Param("name") String name,
+                   @Param("owner") String owner,
+                   @Param("lockedUntil") LocalDateTime lockedUntil,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Create a lease row; fails with a constraint violation if another node created it first
+     */
+    @Modifying
+    @Transactional
+    @Query("INSERT INTO SchedulerLock (name, owner, lockedUntil) VALUES (:name, :owner, :lockedUntil)")
+    int insertLock(@Param("name") String name,
+                   @Param("owner") String owner,
+                   @Param("lockedUntil") LocalDateTime lockedUntil);
+}
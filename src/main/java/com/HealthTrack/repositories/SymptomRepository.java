@@ -1,17 +1,54 @@
 package com.HealthTrack.repositories;
 
+import com.HealthTrack.dtos.SymptomDto;
 import com.HealthTrack.models.HealthMetric;
 import com.HealthTrack.models.Symptom;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 @Repository
 public interface SymptomRepository extends JpaRepository<Symptom, Long> {
 
     List<Symptom> findByUserId(Long userId);
 
+    /**
+     * Stream a user's symptoms as DTOs, a page of rows at a time, for exports.
+     * The stream must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.HealthTrack.dtos.SymptomDto(s.id, s.symptomType, s.severity, s.description, s.timestamp, " +
+            "s.user.id) FROM Symptom s WHERE s.user.id = :userId ORDER BY s.id ASC")
+    Stream<SymptomDto> streamSymptomDtosByUserId(@Param("userId") Long userId);
+
+    /**
+     * Symptoms of several users as DTOs in one query, for user listings
+     */
+    @Query("SELECT new com.HealthTrack.dtos.SymptomDto(s.id, s.symptomType, s.severity, s.description, s.timestamp, " +
+            "s.user.id) FROM Symptom s WHERE s.user.id IN :userIds ORDER BY s.id ASC")
+    List<SymptomDto> findSymptomDtosByUserIdIn(@Param("userIds") Collection<Long> userIds);
 
+    /**
+     * Type, severity and time of a user's symptoms logged since the given time, oldest first
+     */
+    @Query("SELECT s.id AS id, s.symptomType AS symptomType, s.severity AS severity, s.timestamp AS timestamp " +
+            "FROM Symptom s WHERE s.user.id = :userId AND s.timestamp >= :since ORDER BY s.timestamp ASC, s.id ASC")
+    List<RecentSymptom> findRecentSymptoms(@Param("userId") Long userId, @Param("since") LocalDateTime since);
 
+    interface RecentSymptom {
+        Long getId();
+        String getSymptomType();
+        Integer getSeverity();
+        LocalDateTime getTimestamp();
+    }
 }
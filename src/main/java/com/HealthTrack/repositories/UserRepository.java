@@ -1,12 +1,40 @@
 package com.HealthTrack.repositories;
 
 import com.HealthTrack.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository <User, Long> {
     Optional<User> findByUsername(String username);
+
+    /**
+     * A page of users ordered by id, reading only the profile columns
+     */
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.phoneNumber AS phoneNumber " +
+            "FROM User u ORDER BY u.id ASC")
+    List<UserSummary> findUserSummaries(Pageable pageable);
+
+    /**
+     * Which of the given ids belong to a user
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Profile of a user, without the password hash or related records
+     */
+    interface UserSummary {
+        Long getId();
+        String getUsername();
+        String getEmail();
+        String getPhoneNumber();
+    }
 }
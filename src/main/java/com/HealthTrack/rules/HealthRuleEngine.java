@@ -0,0 +1,200 @@
+package com.HealthTrack.rules;
+
+import com.HealthTrack.models.MetricType;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Health-metric thresholds, symptom classification rules and symptom combinations, loaded from a JSON file.
+ *
+ * The file is compiled once into immutable lookup tables (thresholds in an array indexed by MetricType),
+ * so evaluating a metric or symptom allocates nothing. The file is checked for changes periodically and
+ * swapped in without a restart; a file that fails to load or validate leaves the current rules in place.
+ */
+@Component
+@Slf4j
+public class HealthRuleEngine {
+
+    public static final String DEFAULT_LOCATION = "classpath:health-rules.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    private final Resource resource;
+    private volatile CompiledRules rules;
+    private volatile long lastModified;
+
+    public HealthRuleEngine(ResourceLoader resourceLoader,
+                            @Value("${healthtrack.rules.location:" + DEFAULT_LOCATION + "}") String location) {
+        this.resource = resourceLoader.getResource(location);
+        // Refuse to start without rules rather than silently skipping every alert
+        this.lastModified = lastModified();
+        this.rules = load();
+    }
+
+    /**
+     * Reload the rules if the file changed since it was last loaded
+     */
+    @Scheduled(fixedDelayString = "${healthtrack.rules.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        long modified = lastModified();
+        if (modified == lastModified) {
+            return;
+        }
+        try {
+            rules = load();
+            log.atInfo().setMessage("Reloaded health rules").addKeyValue("resource", resource.getDescription()).log();
+        } catch (RuntimeException e) {
+            log.atWarn().setMessage("Keeping current health rules, failed to reload")
+                    .addKeyValue("resource", resource.getDescription())
+                    .setCause(e).log();
+        }
+        // Either way, wait for the next change before trying again
+        lastModified = modified;
+    }
+
+    /**
+     * The value above which a metric of this type is abnormal, or NaN if there is no rule for it
+     */
+    public double metricThreshold(String metricType) {
+        MetricType type = MetricType.fromDisplayName(metricType);
+        return type == null ? Double.NaN : rules.thresholds[type.ordinal()];
+    }
+
+    public boolean isCriticalSymptom(String symptomType) {
+        return symptomType != null && rules.criticalSymptoms.contains(symptomType);
+    }
+
+    /**
+     * Sets of symptom types that are worth flagging when all of them are logged within a day
+     */
+    public List<Set<String>> symptomCombinations() {
+        return rules.symptomCombinations;
+    }
+
+    /**
+     * Lowest severity (out of 10) considered high
+     */
+    public int highSeverity() {
+        return rules.highSeverity;
+    }
+
+    /**
+     * Lowest severity (out of 10) considered moderate
+     */
+    public int moderateSeverity() {
+        return rules.moderateSeverity;
+    }
+
+    /**
+     * The wellness tip for a symptom type, or the general tip for unlisted symptoms
+     */
+    public String wellnessTip(String symptomType) {
+        CompiledRules current = rules;
+        String tip = symptomType == null ? null : current.wellnessTips.get(symptomType);
+        return tip != null ? tip : current.defaultWellnessTip;
+    }
+
+    private CompiledRules load() {
+        RuleFile file;
+        try (InputStream in = resource.getInputStream()) {
+            file = OBJECT_MAPPER.readValue(in, RuleFile.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read health rules from " + resource.getDescription(), e);
+        }
+        return compile(file);
+    }
+
+    private static CompiledRules compile(RuleFile file) {
+        if (file.metricThresholds() == null || file.criticalSymptoms() == null || file.wellnessTips() == null
+                || file.defaultWellnessTip() == null) {
+            throw new RuntimeException("Health rules must define metricThresholds, criticalSymptoms, wellnessTips and defaultWellnessTip");
+        }
+        if (file.moderateSeverity() < 1 || file.highSeverity() < file.moderateSeverity() || file.highSeverity() > 10) {
+            throw new RuntimeException("Health rules need 1 <= moderateSeverity <= highSeverity <= 10");
+        }
+
+        double[] thresholds = new double[MetricType.values().length];
+        Arrays.fill(thresholds, Double.NaN);
+        file.metricThresholds().forEach((name, threshold) -> {
+            MetricType type;
+            try {
+                type = MetricType.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown metric type in health rules: " + name);
+            }
+            if (threshold == null) {
+                throw new RuntimeException("Missing threshold for metric type " + name);
+            }
+            thresholds[type.ordinal()] = threshold;
+        });
+
+        // Combinations are optional
+        List<Set<String>> combinations = new ArrayList<>();
+        if (file.symptomCombinations() != null) {
+            for (List<String> combination : file.symptomCombinations()) {
+                if (combination == null || Set.copyOf(combination).size() < 2) {
+                    throw new RuntimeException("Each symptom combination needs at least two different symptom types");
+                }
+                combinations.add(Set.copyOf(combination));
+            }
+        }
+
+        return new CompiledRules(thresholds, Set.copyOf(file.criticalSymptoms()), Map.copyOf(file.wellnessTips()),
+                file.defaultWellnessTip(), file.highSeverity(), file.moderateSeverity(), List.copyOf(combinations));
+    }
+
+    private long lastModified() {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Not a file we can watch (e.g. packed in a jar); the rules loaded at startup stay in use
+            return 0L;
+        }
+    }
+
+    private record RuleFile(Map<String, Double> metricThresholds,
+                            List<String> criticalSymptoms,
+                            int highSeverity,
+                            int moderateSeverity,
+                            Map<String, String> wellnessTips,
+                            String defaultWellnessTip,
+                            List<List<String>> symptomCombinations) {
+    }
+
+    private static final class CompiledRules {
+        private final double[] thresholds;
+        private final Set<String> criticalSymptoms;
+        private final Map<String, String> wellnessTips;
+        private final String defaultWellnessTip;
+        private final int highSeverity;
+        private final int moderateSeverity;
+        private final List<Set<String>> symptomCombinations;
+
+        private CompiledRules(double[] thresholds, Set<String> criticalSymptoms, Map<String, String> wellnessTips,
+                              String defaultWellnessTip, int highSeverity, int moderateSeverity,
+                              List<Set<String>> symptomCombinations) {
+            this.thresholds = thresholds;
+            this.criticalSymptoms = criticalSymptoms;
+            this.wellnessTips = wellnessTips;
+            this.defaultWellnessTip = defaultWellnessTip;
+            this.highSeverity = highSeverity;
+            this.moderateSeverity = moderateSeverity;
+            this.symptomCombinations = symptomCombinations;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.HealthTrack.rules;
+
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.repositories.SymptomRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Finds patterns in the symptoms a user logs, from a sliding window of their past week of symptoms kept in memory.
+ *
+ * Each window keeps running counts per symptom type, over the past week and over the past 24 hours, which are
+ * updated as symptoms are recorded and as old ones slide out; checking a new symptom reads nothing from the
+ * database. A user without a window (first symptom since startup, evicted or expired) gets one rebuilt from a
+ * single query bounded to the past week. Windows expire a few minutes after they were built, which bounds how
+ * stale they get when symptoms are edited, or logged through another node.
+ */
+@Component
+public class SymptomPatternDetector {
+
+    private static final Duration WEEK = Duration.ofDays(7);
+    private static final Duration DAY = Duration.ofHours(24);
+    private static final Duration WINDOW_TTL = Duration.ofMinutes(10);
+    // Severity trends look at this many of the latest symptoms of one type
+    private static final int TREND_LENGTH = 3;
+
+    private final SymptomRepository symptomRepository;
+    private final HealthRuleEngine healthRuleEngine;
+    private final int maxSymptomsPerUser;
+    private final Cache<Long, SymptomWindow> windows;
+
+    public SymptomPatternDetector(SymptomRepository symptomRepository,
+                                  HealthRuleEngine healthRuleEngine,
+                                  @Value("${healthtrack.symptoms.patterns.max-users:10000}") long maxUsers,
+                                  @Value("${healthtrack.symptoms.patterns.max-symptoms-per-user:1000}") int maxSymptomsPerUser) {
+        this.symptomRepository = symptomRepository;
+        this.healthRuleEngine = healthRuleEngine;
+        this.maxSymptomsPerUser = maxSymptomsPerUser;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(WINDOW_TTL)
+                .build();
+    }
+
+    /**
+     * What a user's recent symptoms show once this symptom is taken into account
+     *
+     * @param sameTypeThisWeek symptoms of this symptom's type logged in the past week, including it
+     * @param typesToday       symptom types logged in the past 24 hours
+     * @param severityTrend    severities of the latest symptoms of this type, oldest first, when each was worse
+     *                         than the one before and this symptom is the latest; otherwise empty
+     * @param combinationsToday symptom combinations from the rules completed by this symptom in the past 24 hours
+     */
+    public record SymptomPatterns(int sameTypeThisWeek,
+                                  Set<String> typesToday,
+                                  List<Integer> severityTrend,
+                                  List<Set<String>> combinationsToday) {
+    }
+
+    /**
+     * Add a logged symptom to its user's window and return the patterns it completes.
+     * Recording the same symptom again does not count it twice.
+     */
+    public SymptomPatterns record(Symptom symptom, LocalDateTime now) {
+        Long userId = symptom.getUser().getId();
+        SymptomWindow window = windows.get(userId, id -> load(id, now));
+        SymptomEvent event = new SymptomEvent(symptom.getId(), symptom.getSymptomType(), symptom.getSeverity(),
+                symptom.getTimestamp());
+
+        synchronized (window) {
+            window.slide(now);
+            window.add(event);
+            return window.patterns(event, healthRuleEngine.symptomCombinations());
+        }
+    }
+
+    /**
+     * Drop a user's window, so it is rebuilt from the database the next time they log a symptom.
+     * Called when one of their symptoms is edited or deleted.
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            windows.invalidate(userId);
+        }
+    }
+
+    private SymptomWindow load(Long userId, LocalDateTime now) {
+        SymptomWindow window = new SymptomWindow(maxSymptomsPerUser);
+        window.slide(now);
+        symptomRepository.findRecentSymptoms(userId, now.minus(WEEK)).forEach(symptom ->
+                window.add(new SymptomEvent(symptom.getId(), symptom.getSymptomType(), symptom.getSeverity(),
+                        symptom.getTimestamp())));
+        return window;
+    }
+
+    private record SymptomEvent(Long id, String symptomType, int severity, LocalDateTime timestamp) {
+    }
+
+    /**
+     * Orders events by time; the id tells apart symptoms logged at the same time
+     */
+    private record EventKey(LocalDateTime timestamp, long id) implements Comparable<EventKey> {
+
+        static EventKey of(SymptomEvent event) {
+            return new EventKey(event.timestamp(), event.id() != null ? event.id() : Long.MAX_VALUE);
+        }
+
+        /**
+         * Sorts before every event at or after the given time
+         */
+        static EventKey from(LocalDateTime timestamp) {
+            return new EventKey(timestamp, Long.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(EventKey other) {
+            int byTime = timestamp.compareTo(other.timestamp);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * One user's symptoms since weekStart, with counts per type over the week and since dayStart.
+     * Both boundaries only move forward, so each symptom is counted in and out of each window once.
+     */
+    private static final class SymptomWindow {
+        private final int maxSymptoms;
+        private final TreeMap<EventKey, SymptomEvent> events = new TreeMap<>();
+        private final Map<String, Integer> weekCounts = new HashMap<>();
+        private final Map<String, Integer> dayCounts = new HashMap<>();
+        private LocalDateTime weekStart = LocalDateTime.MIN;
+        private LocalDateTime dayStart = LocalDateTime.MIN;
+
+        private SymptomWindow(int maxSymptoms) {
+            this.maxSymptoms = maxSymptoms;
+        }
+
+        void slide(LocalDateTime now) {
+            LocalDateTime newDayStart = now.minus(DAY);
+            if (newDayStart.isAfter(dayStart)) {
+                events.subMap(EventKey.from(dayStart), EventKey.from(newDayStart)).values()
+                        .forEach(event -> decrement(dayCounts, event.symptomType()));
+                dayStart = newDayStart;
+            }
+
+            LocalDateTime newWeekStart = now.minus(WEEK);
+            if (newWeekStart.isAfter(weekStart)) {
+                // Already out of the day window, which starts later
+                SortedMap<EventKey, SymptomEvent> expired = events.headMap(EventKey.from(newWeekStart));
+                expired.values().forEach(event -> decrement(weekCounts, event.symptomType()));
+                expired.clear();
+                weekStart = newWeekStart;
+            }
+        }
+
+        void add(SymptomEvent event) {
+            if (event.timestamp().isBefore(weekStart) || events.putIfAbsent(EventKey.of(event), event) != null) {
+                return;
+            }
+            weekCounts.merge(event.symptomType(), 1, Integer::sum);
+            if (!event.timestamp().isBefore(dayStart)) {
+                dayCounts.merge(event.symptomType(), 1, Integer::sum);
+            }
+
+            if (events.size() > maxSymptoms) {
+                SymptomEvent oldest = events.pollFirstEntry().getValue();
+                decrement(weekCounts, oldest.symptomType());
+                if (!oldest.timestamp().isBefore(dayStart)) {
+                    decrement(dayCounts, oldest.symptomType());
+                }
+            }
+        }
+
+        SymptomPatterns patterns(SymptomEvent event, List<Set<String>> combinations) {
+            Set<String> typesToday = Set.copyOf(dayCounts.keySet());
+
+            List<Set<String>> combinationsToday = new ArrayList<>();
+            // Only the symptom completing a combination reports it, not every symptom logged after
+            if (!event.timestamp().isBefore(dayStart)) {
+                for (Set<String> combination : combinations) {
+                    if (combination.contains(event.symptomType()) && typesToday.containsAll(combination)) {
+                        combinationsToday.add(combination);
+                    }
+                }
+            }
+
+            return new SymptomPatterns(weekCounts.getOrDefault(event.symptomType(), 0), typesToday,
+                    severityTrend(event), combinationsToday);
+        }
+
+        private List<Integer> severityTrend(SymptomEvent event) {
+            LinkedList<Integer> severities = new LinkedList<>();
+            boolean latest = true;
+            for (SymptomEvent previous : events.descendingMap().values()) {
+                if (!previous.symptomType().equals(event.symptomType())) {
+                    continue;
+                }
+                if (latest && !EventKey.of(previous).equals(EventKey.of(event))) {
+                    // A later symptom of this type was logged first; its own check covered the trend
+                    return List.of();
+                }
+                latest = false;
+                if (!severities.isEmpty() && previous.severity() >= severities.getFirst()) {
+                    return List.of();
+                }
+                severities.addFirst(previous.severity());
+                if (severities.size() == TREND_LENGTH) {
+                    return List.copyOf(severities);
+                }
+            }
+            return List.of();
+        }
+
+        private static void decrement(Map<String, Integer> counts, String symptomType) {
+            counts.computeIfPresent(symptomType, (type, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
+import com.HealthTrack.models.OutboxStatus;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drains the notification outbox in the background.
+ *
+ * Each event is handled in its own transaction that also deletes the event, so its notifications are saved
+ * exactly once. If a handler throws, the transaction rolls back and the event is retried with exponential
+ * backoff until it reaches the attempt limit, after which it stays in the table as FAILED.
+ * Only the node holding the outbox lease dispatches.
+ */
+@Component
+@Slf4j
+public class NotificationOutboxDispatcher {
+
+    private static final String OUTBOX_LEASE = "notification-outbox";
+    private static final Duration OUTBOX_LEASE_DURATION = Duration.ofMinutes(1);
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_BATCHES_PER_RUN = 10;
+    // Virtual threads are cheap, but each in-flight event holds a pooled connection; keep most of the pool for requests
+    private static final int MAX_IN_FLIGHT = 4;
+    static final int MAX_ATTEMPTS = 8;
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(5);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final SchedulerLease schedulerLease;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<OutboxEventType, OutboxEventHandler> handlers = new EnumMap<>(OutboxEventType.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public NotificationOutboxDispatcher(NotificationOutboxRepository outboxRepository,
+                                        SchedulerLease schedulerLease,
+                                        TransactionTemplate transactionTemplate,
+                                        List<OutboxEventHandler> handlers) {
+        this.outboxRepository = outboxRepository;
+        this.schedulerLease = schedulerLease;
+        this.transactionTemplate = transactionTemplate;
+        handlers.forEach(handler -> this.handlers.put(handler.getEventType(), handler));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Dispatch due events a batch at a time until none are left, or the run has done its share of batches
+     */
+    @Scheduled(fixedDelayString = "${healthtrack.outbox.poll-ms:1000}")
+    @Timed("healthtrack.outbox.dispatch")
+    public void dispatchPendingEvents() {
+        if (!schedulerLease.tryAcquire(OUTBOX_LEASE, OUTBOX_LEASE_DURATION)) {
+            return;
+        }
+
+        List<NotificationOutbox> batch;
+        int batches = 0;
+        do {
+            batch = outboxRepository.findDue(OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, BATCH_SIZE));
+            dispatchBatch(batch);
+        } while (batch.size() == BATCH_SIZE && ++batches < MAX_BATCHES_PER_RUN);
+    }
+
+    /**
+     * Handle a batch with at most MAX_IN_FLIGHT events running at once, and wait for all of them to finish
+     */
+    void dispatchBatch(List<NotificationOutbox> batch) {
+        for (int start = 0; start < batch.size(); start += MAX_IN_FLIGHT) {
+            List<Future<?>> inFlight = new ArrayList<>(MAX_IN_FLIGHT);
+            for (NotificationOutbox event : batch.subList(start, Math.min(start + MAX_IN_FLIGHT, batch.size()))) {
+                inFlight.add(executor.submit(() -> dispatch(event)));
+            }
+            for (Future<?> future : inFlight) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    log.atWarn().setMessage("Error waiting for outbox event").setCause(e).log();
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the event and run its handler in one transaction; on failure, schedule a retry instead.
+     * Deleting first claims the row: a second dispatcher racing on the same event blocks on the row lock and
+     * then finds nothing to delete, so the handler never runs twice for one event.
+     */
+    void dispatch(NotificationOutbox event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (outboxRepository.deleteEvent(event.getId()) == 0) {
+                    return;
+                }
+                OutboxEventHandler handler = handlers.get(event.getEventType());
+                if (handler == null) {
+                    throw new RuntimeException("No handler for outbox event type " + event.getEventType());
+                }
+                handler.handle(event);
+            });
+        } catch (Exception e) {
+            recordFailure(event, e);
+        }
+    }
+
+    private void recordFailure(NotificationOutbox event, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(error.getClass().getSimpleName() + ": " + error.getMessage()));
+
+        if (attempts >= MAX_ATTEMPTS) {
+            event.setStatus(OutboxStatus.FAILED);
+            log.atError().setMessage("Outbox event failed, giving up")
+                    .addKeyValue("eventId", event.getId())
+                    .addKeyValue("eventType", event.getEventType())
+                    .addKeyValue("attempts", attempts)
+                    .setCause(error).log();
+        } else {
+            event.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            log.atWarn().setMessage("Outbox event failed, retry scheduled")
+                    .addKeyValue("eventId", event.getId())
+                    .addKeyValue("eventType", event.getEventType())
+                    .addKeyValue("attempts", attempts)
+                    .addKeyValue("nextAttemptAt", event.getNextAttemptAt())
+                    .addKeyValue("error", error.getMessage())
+                    .log();
+        }
+
+        try {
+            outboxRepository.save(event);
+        } catch (Exception e) {
+            // The event is still PENDING in the database, so it is picked up again on the next run
+            log.atWarn().setMessage("Error recording outbox failure")
+                    .addKeyValue("eventId", event.getId())
+                    .setCause(e).log();
+        }
+    }
+
+    /**
+     * 5s, 10s, 20s, ... doubling per attempt, capped at 30 minutes
+     */
+    static Duration backoff(int attempts) {
+        Duration delay = BASE_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,86 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.repositories.NotificationRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Purges read notifications older than the retention period.
+ *
+ * Rows are deleted a chunk at a time, oldest first, each chunk in its own short transaction, so the purge
+ * never holds locks on a large part of the table. Unread notifications are kept however old they are.
+ * Only the node holding the retention lease purges.
+ */
+@Component
+@Slf4j
+public class NotificationRetentionJob {
+
+    private static final String RETENTION_LEASE = "notification-retention";
+    private static final Duration RETENTION_LEASE_DURATION = Duration.ofHours(1);
+
+    private final NotificationRepository notificationRepository;
+    private final SchedulerLease schedulerLease;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int chunkSize;
+
+    public NotificationRetentionJob(NotificationRepository notificationRepository,
+                                    SchedulerLease schedulerLease,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${healthtrack.notifications.retention-days:90}") int retentionDays,
+                                    @Value("${healthtrack.notifications.retention-chunk-size:500}") int chunkSize) {
+        this.notificationRepository = notificationRepository;
+        this.schedulerLease = schedulerLease;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = Duration.ofDays(retentionDays);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Delete read notifications older than the retention period, a chunk at a time.
+     * Returns how many were deleted.
+     */
+    @Scheduled(cron = "${healthtrack.notifications.retention-cron:0 0 4 * * *}")
+    @Timed("healthtrack.notifications.retention")
+    public long purgeReadNotifications() {
+        if (!schedulerLease.tryAcquire(RETENTION_LEASE, RETENTION_LEASE_DURATION)) {
+            return 0;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long purged = 0;
+        int deleted;
+        try {
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = notificationRepository.findReadNotificationIdsBefore(cutoff, PageRequest.of(0, chunkSize));
+                    return ids.isEmpty() ? 0 : notificationRepository.deleteByIdIn(ids);
+                });
+                purged += deleted;
+            } while (deleted == chunkSize);
+        } catch (RuntimeException e) {
+            // The next run picks up where this one stopped
+            log.atError().setMessage("Error purging read notifications")
+                    .addKeyValue("cutoff", cutoff)
+                    .addKeyValue("purged", purged)
+                    .setCause(e).log();
+        }
+
+        if (purged > 0) {
+            log.atInfo().setMessage("Purged read notifications")
+                    .addKeyValue("cutoff", cutoff)
+                    .addKeyValue("purged", purged)
+                    .log();
+        }
+        return purged;
+    }
+}
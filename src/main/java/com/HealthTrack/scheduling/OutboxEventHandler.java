@@ -0,0 +1,15 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
+
+/**
+ * Generates the notifications for one type of outbox event.
+ * Runs inside the dispatcher's transaction and must throw rather than swallow errors, so a failed event is retried.
+ */
+public interface OutboxEventHandler {
+
+    OutboxEventType getEventType();
+
+    void handle(NotificationOutbox event);
+}
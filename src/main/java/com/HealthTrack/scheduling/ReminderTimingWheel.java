@@ -0,0 +1,287 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.models.ReminderType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel holding the fire time of every pending appointment reminder.
+ *
+ * Timers live in one of three wheels (minutes of the hour, hours of the day, days of the year)
+ * or in an overflow list for anything further out. Crossing an hour or day boundary cascades the
+ * matching slot down one level, so advancing the wheel by a minute only touches the timers that
+ * are due in that minute instead of scanning every appointment.
+ *
+ * Until it is loaded, and again once invalidated, the wheel holds no timers and ignores changes:
+ * the rebuild that loads it reads every appointment anyway.
+ */
+@Component
+public class ReminderTimingWheel {
+
+    private static final int MINUTE_SLOTS = 60;
+    private static final int HOUR_SLOTS = 24;
+    private static final int DAY_SLOTS = 366;
+
+    private static final long MINUTES_PER_HOUR = 60;
+    private static final long MINUTES_PER_DAY = MINUTES_PER_HOUR * HOUR_SLOTS;
+    private static final long DAY_WHEEL_SPAN = MINUTES_PER_DAY * DAY_SLOTS;
+
+    private final List<List<Timer>> minuteWheel = newWheel(MINUTE_SLOTS);
+    private final List<List<Timer>> hourWheel = newWheel(HOUR_SLOTS);
+    private final List<List<Timer>> dayWheel = newWheel(DAY_SLOTS);
+    private final List<Timer> overflow = new ArrayList<>();
+    private final List<Timer> expired = new ArrayList<>();
+    private final Map<Long, List<Timer>> timersByAppointment = new HashMap<>();
+
+    // Last minute that has been drained; timers at or before it are never scheduled
+    private long currentMinute;
+    private boolean loaded;
+    private LocalDateTime syncedAt;
+
+    public ReminderTimingWheel() {
+        this(LocalDateTime.now());
+    }
+
+    public ReminderTimingWheel(LocalDateTime now) {
+        this.currentMinute = toMinute(now);
+    }
+
+    /**
+     * Whether the wheel has been populated from the database since startup
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Mark the wheel as out of date so it is rebuilt from the database before it is used again,
+     * and drop its timers until then
+     */
+    public synchronized void invalidate() {
+        clear();
+        loaded = false;
+    }
+
+    /**
+     * When the wheel was last reconciled with the database
+     */
+    public synchronized LocalDateTime getSyncedAt() {
+        return syncedAt;
+    }
+
+    public synchronized void markSynced(LocalDateTime now) {
+        syncedAt = now;
+    }
+
+    /**
+     * Drop every timer and restart the wheel at the given time, ready to be repopulated
+     */
+    public synchronized void reset(LocalDateTime now) {
+        clear();
+        currentMinute = toMinute(now);
+        loaded = true;
+        syncedAt = now;
+    }
+
+    /**
+     * Schedule all reminders for an appointment, replacing any reminders it already had.
+     * Reminders whose fire time has already passed are not scheduled.
+     */
+    public synchronized void schedule(Long appointmentId, LocalDateTime appointmentDate) {
+        schedule(appointmentId, appointmentDate, null);
+    }
+
+    /**
+     * Schedule all reminders for an appointment, replacing any reminders it already had.
+     * Reminders that fell due at or after catchUpFrom are fired on the next advance instead of being dropped,
+     * which lets a resync pick up appointments written by another node since the last sync.
+     */
+    public synchronized void schedule(Long appointmentId, LocalDateTime appointmentDate, LocalDateTime catchUpFrom) {
+        if (!loaded) {
+            return;
+        }
+        cancel(appointmentId);
+
+        List<Timer> timers = new ArrayList<>(ReminderType.values().length);
+        for (ReminderType type : ReminderType.values()) {
+            LocalDateTime fireTime = type.fireTimeFor(appointmentDate);
+            if (fireTime == null) {
+                continue;
+            }
+            if (toMinute(fireTime) <= currentMinute && (catchUpFrom == null || fireTime.isBefore(catchUpFrom))) {
+                continue;
+            }
+
+            Timer timer = new Timer(appointmentId, type, appointmentDate, toMinute(fireTime));
+            place(timer);
+            timers.add(timer);
+        }
+
+        if (!timers.isEmpty()) {
+            timersByAppointment.put(appointmentId, timers);
+        }
+    }
+
+    /**
+     * Put reminders back on the wheel, e.g. after a send failed. Any that are already due fire on the next advance.
+     */
+    public synchronized void reschedule(List<DueReminder> reminders) {
+        if (!loaded) {
+            return;
+        }
+        for (DueReminder reminder : reminders) {
+            LocalDateTime fireTime = reminder.getType().fireTimeFor(reminder.getAppointmentDate());
+            Timer timer = new Timer(reminder.getAppointmentId(), reminder.getType(),
+                    reminder.getAppointmentDate(), toMinute(fireTime));
+            place(timer);
+            timersByAppointment.computeIfAbsent(reminder.getAppointmentId(), id -> new ArrayList<>()).add(timer);
+        }
+    }
+
+    /**
+     * Remove all pending reminders for an appointment
+     */
+    public synchronized void cancel(Long appointmentId) {
+        if (!loaded) {
+            return;
+        }
+        List<Timer> timers = timersByAppointment.remove(appointmentId);
+        if (timers != null) {
+            timers.forEach(timer -> timer.cancelled = true);
+        }
+    }
+
+    /**
+     * Advance the wheel up to the given time and return every reminder that became due on the way
+     */
+    public synchronized List<DueReminder> advanceTo(LocalDateTime now) {
+        long targetMinute = toMinute(now);
+        List<DueReminder> due = new ArrayList<>();
+
+        while (currentMinute < targetMinute) {
+            currentMinute++;
+
+            if (currentMinute % MINUTES_PER_DAY == 0) {
+                cascade(dayWheel.get((int) ((currentMinute / MINUTES_PER_DAY) % DAY_SLOTS)));
+                cascade(overflow);
+            }
+            if (currentMinute % MINUTES_PER_HOUR == 0) {
+                cascade(hourWheel.get((int) ((currentMinute / MINUTES_PER_HOUR) % HOUR_SLOTS)));
+            }
+
+            collect(minuteWheel.get((int) (currentMinute % MINUTE_SLOTS)), due);
+        }
+        collect(expired, due);
+
+        return due;
+    }
+
+    /**
+     * Number of pending reminders across all appointments
+     */
+    public synchronized int size() {
+        return timersByAppointment.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void clear() {
+        minuteWheel.forEach(List::clear);
+        hourWheel.forEach(List::clear);
+        dayWheel.forEach(List::clear);
+        overflow.clear();
+        expired.clear();
+        timersByAppointment.clear();
+    }
+
+    private void place(Timer timer) {
+        long delay = timer.fireMinute - currentMinute;
+
+        if (delay <= 0) {
+            expired.add(timer);
+        } else if (delay < MINUTE_SLOTS) {
+            minuteWheel.get((int) (timer.fireMinute % MINUTE_SLOTS)).add(timer);
+        } else if (delay < MINUTES_PER_DAY) {
+            hourWheel.get((int) ((timer.fireMinute / MINUTES_PER_HOUR) % HOUR_SLOTS)).add(timer);
+        } else if (delay < DAY_WHEEL_SPAN) {
+            dayWheel.get((int) ((timer.fireMinute / MINUTES_PER_DAY) % DAY_SLOTS)).add(timer);
+        } else {
+            overflow.add(timer);
+        }
+    }
+
+    private void cascade(List<Timer> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer> timers = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer timer : timers) {
+            if (!timer.cancelled) {
+                place(timer);
+            }
+        }
+    }
+
+    private void collect(List<Timer> slot, List<DueReminder> due) {
+        for (Timer timer : slot) {
+            if (timer.cancelled) {
+                continue;
+            }
+            due.add(new DueReminder(timer.appointmentId, timer.type, timer.appointmentDate));
+
+            List<Timer> remaining = timersByAppointment.get(timer.appointmentId);
+            if (remaining != null) {
+                remaining.remove(timer);
+                if (remaining.isEmpty()) {
+                    timersByAppointment.remove(timer.appointmentId);
+                }
+            }
+        }
+        slot.clear();
+    }
+
+    private static long toMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static List<List<Timer>> newWheel(int slots) {
+        List<List<Timer>> wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        return wheel;
+    }
+
+    private static final class Timer {
+        private final Long appointmentId;
+        private final ReminderType type;
+        private final LocalDateTime appointmentDate;
+        private final long fireMinute;
+        private boolean cancelled;
+
+        private Timer(Long appointmentId, ReminderType type, LocalDateTime appointmentDate, long fireMinute) {
+            this.appointmentId = appointmentId;
+            this.type = type;
+            this.appointmentDate = appointmentDate;
+            this.fireMinute = fireMinute;
+        }
+    }
+
+    /**
+     * A reminder whose fire time has been reached
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DueReminder {
+        private final Long appointmentId;
+        private final ReminderType type;
+        private final LocalDateTime appointmentDate;
+    }
+}
@@ -0,0 +1,62 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.repositories.SchedulerLockRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lease-based leader election through the scheduler_locks table.
+ * When several instances run the same scheduled job, only the one holding the lease should do the work;
+ * the holder renews it on every run and another node takes over once it lapses.
+ */
+@Component
+public class SchedulerLease {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final String nodeId;
+
+    public SchedulerLease(SchedulerLockRepository schedulerLockRepository) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.nodeId = resolveHostName() + ":" + UUID.randomUUID();
+    }
+
+    /**
+     * Try to take or renew the named lease for the given duration
+     * Returns true if this node holds the lease afterwards
+     */
+    public boolean tryAcquire(String name, Duration leaseDuration) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(leaseDuration);
+
+        if (schedulerLockRepository.tryAcquire(name, nodeId, lockedUntil, now) > 0) {
+            return true;
+        }
+        if (schedulerLockRepository.existsById(name)) {
+            return false;
+        }
+
+        // First run against this database: create the lease row, racing any other node doing the same
+        try {
+            return schedulerLockRepository.insertLock(name, nodeId, lockedUntil) > 0;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.HealthTrack.search;
+
+import com.HealthTrack.models.Appointment;
+import com.HealthTrack.repositories.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Embedded Lucene index over appointment reason, doctor and location, kept on local disk.
+ *
+ * The service write paths keep it current one document at a time, and it is rebuilt from the database
+ * whenever its document count no longer matches the appointments table (first start, or changes that were
+ * never committed because the process died). Searches are always scoped to a single user.
+ *
+ * Each node has its own index and only sees its own writes directly. A lease-free catch-up on every node
+ * indexes the appointments created since it last looked, and search hits are checked against the rows they
+ * were loaded from (see reconcile), which picks up updates and deletes made on other nodes.
+ */
+@Component
+@Slf4j
+public class AppointmentSearchIndex {
+
+    private static final String ID = "id";
+    private static final String USER_ID = "userId";
+    private static final String REASON = "reasonForVisit";
+    private static final String DOCTOR = "doctorName";
+    private static final String LOCATION = "location";
+    // Hash of the indexed values, to tell whether a document still matches its row
+    private static final String FINGERPRINT = "fingerprint";
+    // Commit data key holding the highest appointment id the catch-up has reached
+    private static final String INDEXED_UP_TO = "indexedUpTo";
+
+    // What the visit was for matters most, then who it was with, then where
+    private static final Map<String, Float> FIELD_BOOSTS = new LinkedHashMap<>();
+    static {
+        FIELD_BOOSTS.put(REASON, 2.0f);
+        FIELD_BOOSTS.put(DOCTOR, 1.5f);
+        FIELD_BOOSTS.put(LOCATION, 1.0f);
+    }
+
+    private static final float EXACT_BOOST = 3.0f;
+    private static final float PREFIX_BOOST = 2.0f;
+    private static final int FUZZY_MIN_LENGTH = 4;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Ids are handed out at insert, not commit, so the catch-up re-reads this many ids below where it stopped
+    private static final long CATCH_UP_OVERLAP = 1000;
+
+    private final AppointmentRepository appointmentRepository;
+    private final Path indexDir;
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile long indexedUpTo;
+
+    public AppointmentSearchIndex(AppointmentRepository appointmentRepository,
+                                  @Value("${healthtrack.search.index-dir:data/search-index}") String indexDir) {
+        this.appointmentRepository = appointmentRepository;
+        this.indexDir = Paths.get(indexDir);
+    }
+
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(indexDir);
+            directory = FSDirectory.open(indexDir);
+            writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            searcherManager = new SearcherManager(writer, null);
+            for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+                if (INDEXED_UP_TO.equals(entry.getKey())) {
+                    indexedUpTo = Long.parseLong(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open appointment search index at " + indexDir, e);
+        }
+
+        if (writer.getDocStats().numDocs != appointmentRepository.count()) {
+            log.atInfo().setMessage("Appointment search index is out of date, rebuilding from the database")
+                    .addKeyValue("indexDir", indexDir).log();
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            searcherManager.close();
+            // Commits pending changes on close
+            writer.close();
+            directory.close();
+        } catch (IOException e) {
+            log.atWarn().setMessage("Error closing appointment search index").setCause(e).log();
+        }
+    }
+
+    /**
+     * Add or replace the document for an appointment
+     */
+    public void index(Appointment appointment) {
+        if (appointment.getId() == null || appointment.getUser() == null) {
+            return;
+        }
+        try {
+            writer.updateDocument(idTerm(appointment.getId()), toDocument(appointment));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to index appointment " + appointment.getId(), e);
+        }
+    }
+
+    /**
+     * Remove an appointment from the index
+     */
+    public void remove(Long appointmentId) {
+        try {
+            writer.deleteDocuments(idTerm(appointmentId));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove appointment " + appointmentId + " from the search index", e);
+        }
+    }
+
+    /**
+     * Re-index every appointment from the database, walking the table by id in batches
+     */
+    public synchronized void rebuild() {
+        try {
+            writer.deleteAll();
+            Long lastId = 0L;
+            List<Appointment> batch;
+            do {
+                batch = appointmentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Appointment appointment : batch) {
+                    // updateDocument rather than add, so a write that lands during the rebuild is not duplicated
+                    writer.updateDocument(idTerm(appointment.getId()), toDocument(appointment));
+                    lastId = appointment.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            indexedUpTo = lastId;
+            commitWithCursor();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rebuild appointment search index", e);
+        }
+    }
+
+    /**
+     * Index the appointments created since the last catch-up, including those written on other nodes.
+     * Runs on every node; rows already indexed are replaced, so re-reading the overlap is harmless.
+     */
+    @Scheduled(fixedDelayString = "${healthtrack.search.catch-up-ms:60000}")
+    public synchronized void catchUp() {
+        try {
+            long lastId = Math.max(0, indexedUpTo - CATCH_UP_OVERLAP);
+            boolean changed = false;
+            List<Appointment> batch;
+            do {
+                batch = appointmentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Appointment appointment : batch) {
+                    writer.updateDocument(idTerm(appointment.getId()), toDocument(appointment));
+                    lastId = appointment.getId();
+                    changed = true;
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            if (changed) {
+                indexedUpTo = Math.max(indexedUpTo, lastId);
+                searcherManager.maybeRefresh();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.atWarn().setMessage("Error catching up appointment search index").setCause(e).log();
+        }
+    }
+
+    /**
+     * Check search hits against the appointments just loaded for them, keyed by id: hits whose row is gone are
+     * removed and hits whose row changed since it was indexed (on another node) are re-indexed.
+     * Returns whether any document changed, in which case the search should be run again.
+     */
+    public boolean reconcile(List<Long> hitIds, Map<Long, Appointment> current) {
+        boolean changed = false;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                StoredFields storedFields = searcher.storedFields();
+                for (Long id : hitIds) {
+                    Appointment appointment = current.get(id);
+                    if (appointment == null) {
+                        writer.deleteDocuments(idTerm(id));
+                        changed = true;
+                        continue;
+                    }
+                    TopDocs match = searcher.search(new TermQuery(idTerm(id)), 1);
+                    String fingerprint = match.scoreDocs.length == 0 ? null
+                            : storedFields.document(match.scoreDocs[0].doc).get(FINGERPRINT);
+                    if (!fingerprint(appointment).equals(fingerprint)) {
+                        writer.updateDocument(idTerm(id), toDocument(appointment));
+                        changed = true;
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+            if (changed) {
+                searcherManager.maybeRefresh();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reconcile appointment search hits", e);
+        }
+        return changed;
+    }
+
+    /**
+     * Make recent changes durable; searches see them as soon as they are written, this only guards against a crash
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                commitWithCursor();
+            }
+        } catch (IOException e) {
+            log.atWarn().setMessage("Error committing appointment search index").setCause(e).log();
+        }
+    }
+
+    /**
+     * Find a user's appointments matching the text, best match first.
+     * Every word must match some field, either exactly, as a prefix, or within one edit for longer words.
+     */
+    public List<Long> search(Long userId, String text, int limit) {
+        List<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(new TermQuery(new Term(USER_ID, userId.toString())), BooleanClause.Occur.FILTER);
+        for (String term : terms) {
+            query.add(termQuery(term), BooleanClause.Occur.MUST);
+        }
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query.build(), limit);
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    ids.add(Long.valueOf(storedFields.document(scoreDoc.doc).get(ID)));
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to search appointments", e);
+        }
+    }
+
+    // Store how far the catch-up got with the commit, so a restart carries on from there
+    private void commitWithCursor() throws IOException {
+        writer.setLiveCommitData(Map.of(INDEXED_UP_TO, Long.toString(indexedUpTo)).entrySet());
+        writer.commit();
+    }
+
+    private Query termQuery(String term) {
+        BooleanQuery.Builder fields = new BooleanQuery.Builder();
+        FIELD_BOOSTS.forEach((field, boost) -> {
+            fields.add(new BoostQuery(new TermQuery(new Term(field, term)), boost * EXACT_BOOST), BooleanClause.Occur.SHOULD);
+            fields.add(new BoostQuery(new PrefixQuery(new Term(field, term)), boost * PREFIX_BOOST), BooleanClause.Occur.SHOULD);
+            if (term.length() >= FUZZY_MIN_LENGTH) {
+                fields.add(new BoostQuery(new FuzzyQuery(new Term(field, term), 1), boost), BooleanClause.Occur.SHOULD);
+            }
+        });
+        return fields.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(REASON, text)) {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(termAttribute.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to analyze search text", e);
+        }
+        return terms;
+    }
+
+    private static Document toDocument(Appointment appointment) {
+        Document document = new Document();
+        document.add(new StringField(ID, appointment.getId().toString(), Field.Store.YES));
+        document.add(new StringField(USER_ID, appointment.getUser().getId().toString(), Field.Store.NO));
+        document.add(new StoredField(FINGERPRINT, fingerprint(appointment)));
+        addText(document, REASON, appointment.getReasonForVisit());
+        addText(document, DOCTOR, appointment.getDoctorName());
+        addText(document, LOCATION, appointment.getLocation());
+        return document;
+    }
+
+    private static String fingerprint(Appointment appointment) {
+        return Integer.toHexString(Objects.hash(appointment.getUser().getId(), appointment.getReasonForVisit(),
+                appointment.getDoctorName(), appointment.getLocation()));
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private static Term idTerm(Long appointmentId) {
+        return new Term(ID, appointmentId.toString());
+    }
+}
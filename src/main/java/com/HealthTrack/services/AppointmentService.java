@@ -1,13 +1,18 @@
 package com.HealthTrack.services;
 
 import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.AppointmentPageDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface AppointmentService {
     AppointmentDto createAppointment(AppointmentDto appointmentDto);
     AppointmentDto findAppointmentById(Long appointmentId);
     List<AppointmentDto> findAllAppointmentByUserId(Long userId);
+    AppointmentPageDto findAppointmentPage(Long userId, String when, LocalDateTime from, LocalDateTime to,
+                                           String after, Integer limit);
+    List<AppointmentDto> searchAppointments(Long userId, String query, Integer limit);
     AppointmentDto updateAppointment(Long appointmentId, AppointmentDto appointmentDto );
     void deleteAppointment(Long appointmentId);
 
@@ -0,0 +1,10 @@
+package com.HealthTrack.services;
+
+import com.HealthTrack.models.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportUserRecord(Long userId, ExportFormat format, OutputStream out) throws IOException;
+}
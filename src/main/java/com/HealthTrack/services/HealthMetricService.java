@@ -1,14 +1,21 @@
 package com.HealthTrack.services;
 
+import com.HealthTrack.dtos.HealthMetricBatchResultDto;
 import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.HealthMetricSeriesDto;
 import com.HealthTrack.models.HealthMetric;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
 public interface HealthMetricService {
     HealthMetricDto createHealthMetric(HealthMetricDto healthMetricDto);
+    HealthMetricBatchResultDto createHealthMetricBatch(Long userId, Iterator<HealthMetricDto> healthMetricDtos);
     HealthMetricDto findHealthMetricById(Long healthMetricId);
     List<HealthMetricDto> findAllHealthMetricsByUserId(Long userId);
+    HealthMetricSeriesDto findHealthMetricSeries(Long userId, String metricType, LocalDateTime from, LocalDateTime to,
+                                                 String bucket, List<String> aggregates);
     HealthMetricDto updateHealthMetric(Long healthMetricId, HealthMetricDto healthMetricDto);
     void deleteHealthMetric(Long healthMetricId);
 
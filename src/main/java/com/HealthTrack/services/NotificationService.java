@@ -1,16 +1,26 @@
 package com.HealthTrack.services;
 
 import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.NotificationPageDto;
 import com.HealthTrack.models.HealthMetric;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationService {
 
     void sendAbnormalHealthMetricNotification(HealthMetric healthMetric);
     List<NotificationDto> getUserNotifications(Long userId);
+    NotificationPageDto getUserInbox(Long userId, Boolean unread, String type, String metricType,
+                                     LocalDateTime since, String after, Integer limit);
+    long countUnreadNotifications(Long userId);
     void markNotificationAsRead(Long notificationId);
+    int markAllNotificationsAsRead(Long userId);
+    int markNotificationsAsRead(Long userId, Collection<Long> notificationIds);
     NotificationDto createNotification(NotificationDto notificationDto);
+    List<NotificationDto> createNotifications(Collection<NotificationDto> notificationDtos);
     NotificationDto updateNotification(Long notificationId, NotificationDto notificationDto);
     void deleteNotification(Long notificationId);
+    int deleteNotifications(Long userId, Boolean read, String type, String metricType, LocalDateTime before);
 }
@@ -3,11 +3,13 @@ package com.HealthTrack.services;
 import com.HealthTrack.dtos.UserDto;
 
 import java.util.List;
+import java.util.Set;
 
 public interface UserService {
     UserDto createUser(UserDto userDto);
     UserDto findUserById(Long userId);
-    List<UserDto> findAllUser();
+    UserDto findUserById(Long userId, Set<String> includes);
+    List<UserDto> findAllUser(Integer page, Integer size, Set<String> includes);
     UserDto updateUser(Long userId, UserDto userDto);
     void deleteUser(Long userId);
 
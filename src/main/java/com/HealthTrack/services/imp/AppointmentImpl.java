@@ -1,46 +1,99 @@
 package com.HealthTrack.services.imp;
 
+import com.HealthTrack.cache.UserReferenceCache;
 import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.AppointmentPageDto;
 import com.HealthTrack.dtos.NotificationDto;
 import com.HealthTrack.mapper.AppointmentMapper;
 import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
+import com.HealthTrack.models.ReminderLedgerEntry;
+import com.HealthTrack.models.ReminderType;
 import com.HealthTrack.models.User;
 import com.HealthTrack.repositories.AppointmentRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import com.HealthTrack.repositories.ReminderLedgerRepository;
+import com.HealthTrack.scheduling.ReminderTimingWheel;
+import com.HealthTrack.scheduling.OutboxEventHandler;
+import com.HealthTrack.scheduling.ReminderTimingWheel.DueReminder;
+import com.HealthTrack.scheduling.SchedulerLease;
+import com.HealthTrack.search.AppointmentSearchIndex;
 import com.HealthTrack.services.AppointmentService;
 import com.HealthTrack.services.NotificationService;
+import com.HealthTrack.templates.MessageTemplates;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
-public class AppointmentImpl implements AppointmentService {
+@Slf4j
+@Timed("healthtrack.service")
+public class AppointmentImpl implements AppointmentService, OutboxEventHandler {
+
+    private static final String REMINDER_LEASE = "appointment-reminders";
+    private static final Duration REMINDER_LEASE_DURATION = Duration.ofMinutes(3);
+    private static final Duration REMINDER_RESYNC_INTERVAL = Duration.ofMinutes(15);
+    // Far enough ahead to cover every reminder that can fall due before the next resync
+    private static final Duration REMINDER_RESYNC_HORIZON = Duration.ofHours(25);
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    // Bounds used when a page request leaves one end of the date range open; both fit a MySQL DATETIME
+    private static final LocalDateTime EARLIEST_APPOINTMENT_DATE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_APPOINTMENT_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
 
     private AppointmentRepository appointmentRepository;
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
     private NotificationService notificationService;
+    private ReminderTimingWheel reminderWheel;
+    private ReminderLedgerRepository reminderLedgerRepository;
+    private SchedulerLease schedulerLease;
+    private TransactionTemplate transactionTemplate;
+    private AppointmentSearchIndex searchIndex;
+    private NotificationOutboxRepository notificationOutboxRepository;
+    private MessageTemplates messageTemplates;
 
     @Override
+    @Transactional
     public AppointmentDto createAppointment(AppointmentDto appointmentDto) {
-        User user = userRepository.findById(appointmentDto.getUserId())
+        User user = userReferenceCache.findReference(appointmentDto.getUserId())
                 .orElseThrow(() -> new RuntimeException("User with ID " + appointmentDto.getUserId() + " not found"));
 
         Appointment appointment = AppointmentMapper.mapToAppointment(appointmentDto, user);
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        afterCommit(() -> {
+            reminderWheel.schedule(savedAppointment.getId(), savedAppointment.getAppointmentDate());
+            indexAppointment(savedAppointment);
+        });
 
-        // Send appointment-related notifications
-        sendAppointmentNotifications(savedAppointment);
+        // Appointment-related notifications are generated in the background, from an event committed with the appointment
+        notificationOutboxRepository.save(NotificationOutbox.pending(OutboxEventType.APPOINTMENT_CREATED, savedAppointment.getId()));
 
-        System.out.println("Appointment created successfully for user: " + user.getUsername() +
-                " with Dr. " + savedAppointment.getDoctorName() +
-                " on " + savedAppointment.getAppointmentDate());
+        log.atInfo().setMessage("Appointment created")
+                .addKeyValue("appointmentId", savedAppointment.getId())
+                .addKeyValue("userId", user.getId())
+                .addKeyValue("doctor", savedAppointment.getDoctorName())
+                .addKeyValue("appointmentDate", savedAppointment.getAppointmentDate())
+                .log();
 
         return AppointmentMapper.mapToAppointmentDto(savedAppointment);
     }
@@ -55,19 +108,63 @@ public class AppointmentImpl implements AppointmentService {
     @Override
     public List<AppointmentDto> findAllAppointmentByUserId(Long userId) {
         // Verify user exists
-        userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User with ID " + userId + " not found"));
+        if (!userReferenceCache.exists(userId)) {
+            throw new RuntimeException("User with ID " + userId + " not found");
+        }
 
-        List<Appointment> appointments = appointmentRepository.findByUserId(userId);
+        // Sorted by the database (upcoming first)
+        return appointmentRepository.findByUserIdOrderByAppointmentDateAscIdAsc(userId).stream()
+                .map(AppointmentMapper::mapToAppointmentDto)
+                .collect(Collectors.toList());
+    }
 
-        // Sort appointments by date (upcoming first)
-        return appointments.stream()
-                .sorted(Comparator.comparing(Appointment::getAppointmentDate))
+    @Override
+    public AppointmentPageDto findAppointmentPage(Long userId, String when, LocalDateTime from, LocalDateTime to,
+                                                  String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime start = from != null ? from : EARLIEST_APPOINTMENT_DATE;
+        LocalDateTime end = to != null ? to : LATEST_APPOINTMENT_DATE;
+        boolean descending = false;
+
+        if ("upcoming".equalsIgnoreCase(when)) {
+            start = max(start, LocalDateTime.now());
+        } else if ("past".equalsIgnoreCase(when)) {
+            // History reads most recent first
+            end = min(end, LocalDateTime.now());
+            descending = true;
+        } else if (when != null && !"all".equalsIgnoreCase(when)) {
+            throw new RuntimeException("Unknown appointment filter: " + when);
+        }
+
+        // Ids are positive, so an id of 0 makes the first page start exactly at the range boundary
+        LocalDateTime cursorDate = descending ? end : start;
+        Long cursorId = 0L;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = decodeCursor(after);
+            cursorDate = LocalDateTime.parse(cursor[0]);
+            cursorId = Long.valueOf(cursor[1]);
+        }
+
+        // Fetch one extra row to know whether another page follows
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<Appointment> appointments = descending
+                ? appointmentRepository.findAppointmentPageDescending(userId, start, cursorDate, cursorId, pageRequest)
+                : appointmentRepository.findAppointmentPageAscending(userId, end, cursorDate, cursorId, pageRequest);
+
+        String nextCursor = null;
+        if (appointments.size() > pageSize) {
+            appointments = appointments.subList(0, pageSize);
+            nextCursor = encodeCursor(appointments.get(pageSize - 1));
+        }
+
+        List<AppointmentDto> items = appointments.stream()
                 .map(AppointmentMapper::mapToAppointmentDto)
                 .collect(Collectors.toList());
+        return new AppointmentPageDto(items, nextCursor);
     }
 
     @Override
+    @Transactional
     public AppointmentDto updateAppointment(Long appointmentId, AppointmentDto appointmentDto) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment with ID " + appointmentId + " not found"));
@@ -84,16 +181,21 @@ public class AppointmentImpl implements AppointmentService {
         appointment.setReasonForVisit(appointmentDto.getReasonForVisit());
 
         Appointment updatedAppointment = appointmentRepository.save(appointment);
+        afterCommit(() -> {
+            reminderWheel.schedule(updatedAppointment.getId(), updatedAppointment.getAppointmentDate());
+            indexAppointment(updatedAppointment);
+        });
 
         // Send notifications for significant changes
         sendAppointmentUpdateNotifications(updatedAppointment, oldDate, oldDoctorName, oldLocation);
 
-        System.out.println("Appointment updated successfully: " + appointmentId);
+        log.atInfo().setMessage("Appointment updated").addKeyValue("appointmentId", appointmentId).log();
 
         return AppointmentMapper.mapToAppointmentDto(updatedAppointment);
     }
 
     @Override
+    @Transactional
     public void deleteAppointment(Long appointmentId) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment with ID " + appointmentId + " not found"));
@@ -102,99 +204,202 @@ public class AppointmentImpl implements AppointmentService {
         sendAppointmentCancellationNotification(appointment);
 
         appointmentRepository.deleteById(appointmentId);
+        afterCommit(() -> {
+            reminderWheel.cancel(appointmentId);
+            removeFromSearchIndex(appointmentId);
+        });
+
+        log.atInfo().setMessage("Appointment deleted")
+                .addKeyValue("appointmentId", appointmentId)
+                .addKeyValue("doctor", appointment.getDoctorName())
+                .addKeyValue("appointmentDate", appointment.getAppointmentDate())
+                .log();
+    }
+
+    @Override
+    public List<AppointmentDto> searchAppointments(Long userId, String query, Integer limit) {
+        int maxResults = limit == null ? DEFAULT_SEARCH_RESULTS : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Long> ids = searchIndex.search(userId, query, maxResults);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        System.out.println("Appointment deleted successfully: " + appointmentId +
-                " (Dr. " + appointment.getDoctorName() +
-                " on " + appointment.getAppointmentDate() + ")");
+        // Load the hits in one query and return them in relevance order; ids the database no longer has are dropped
+        Map<Long, Appointment> appointmentsById = loadSearchHits(ids);
+        // Another node may have changed or deleted hits since this node indexed them; if so, search again
+        if (reconcileSearchHits(ids, appointmentsById)) {
+            ids = searchIndex.search(userId, query, maxResults);
+            appointmentsById = loadSearchHits(ids);
+        }
+        return ids.stream()
+                .map(appointmentsById::get)
+                .filter(Objects::nonNull)
+                .map(AppointmentMapper::mapToAppointmentDto)
+                .collect(Collectors.toList());
     }
 
     /**
-     * Send various appointment-related notifications
+     * Apply an in-memory change for a write once the surrounding transaction commits, so a rollback leaves
+     * no reminders or search hits for rows that do not exist; applied straight away outside a transaction
      */
-    private void sendAppointmentNotifications(Appointment appointment) {
-        try {
-            // Appointment confirmation notification
-            sendAppointmentConfirmationNotification(appointment);
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
 
-            // Check for same-day appointments
-            checkForSameDayAppointments(appointment);
+    private Map<Long, Appointment> loadSearchHits(List<Long> ids) {
+        return appointmentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+    }
 
-            // Check for conflicting appointments
-            checkForConflictingAppointments(appointment);
+    private boolean reconcileSearchHits(List<Long> ids, Map<Long, Appointment> appointmentsById) {
+        try {
+            return searchIndex.reconcile(ids, appointmentsById);
+        } catch (Exception e) {
+            log.atWarn().setMessage("Error reconciling appointment search hits").setCause(e).log();
+            return false;
+        }
+    }
 
+        /**
+     * Keep the search index in step with a saved appointment; a failure here must not fail the write
+     */
+    private void indexAppointment(Appointment appointment) {
+        try {
+            searchIndex.index(appointment);
         } catch (Exception e) {
-            System.out.println("Error sending appointment notifications: " + e.getMessage());
+            log.atWarn().setMessage("Error indexing appointment").addKeyValue("appointmentId", appointment.getId())
+                    .setCause(e).log();
         }
     }
 
+    private void removeFromSearchIndex(Long appointmentId) {
+        try {
+            searchIndex.remove(appointmentId);
+        } catch (Exception e) {
+            log.atWarn().setMessage("Error removing appointment from search index").addKeyValue("appointmentId", appointmentId)
+                    .setCause(e).log();
+        }
+    }
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.APPOINTMENT_CREATED;
+    }
+
+    /**
+     * Generate the notifications for a newly created appointment, dispatched from the outbox
+     */
+    @Override
+    public void handle(NotificationOutbox event) {
+        // Nothing to announce if the appointment was deleted before the event was dispatched
+        appointmentRepository.findById(event.getAggregateId()).ifPresent(this::sendAppointmentNotifications);
+    }
+
+    /**
+     * Send various appointment-related notifications
+     * Errors propagate so the outbox retries the event
+     */
+    private void sendAppointmentNotifications(Appointment appointment) {
+        List<NotificationDto> notifications = new ArrayList<>();
+
+        // Appointment confirmation notification
+        sendAppointmentConfirmationNotification(appointment, notifications);
+
+        // One user-scoped query serves both the same-day and the conflict check
+        List<AppointmentRepository.AppointmentSlot> nearbyAppointments = findNearbyAppointments(appointment);
+
+        // Check for same-day appointments
+        checkForSameDayAppointments(appointment, nearbyAppointments, notifications);
+
+        // Check for conflicting appointments
+        checkForConflictingAppointments(appointment, nearbyAppointments, notifications);
+
+        notificationService.createNotifications(notifications);
+    }
+
     /**
      * Send appointment confirmation notification
      */
-    private void sendAppointmentConfirmationNotification(Appointment appointment) {
+    private void sendAppointmentConfirmationNotification(Appointment appointment, List<NotificationDto> notifications) {
         String message = buildAppointmentConfirmationMessage(appointment);
-        createAppointmentNotification(appointment.getUser(), message, "AppointmentConfirmation", "Appointment");
-        System.out.println("Appointment confirmation notification sent for: " + appointment.getDoctorName());
+        notifications.add(createAppointmentNotification(appointment.getUser(), message, "AppointmentConfirmation", "Appointment"));
+        logNotificationQueued("AppointmentConfirmation", appointment);
+    }
+
+    /**
+     * Load the user's other appointments that fall on the same day or within 2 hours of the new one
+     */
+    private List<AppointmentRepository.AppointmentSlot> findNearbyAppointments(Appointment newAppointment) {
+        LocalDateTime appointmentTime = newAppointment.getAppointmentDate();
+        LocalDateTime startOfDay = appointmentTime.toLocalDate().atStartOfDay();
+        LocalDateTime windowStart = min(startOfDay, appointmentTime.minusHours(2));
+        // The conflict window is inclusive of its end, so look one second past it
+        LocalDateTime windowEnd = max(startOfDay.plusDays(1), appointmentTime.plusHours(2).plusSeconds(1));
+
+        return appointmentRepository.findUserAppointmentSlots(
+                newAppointment.getUser().getId(), windowStart, windowEnd, newAppointment.getId());
     }
 
     /**
      * Check for same-day appointments and warn user
      */
-    private void checkForSameDayAppointments(Appointment newAppointment) {
+    private void checkForSameDayAppointments(Appointment newAppointment,
+                                             List<AppointmentRepository.AppointmentSlot> nearbyAppointments,
+                                             List<NotificationDto> notifications) {
         LocalDateTime startOfDay = newAppointment.getAppointmentDate().toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1).minusSeconds(1);
-
-        List<Appointment> sameDayAppointments = appointmentRepository.findAppointmentsWithinTimeframe(
-                startOfDay, endOfDay);
+        LocalDateTime nextDay = startOfDay.plusDays(1);
 
-        // Filter for same user and exclude the current appointment
-        long sameDayCount = sameDayAppointments.stream()
-                .filter(app -> app.getUser().getId().equals(newAppointment.getUser().getId()))
-                .filter(app -> !app.getId().equals(newAppointment.getId()))
+        long sameDayCount = nearbyAppointments.stream()
+                .filter(app -> !app.getAppointmentDate().isBefore(startOfDay) && app.getAppointmentDate().isBefore(nextDay))
                 .count();
 
         if (sameDayCount > 0) {
-            String message = String.format("📅 MULTIPLE APPOINTMENTS: You have %d other appointment(s) scheduled for %s. " +
-                            "Please review your schedule to avoid conflicts. Latest appointment: Dr. %s at %s.",
+            String message = messageTemplates.render("appointment.sameDay",
                     sameDayCount,
-                    newAppointment.getAppointmentDate().toLocalDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
+                    newAppointment.getAppointmentDate(),
                     newAppointment.getDoctorName(),
-                    formatAppointmentTime(newAppointment.getAppointmentDate()));
+                    newAppointment.getAppointmentDate());
 
-            createAppointmentNotification(newAppointment.getUser(), message, "MultipleDayAppointments", "Appointment");
-            System.out.println("Multiple same-day appointments notification sent for user: " + newAppointment.getUser().getId());
+            notifications.add(createAppointmentNotification(newAppointment.getUser(), message, "MultipleDayAppointments", "Appointment"));
+            logNotificationQueued("MultipleDayAppointments", newAppointment);
         }
     }
 
     /**
      * Check for conflicting appointments (within 2 hours)
      */
-    private void checkForConflictingAppointments(Appointment newAppointment) {
+    private void checkForConflictingAppointments(Appointment newAppointment,
+                                                 List<AppointmentRepository.AppointmentSlot> nearbyAppointments,
+                                                 List<NotificationDto> notifications) {
         LocalDateTime appointmentTime = newAppointment.getAppointmentDate();
         LocalDateTime twoHoursBefore = appointmentTime.minusHours(2);
         LocalDateTime twoHoursAfter = appointmentTime.plusHours(2);
 
-        List<Appointment> nearbyAppointments = appointmentRepository.findAppointmentsWithinTimeframe(
-                twoHoursBefore, twoHoursAfter);
-
-        // Filter for same user and exclude current appointment
-        List<Appointment> conflicts = nearbyAppointments.stream()
-                .filter(app -> app.getUser().getId().equals(newAppointment.getUser().getId()))
-                .filter(app -> !app.getId().equals(newAppointment.getId()))
+        List<AppointmentRepository.AppointmentSlot> conflicts = nearbyAppointments.stream()
+                .filter(app -> !app.getAppointmentDate().isBefore(twoHoursBefore) && !app.getAppointmentDate().isAfter(twoHoursAfter))
                 .collect(Collectors.toList());
 
         if (!conflicts.isEmpty()) {
             String conflictDetails = conflicts.stream()
-                    .map(app -> "Dr. " + app.getDoctorName() + " at " + formatAppointmentTime(app.getAppointmentDate()))
+                    .map(app -> messageTemplates.render("appointment.conflict.item", app.getDoctorName(), app.getAppointmentDate()))
                     .collect(Collectors.joining(", "));
 
-            String message = String.format("⚠️ POTENTIAL CONFLICT: Your new appointment with Dr. %s at %s " +
-                            "is scheduled within 2 hours of: %s. Please ensure you have adequate travel time.",
+            String message = messageTemplates.render("appointment.conflict",
                     newAppointment.getDoctorName(),
-                    formatAppointmentTime(newAppointment.getAppointmentDate()),
+                    newAppointment.getAppointmentDate(),
                     conflictDetails);
 
-            createAppointmentNotification(newAppointment.getUser(), message, "AppointmentConflict", "Appointment");
-            System.out.println("Appointment conflict notification sent for user: " + newAppointment.getUser().getId());
+            notifications.add(createAppointmentNotification(newAppointment.getUser(), message, "AppointmentConflict", "Appointment"));
+            logNotificationQueued("AppointmentConflict", newAppointment);
         }
     }
 
@@ -207,29 +412,27 @@ public class AppointmentImpl implements AppointmentService {
 
         // Check what changed
         if (!updatedAppointment.getAppointmentDate().equals(oldDate)) {
-            changes.add("Date/Time changed from " + formatAppointmentTime(oldDate) +
-                    " to " + formatAppointmentTime(updatedAppointment.getAppointmentDate()));
+            changes.add(messageTemplates.render("appointment.updated.date", oldDate, updatedAppointment.getAppointmentDate()));
         }
 
         if (!updatedAppointment.getDoctorName().equals(oldDoctorName)) {
-            changes.add("Doctor changed from Dr. " + oldDoctorName + " to Dr. " + updatedAppointment.getDoctorName());
+            changes.add(messageTemplates.render("appointment.updated.doctor", oldDoctorName, updatedAppointment.getDoctorName()));
         }
 
         if (!updatedAppointment.getLocation().equals(oldLocation)) {
-            changes.add("Location changed from " + oldLocation + " to " + updatedAppointment.getLocation());
+            changes.add(messageTemplates.render("appointment.updated.location", oldLocation, updatedAppointment.getLocation()));
         }
 
         if (!changes.isEmpty()) {
-            String message = String.format("📝 APPOINTMENT UPDATED: Your appointment has been modified. Changes: %s. " +
-                            "Current details: Dr. %s at %s, %s. Reason: %s",
+            String message = messageTemplates.render("appointment.updated",
                     String.join("; ", changes),
                     updatedAppointment.getDoctorName(),
-                    formatAppointmentTime(updatedAppointment.getAppointmentDate()),
+                    updatedAppointment.getAppointmentDate(),
                     updatedAppointment.getLocation(),
                     updatedAppointment.getReasonForVisit());
 
-            createAppointmentNotification(updatedAppointment.getUser(), message, "AppointmentUpdated", "Appointment");
-            System.out.println("Appointment update notification sent for: " + updatedAppointment.getDoctorName());
+            saveAppointmentNotification(updatedAppointment.getUser(), message, "AppointmentUpdated", "Appointment");
+            logNotificationQueued("AppointmentUpdated", updatedAppointment);
         }
     }
 
@@ -237,159 +440,307 @@ public class AppointmentImpl implements AppointmentService {
      * Send appointment cancellation notification
      */
     private void sendAppointmentCancellationNotification(Appointment appointment) {
-        String message = String.format("❌ APPOINTMENT CANCELLED: Your appointment with Dr. %s scheduled for %s at %s has been cancelled. " +
-                        "Reason for visit was: %s. Please reschedule if needed.",
+        String message = messageTemplates.render("appointment.cancelled",
                 appointment.getDoctorName(),
-                formatAppointmentTime(appointment.getAppointmentDate()),
+                appointment.getAppointmentDate(),
                 appointment.getLocation(),
                 appointment.getReasonForVisit());
 
-        createAppointmentNotification(appointment.getUser(), message, "AppointmentCancelled", "Appointment");
-        System.out.println("Appointment cancellation notification sent for: " + appointment.getDoctorName());
+        saveAppointmentNotification(appointment.getUser(), message, "AppointmentCancelled", "Appointment");
+        logNotificationQueued("AppointmentCancelled", appointment);
     }
 
     /**
      * Scheduled method to send appointment reminders
-     * Runs every hour to check for upcoming appointments
+     * Runs every minute and sends only the reminders the timing wheel reports as due.
+     * Only the node holding the reminder lease runs the sweep.
      */
-    @Scheduled(fixedRate = 3600000) // Every hour
+    @Scheduled(fixedRate = 60000) // Every minute
+    @Timed("healthtrack.reminders.sweep")
     public void sendAppointmentReminders() {
+        List<DueReminder> dueReminders = Collections.emptyList();
         try {
+            if (!schedulerLease.tryAcquire(REMINDER_LEASE, REMINDER_LEASE_DURATION)) {
+                // Another node is sending reminders; rebuild from the database if this node takes over later
+                reminderWheel.invalidate();
+                return;
+            }
+
             LocalDateTime now = LocalDateTime.now();
 
-            // Send 24-hour reminders
-            send24HourReminders(now);
+            if (!reminderWheel.isLoaded()) {
+                rebuildReminderWheel(now);
+            } else if (reminderWheel.getSyncedAt().plus(REMINDER_RESYNC_INTERVAL).isBefore(now)) {
+                resyncReminderWheel(now);
+            }
 
-            // Send 2-hour reminders
-            send2HourReminders(now);
+            dueReminders = reminderWheel.advanceTo(now);
+            if (dueReminders.isEmpty()) {
+                return;
+            }
 
-            // Send day-of reminders
-            sendDayOfReminders(now);
+            List<DueReminder> remindersToSend = dueReminders;
+            transactionTemplate.executeWithoutResult(status -> sendDueReminders(remindersToSend, now));
 
         } catch (Exception e) {
-            System.out.println("Error in scheduled appointment reminders: " + e.getMessage());
+            // Put the drained reminders back so the next tick retries them; the ledger stops any resend
+            reminderWheel.reschedule(dueReminders);
+            log.atError().setMessage("Error in scheduled appointment reminders")
+                    .addKeyValue("dueReminders", dueReminders.size())
+                    .setCause(e).log();
         }
     }
 
     /**
-     * Send 24-hour appointment reminders
+     * Send every due reminder that is not already in the ledger and record the sends,
+     * all in one transaction so a reminder and its ledger entry are committed together
      */
-    private void send24HourReminders(LocalDateTime now) {
-        LocalDateTime tomorrow = now.plusDays(1);
-        LocalDateTime tomorrowStart = tomorrow.minusHours(1);
-        LocalDateTime tomorrowEnd = tomorrow.plusHours(1);
+    private void sendDueReminders(List<DueReminder> dueReminders, LocalDateTime now) {
+        Map<ReminderType, List<Appointment>> dueAppointments = loadDueAppointments(dueReminders);
+        if (dueAppointments.isEmpty()) {
+            return;
+        }
+
+        List<NotificationDto> notifications = new ArrayList<>();
+
+        // Send 24-hour reminders
+        send24HourReminders(dueAppointments.getOrDefault(ReminderType.TWENTY_FOUR_HOUR, Collections.emptyList()), notifications);
 
-        List<Appointment> tomorrowAppointments = appointmentRepository.findAppointmentsWithinTimeframe(
-                tomorrowStart, tomorrowEnd);
+        // Send 2-hour reminders
+        send2HourReminders(dueAppointments.getOrDefault(ReminderType.TWO_HOUR, Collections.emptyList()), notifications);
+
+        // Send day-of reminders
+        sendDayOfReminders(dueAppointments.getOrDefault(ReminderType.DAY_OF, Collections.emptyList()), now, notifications);
+
+        // One batched insert for the whole sweep; failures propagate so the ledger rolls back with it
+        notificationService.createNotifications(notifications);
+
+        List<ReminderLedgerEntry> sent = new ArrayList<>();
+        dueAppointments.forEach((type, appointments) -> appointments.forEach(appointment ->
+                sent.add(new ReminderLedgerEntry(null, appointment.getId(), type,
+                        type.fireTimeFor(appointment.getAppointmentDate()), now))));
+        reminderLedgerRepository.saveAll(sent);
+    }
 
+    /**
+     * Populate the timing wheel with every upcoming appointment
+     */
+    private void rebuildReminderWheel(LocalDateTime now) {
+        List<AppointmentRepository.AppointmentSchedule> upcoming = appointmentRepository.findAppointmentSchedulesAfter(now);
+
+        reminderWheel.reset(now);
+        for (AppointmentRepository.AppointmentSchedule schedule : upcoming) {
+            reminderWheel.schedule(schedule.getId(), schedule.getAppointmentDate());
+        }
+
+        log.atInfo().setMessage("Reminder wheel rebuilt")
+                .addKeyValue("reminders", reminderWheel.size())
+                .addKeyValue("upcomingAppointments", upcoming.size())
+                .log();
+    }
+
+    /**
+     * Pick up appointments created or moved on other nodes since the last sync.
+     * Reminders that fell due in the meantime are caught up; ones already sent are filtered out by the ledger.
+     */
+    private void resyncReminderWheel(LocalDateTime now) {
+        LocalDateTime lastSync = reminderWheel.getSyncedAt();
+        List<AppointmentRepository.AppointmentSchedule> upcoming = appointmentRepository
+                .findAppointmentSchedulesWithinTimeframe(now, now.plus(REMINDER_RESYNC_HORIZON));
+
+        for (AppointmentRepository.AppointmentSchedule schedule : upcoming) {
+            reminderWheel.schedule(schedule.getId(), schedule.getAppointmentDate(), lastSync);
+        }
+        reminderWheel.markSynced(now);
+    }
+
+    /**
+     * Load the appointments behind the due reminders, grouped by reminder type.
+     * Reminders for appointments that were deleted or moved since they were scheduled are dropped,
+     * as are reminders the ledger shows were already sent.
+     */
+    private Map<ReminderType, List<Appointment>> loadDueAppointments(List<DueReminder> dueReminders) {
+        Set<Long> appointmentIds = dueReminders.stream()
+                .map(DueReminder::getAppointmentId)
+                .collect(Collectors.toSet());
+
+        Map<Long, Appointment> appointments = appointmentRepository.findAllById(appointmentIds).stream()
+                .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+
+        Set<String> alreadySent = reminderLedgerRepository.findByAppointmentIdIn(appointmentIds).stream()
+                .map(entry -> ledgerKey(entry.getAppointmentId(), entry.getReminderType(), entry.getFireTime()))
+                .collect(Collectors.toSet());
+
+        Map<ReminderType, List<Appointment>> dueAppointments = new EnumMap<>(ReminderType.class);
+        for (DueReminder reminder : dueReminders) {
+            Appointment appointment = appointments.get(reminder.getAppointmentId());
+            if (appointment == null || !appointment.getAppointmentDate().equals(reminder.getAppointmentDate())) {
+                continue;
+            }
+
+            LocalDateTime fireTime = reminder.getType().fireTimeFor(appointment.getAppointmentDate());
+            // add() also drops a reminder that appears twice in the same batch
+            if (alreadySent.add(ledgerKey(appointment.getId(), reminder.getType(), fireTime))) {
+                dueAppointments.computeIfAbsent(reminder.getType(), type -> new ArrayList<>()).add(appointment);
+            }
+        }
+        return dueAppointments;
+    }
+
+    private String ledgerKey(Long appointmentId, ReminderType type, LocalDateTime fireTime) {
+        return appointmentId + ":" + type + ":" + fireTime;
+    }
+
+    /**
+     * Send 24-hour appointment reminders
+     */
+    private void send24HourReminders(List<Appointment> tomorrowAppointments, List<NotificationDto> notifications) {
         for (Appointment appointment : tomorrowAppointments) {
-            String message = String.format("📅 24-HOUR REMINDER: You have an appointment tomorrow with Dr. %s at %s. " +
-                            "Location: %s. Reason: %s. Please prepare any necessary documents and arrive 15 minutes early.",
+            String message = messageTemplates.render("appointment.reminder.24h",
                     appointment.getDoctorName(),
-                    formatAppointmentTime(appointment.getAppointmentDate()),
+                    appointment.getAppointmentDate(),
                     appointment.getLocation(),
                     appointment.getReasonForVisit());
 
-            createAppointmentNotification(appointment.getUser(), message, "Appointment24HourReminder", "Appointment");
+            notifications.add(createAppointmentNotification(appointment.getUser(), message,
+                    ReminderType.TWENTY_FOUR_HOUR.getNotificationType(), "Appointment"));
         }
 
         if (!tomorrowAppointments.isEmpty()) {
-            System.out.println("Sent 24-hour reminders for " + tomorrowAppointments.size() + " appointments");
+            logRemindersQueued(ReminderType.TWENTY_FOUR_HOUR, tomorrowAppointments.size());
         }
     }
 
     /**
      * Send 2-hour appointment reminders
      */
-    private void send2HourReminders(LocalDateTime now) {
-        LocalDateTime twoHoursFromNow = now.plusHours(2);
-        LocalDateTime reminderStart = twoHoursFromNow.minusMinutes(30);
-        LocalDateTime reminderEnd = twoHoursFromNow.plusMinutes(30);
-
-        List<Appointment> upcomingAppointments = appointmentRepository.findAppointmentsWithinTimeframe(
-                reminderStart, reminderEnd);
-
+    private void send2HourReminders(List<Appointment> upcomingAppointments, List<NotificationDto> notifications) {
         for (Appointment appointment : upcomingAppointments) {
-            String message = String.format("⏰ 2-HOUR REMINDER: Your appointment with Dr. %s is coming up at %s. " +
-                            "Location: %s. Please start preparing to leave soon to arrive on time.",
+            String message = messageTemplates.render("appointment.reminder.2h",
                     appointment.getDoctorName(),
-                    formatAppointmentTime(appointment.getAppointmentDate()),
+                    appointment.getAppointmentDate(),
                     appointment.getLocation());
 
-            createAppointmentNotification(appointment.getUser(), message, "Appointment2HourReminder", "Appointment");
+            notifications.add(createAppointmentNotification(appointment.getUser(), message,
+                    ReminderType.TWO_HOUR.getNotificationType(), "Appointment"));
         }
 
         if (!upcomingAppointments.isEmpty()) {
-            System.out.println("Sent 2-hour reminders for " + upcomingAppointments.size() + " appointments");
+            logRemindersQueued(ReminderType.TWO_HOUR, upcomingAppointments.size());
         }
     }
 
     /**
      * Send day-of appointment reminders (morning of the appointment)
      */
-    private void sendDayOfReminders(LocalDateTime now) {
-        // Send reminders at 8 AM for appointments today
-        if (now.getHour() == 8) {
-            LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
-            LocalDateTime endOfDay = startOfDay.plusDays(1).minusSeconds(1);
-
-            List<Appointment> todayAppointments = appointmentRepository.findAppointmentsWithinTimeframe(
-                    startOfDay, endOfDay);
-
-            for (Appointment appointment : todayAppointments) {
-                long hoursUntil = ChronoUnit.HOURS.between(now, appointment.getAppointmentDate());
-
-                String message = String.format("🌅 GOOD MORNING REMINDER: You have an appointment today with Dr. %s at %s " +
-                                "(%d hours from now). Location: %s. Reason: %s. Have a great day!",
-                        appointment.getDoctorName(),
-                        formatAppointmentTime(appointment.getAppointmentDate()),
-                        hoursUntil,
-                        appointment.getLocation(),
-                        appointment.getReasonForVisit());
-
-                createAppointmentNotification(appointment.getUser(), message, "AppointmentDayOfReminder", "Appointment");
-            }
+    private void sendDayOfReminders(List<Appointment> todayAppointments, LocalDateTime now,
+                                    List<NotificationDto> notifications) {
+        for (Appointment appointment : todayAppointments) {
+            long hoursUntil = ChronoUnit.HOURS.between(now, appointment.getAppointmentDate());
 
-            if (!todayAppointments.isEmpty()) {
-                System.out.println("Sent day-of reminders for " + todayAppointments.size() + " appointments");
-            }
+            String message = messageTemplates.render("appointment.reminder.dayOf",
+                    appointment.getDoctorName(),
+                    appointment.getAppointmentDate(),
+                    hoursUntil,
+                    appointment.getLocation(),
+                    appointment.getReasonForVisit());
+
+            notifications.add(createAppointmentNotification(appointment.getUser(), message,
+                    ReminderType.DAY_OF.getNotificationType(), "Appointment"));
+        }
+
+        if (!todayAppointments.isEmpty()) {
+            logRemindersQueued(ReminderType.DAY_OF, todayAppointments.size());
         }
     }
 
     // Helper methods
 
     private String buildAppointmentConfirmationMessage(Appointment appointment) {
-        return String.format("✅ APPOINTMENT CONFIRMED: Your appointment with Dr. %s has been scheduled for %s at %s. " +
-                        "Reason for visit: %s. Please arrive 15 minutes early and bring a valid ID.",
+        return messageTemplates.render("appointment.confirmed",
                 appointment.getDoctorName(),
-                formatAppointmentTime(appointment.getAppointmentDate()),
+                appointment.getAppointmentDate(),
                 appointment.getLocation(),
                 appointment.getReasonForVisit());
     }
 
-    private String formatAppointmentTime(LocalDateTime dateTime) {
-        return dateTime.format(DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' h:mm a"));
-    }
-
     /**
-     * Helper method to create appointment notification
+     * Opaque page cursor holding the (appointmentDate, id) of the last appointment on a page
      */
-    private void createAppointmentNotification(User user, String message, String type, String metricType) {
+    private static String encodeCursor(Appointment appointment) {
+        String cursor = appointment.getAppointmentDate() + "|" + appointment.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
         try {
-            NotificationDto notificationDto = new NotificationDto();
-            notificationDto.setMessage(message);
-            notificationDto.setType(type);
-            notificationDto.setMetricType(metricType);
-            notificationDto.setTimestamp(LocalDateTime.now());
-            notificationDto.setUserId(user.getId());
-            notificationDto.setRead(false);
-
-            notificationService.createNotification(notificationDto);
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            LocalDateTime.parse(parts[0]);
+            Long.valueOf(parts[1]);
+            return parts;
         } catch (Exception e) {
-            System.out.println("Error creating appointment notification: " + e.getMessage());
+            throw new RuntimeException("Invalid appointment cursor: " + cursor);
         }
     }
 
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Helper method to build an appointment notification
+     */
+    private NotificationDto createAppointmentNotification(User user, String message, String type, String metricType) {
+        NotificationDto notificationDto = new NotificationDto();
+        notificationDto.setMessage(message);
+        notificationDto.setType(type);
+        notificationDto.setMetricType(metricType);
+        notificationDto.setTimestamp(LocalDateTime.now());
+        notificationDto.setUserId(user.getId());
+        notificationDto.setRead(false);
+        return notificationDto;
+    }
+
+    /**
+     * Save an update or cancellation notification once the appointment change commits, in a transaction of its own.
+     * A failure is logged and does not touch the change: inside the caller's transaction it would mark that
+     * transaction rollback-only even when caught, failing the update or delete it announces.
+     */
+    private void saveAppointmentNotification(User user, String message, String type, String metricType) {
+        afterCommit(() -> {
+            try {
+                NotificationDto notification = createAppointmentNotification(user, message, type, metricType);
+                TransactionTemplate ownTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                ownTransaction.executeWithoutResult(status -> notificationService.createNotifications(List.of(notification)));
+            } catch (Exception e) {
+                log.atWarn().setMessage("Error creating appointment notification")
+                        .addKeyValue("type", type)
+                        .addKeyValue("userId", user != null ? user.getId() : null)
+                        .setCause(e).log();
+            }
+        });
+    }
+
+    private void logNotificationQueued(String type, Appointment appointment) {
+        log.atDebug().setMessage("Appointment notification queued")
+                .addKeyValue("type", type)
+                .addKeyValue("appointmentId", appointment.getId())
+                .addKeyValue("userId", appointment.getUser() != null ? appointment.getUser().getId() : null)
+                .log();
+    }
+
+    private void logRemindersQueued(ReminderType type, int appointments) {
+        log.atInfo().setMessage("Appointment reminders queued")
+                .addKeyValue("reminderType", type)
+                .addKeyValue("appointments", appointments)
+                .log();
+    }
+
     /**
      * Get user's upcoming appointments (next 30 days)
      */
@@ -397,10 +748,7 @@ public class AppointmentImpl implements AppointmentService {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime thirtyDaysFromNow = now.plusDays(30);
 
-        return appointmentRepository.findByUserId(userId).stream()
-                .filter(appointment -> appointment.getAppointmentDate().isAfter(now) &&
-                        appointment.getAppointmentDate().isBefore(thirtyDaysFromNow))
-                .sorted(Comparator.comparing(Appointment::getAppointmentDate))
+        return appointmentRepository.findAppointmentsByUserIdAndDateRange(userId, now, thirtyDaysFromNow).stream()
                 .map(AppointmentMapper::mapToAppointmentDto)
                 .collect(Collectors.toList());
     }
@@ -411,9 +759,7 @@ public class AppointmentImpl implements AppointmentService {
     public List<AppointmentDto> getAppointmentHistory(Long userId) {
         LocalDateTime now = LocalDateTime.now();
 
-        return appointmentRepository.findByUserId(userId).stream()
-                .filter(appointment -> appointment.getAppointmentDate().isBefore(now))
-                .sorted(Comparator.comparing(Appointment::getAppointmentDate).reversed())
+        return appointmentRepository.findPastAppointmentsByUserId(userId, now).stream()
                 .map(AppointmentMapper::mapToAppointmentDto)
                 .collect(Collectors.toList());
     }
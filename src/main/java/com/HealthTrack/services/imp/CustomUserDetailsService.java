@@ -2,7 +2,9 @@ package com.HealthTrack.services.imp;
 
 import com.HealthTrack.models.User;
 import com.HealthTrack.repositories.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,6 +15,8 @@ import java.util.ArrayList;
 
 @Service
 @AllArgsConstructor
+@Slf4j
+@Timed("healthtrack.service")
 class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
@@ -20,7 +24,7 @@ class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        System.out.println("Attempting to load user: " + username);
+        log.atDebug().setMessage("Loading user").addKeyValue("username", username).log();
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
@@ -0,0 +1,154 @@
+package com.HealthTrack.services.imp;
+
+import com.HealthTrack.models.ExportFormat;
+import com.HealthTrack.repositories.AppointmentRepository;
+import com.HealthTrack.repositories.HealthMetricRepository;
+import com.HealthTrack.repositories.NotificationRepository;
+import com.HealthTrack.repositories.SymptomRepository;
+import com.HealthTrack.services.ExportService;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes everything stored about a user as one record per line.
+ * Each kind of record is streamed from the database as DTOs a page of rows at a time and written straight out,
+ * so memory use does not grow with the size of the user's history.
+ */
+@AllArgsConstructor
+@Service
+@Timed("healthtrack.service")
+public class ExportServiceImpl implements ExportService {
+
+    // CSV rows hold every kind of record, so the header is the union of their fields
+    private static final List<String> CSV_COLUMNS = List.of("recordType", "id", "userId", "timestamp",
+            "metricType", "value", "symptomType", "severity", "description",
+            "appointmentDate", "doctorName", "location", "reasonForVisit", "type", "message", "read");
+
+    private AppointmentRepository appointmentRepository;
+    private SymptomRepository symptomRepository;
+    private HealthMetricRepository healthMetricRepository;
+    private NotificationRepository notificationRepository;
+    private HealthMetricTimeSeries healthMetricTimeSeries;
+    private ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUserRecord(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        RecordWriter writer = format == ExportFormat.CSV ? new CsvRecordWriter(out) : new NdjsonRecordWriter(out);
+
+        try (Stream<?> appointments = appointmentRepository.streamAppointmentDtosByUserId(userId)) {
+            writeAll("appointment", appointments, writer);
+        }
+        try (Stream<?> symptoms = symptomRepository.streamSymptomDtosByUserId(userId)) {
+            writeAll("symptom", symptoms, writer);
+        }
+        // Compacted samples first, then the recent raw ones
+        try (Stream<?> archivedMetrics = healthMetricTimeSeries.streamArchivedSamples(userId)) {
+            writeAll("healthMetric", archivedMetrics, writer);
+        }
+        try (Stream<?> healthMetrics = healthMetricRepository.streamHealthMetricDtosByUserId(userId)) {
+            writeAll("healthMetric", healthMetrics, writer);
+        }
+        try (Stream<?> notifications = notificationRepository.streamNotificationDtosByUserId(userId)) {
+            writeAll("notification", notifications, writer);
+        }
+        writer.flush();
+    }
+
+    private void writeAll(String recordType, Stream<?> records, RecordWriter writer) throws IOException {
+        Iterator<?> iterator = records.iterator();
+        while (iterator.hasNext()) {
+            writer.write(recordType, objectMapper.valueToTree(iterator.next()));
+        }
+    }
+
+    private interface RecordWriter {
+        void write(String recordType, ObjectNode record) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * One JSON object per line, with the record's kind in "recordType"
+     */
+    private final class NdjsonRecordWriter implements RecordWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRecordWriter(OutputStream out) throws IOException {
+            // The caller owns the stream, and may still need to finish a gzip trailer on it
+            generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(String recordType, ObjectNode record) throws IOException {
+            ObjectNode line = objectMapper.createObjectNode().put("recordType", recordType);
+            line.setAll(record);
+            objectMapper.writeTree(generator, line);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row; fields a record does not have are left empty
+     */
+    private static final class CsvRecordWriter implements RecordWriter {
+        private final Writer writer;
+
+        CsvRecordWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(String recordType, ObjectNode record) throws IOException {
+            writer.write(recordType);
+            for (int i = 1; i < CSV_COLUMNS.size(); i++) {
+                writer.write(',');
+                JsonNode value = record.get(CSV_COLUMNS.get(i));
+                if (value != null && !value.isNull()) {
+                    writeField(value.asText());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+}
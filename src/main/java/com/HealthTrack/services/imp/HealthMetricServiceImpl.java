@@ -1,28 +1,66 @@
 package com.HealthTrack.services.imp;
 
+import com.HealthTrack.cache.UserReferenceCache;
+import com.HealthTrack.dtos.BatchItemResultDto;
+import com.HealthTrack.dtos.HealthMetricBatchResultDto;
+import com.HealthTrack.dtos.HealthMetricBucketDto;
 import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.HealthMetricSeriesDto;
 import com.HealthTrack.mapper.HealthMetricMapper;
 import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
 import com.HealthTrack.models.User;
 import com.HealthTrack.repositories.HealthMetricRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import com.HealthTrack.scheduling.OutboxEventHandler;
 import com.HealthTrack.services.HealthMetricService;
 import com.HealthTrack.services.NotificationService;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
-public class HealthMetricServiceImpl implements HealthMetricService {
+@Slf4j
+@Timed("healthtrack.service")
+public class HealthMetricServiceImpl implements HealthMetricService, OutboxEventHandler {
+    // Samples are stored in transactions of this many rows, each sent as JDBC batches
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int MAX_BATCH_SAMPLES = 10000;
+    // Series buckets are written like 15m, 1h or 7d
+    private static final Pattern SERIES_BUCKET = Pattern.compile("(\\d{1,4})([mhd])");
+    private static final String DEFAULT_SERIES_BUCKET = "1h";
+    private static final Set<String> SERIES_AGGREGATES = Set.of("count", "avg", "min", "max", "p95");
+    private static final int MAX_SERIES_BUCKETS = 10000;
+
     private HealthMetricRepository healthMetricRepository;
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
     private NotificationService notificationService;
+    private NotificationOutboxRepository notificationOutboxRepository;
+    private TransactionTemplate transactionTemplate;
+    private HealthMetricTimeSeries healthMetricTimeSeries;
 
 
     private void calculateAndSaveBMI(HealthMetric weightMetric, HealthMetric heightMetric) {
@@ -31,7 +69,9 @@ public class HealthMetricServiceImpl implements HealthMetricService {
             return;
         }
 
-        if (weightMetric.getUser() == null || !weightMetric.getUser().equals(heightMetric.getUser())) {
+        // Compare ids, so a user attached by reference is not loaded
+        if (weightMetric.getUser() == null || heightMetric.getUser() == null
+                || !weightMetric.getUser().getId().equals(heightMetric.getUser().getId())) {
             return;
         }
 
@@ -62,27 +102,23 @@ public class HealthMetricServiceImpl implements HealthMetricService {
         bmiMetric.setTimestamp(LocalDateTime.now());
         bmiMetric.setUser(weightMetric.getUser());
 
-        healthMetricRepository.save(bmiMetric);
+        HealthMetric savedBmiMetric = healthMetricRepository.save(bmiMetric);
+        healthMetricTimeSeries.record(List.of(savedBmiMetric));
     }
 
 
 
     @Override
+    @Transactional
     public HealthMetricDto createHealthMetric(HealthMetricDto healthMetricDto) {
-        User user = userRepository.findById(healthMetricDto.getUserId())
+        User user = userReferenceCache.findReference(healthMetricDto.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         HealthMetric healthMetric = HealthMetricMapper.mapToHealthMetric(healthMetricDto, user);
-
-        // Convert to Chicago timezone if needed
-        if (healthMetric.getTimestamp() != null) {
-            ZonedDateTime chicagoTime = healthMetric.getTimestamp()
-                    .atZone(ZoneId.of("UTC"))
-                    .withZoneSameInstant(ZoneId.of("America/Chicago"));
-            healthMetric.setTimestamp(chicagoTime.toLocalDateTime());
-        }
+        healthMetric.setTimestamp(toChicagoTime(healthMetric.getTimestamp()));
 
         HealthMetric savedMetric = healthMetricRepository.save(healthMetric);
+        healthMetricTimeSeries.record(List.of(savedMetric));
 
         // BMI calculation if weight (in pounds) or height (in inches) submitted
         if ("Weight".equalsIgnoreCase(healthMetric.getMetricType())) {
@@ -105,10 +141,161 @@ public class HealthMetricServiceImpl implements HealthMetricService {
                     });
         }
 
-        notificationService.sendAbnormalHealthMetricNotification(savedMetric);
+        // Abnormal-value alerts are generated in the background, from an event committed with the metric
+        notificationOutboxRepository.save(NotificationOutbox.pending(OutboxEventType.HEALTH_METRIC_CREATED, savedMetric.getId()));
         return HealthMetricMapper.mapToHealthMetricDto(savedMetric);
     }
 
+    /**
+     * Store a batch of samples for one user, e.g. a wearable sync.
+     * Samples are validated one by one and inserted in chunks; a sample that is invalid, or whose chunk fails
+     * to save, is reported as rejected without failing the rest of the batch. BMI and abnormal-value alerts
+     * are computed once for the batch, on the latest sample of each metric type.
+     */
+    @Override
+    public HealthMetricBatchResultDto createHealthMetricBatch(Long userId, Iterator<HealthMetricDto> healthMetricDtos) {
+        User user = userReferenceCache.findReference(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        List<BatchItemResultDto> results = new ArrayList<>();
+        List<HealthMetric> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(BATCH_CHUNK_SIZE);
+        Map<String, HealthMetric> latestByType = new HashMap<>();
+
+        int index = 0;
+        while (healthMetricDtos.hasNext()) {
+            if (index == MAX_BATCH_SAMPLES) {
+                results.add(new BatchItemResultDto(index, null,
+                        "Batch limit of " + MAX_BATCH_SAMPLES + " samples reached, the remaining samples were not read"));
+                break;
+            }
+            try {
+                chunk.add(toBatchMetric(healthMetricDtos.next(), user));
+                chunkIndexes.add(index);
+            } catch (RuntimeException e) {
+                results.add(new BatchItemResultDto(index, null, e.getMessage()));
+            }
+            index++;
+
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                saveBatchChunk(chunk, chunkIndexes, results, latestByType);
+            }
+        }
+        saveBatchChunk(chunk, chunkIndexes, results, latestByType);
+
+        if (!latestByType.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> finishBatch(user, latestByType.values()));
+            } catch (RuntimeException e) {
+                // The samples are stored; only the derived BMI and alerts for this batch are lost
+                log.atWarn().setMessage("Error computing BMI and alerts for health metric batch")
+                        .addKeyValue("userId", userId)
+                        .setCause(e).log();
+            }
+        }
+
+        results.sort(Comparator.comparingInt(BatchItemResultDto::getIndex));
+        int accepted = (int) results.stream().filter(result -> result.getError() == null).count();
+        return new HealthMetricBatchResultDto(accepted, results.size() - accepted, results);
+    }
+
+    private HealthMetric toBatchMetric(HealthMetricDto healthMetricDto, User user) {
+        if (healthMetricDto == null) {
+            throw new RuntimeException("Sample is empty");
+        }
+        if (healthMetricDto.getUserId() != null && !healthMetricDto.getUserId().equals(user.getId())) {
+            throw new RuntimeException("Sample belongs to user " + healthMetricDto.getUserId() + ", not " + user.getId());
+        }
+        if (healthMetricDto.getMetricType() == null || healthMetricDto.getMetricType().isBlank()) {
+            throw new RuntimeException("metricType is required");
+        }
+        if (healthMetricDto.getValue() == null || !Double.isFinite(healthMetricDto.getValue())) {
+            throw new RuntimeException("value is required");
+        }
+        if (healthMetricDto.getTimestamp() == null) {
+            throw new RuntimeException("timestamp is required");
+        }
+
+        HealthMetric healthMetric = HealthMetricMapper.mapToHealthMetric(healthMetricDto, user);
+        healthMetric.setId(null);
+        healthMetric.setTimestamp(toChicagoTime(healthMetric.getTimestamp()));
+        return healthMetric;
+    }
+
+    private void saveBatchChunk(List<HealthMetric> chunk, List<Integer> chunkIndexes,
+                                List<BatchItemResultDto> results, Map<String, HealthMetric> latestByType) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<HealthMetric> savedMetrics = transactionTemplate.execute(status -> {
+                List<HealthMetric> saved = healthMetricRepository.saveAll(chunk);
+                healthMetricTimeSeries.record(saved);
+                return saved;
+            });
+            for (int i = 0; i < savedMetrics.size(); i++) {
+                HealthMetric savedMetric = savedMetrics.get(i);
+                results.add(new BatchItemResultDto(chunkIndexes.get(i), savedMetric.getId(), null));
+                latestByType.merge(savedMetric.getMetricType(), savedMetric,
+                        (latest, metric) -> metric.getTimestamp().isBefore(latest.getTimestamp()) ? latest : metric);
+            }
+        } catch (RuntimeException e) {
+            for (Integer chunkIndex : chunkIndexes) {
+                results.add(new BatchItemResultDto(chunkIndex, null, "Failed to save sample: " + e.getMessage()));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    /**
+     * Pair the user's latest weight and height into a BMI if the batch changed either, and queue the
+     * abnormal-value check for the latest sample of each metric type
+     */
+    private void finishBatch(User user, Collection<HealthMetric> latestMetrics) {
+        boolean bodySizeChanged = latestMetrics.stream()
+                .anyMatch(metric -> "Weight".equalsIgnoreCase(metric.getMetricType())
+                        || "Height".equalsIgnoreCase(metric.getMetricType()));
+        if (bodySizeChanged) {
+            HealthMetric weightMetric = healthMetricRepository.findTopByUserIdAndMetricTypeOrderByTimestampDesc(user.getId(), "Weight").orElse(null);
+            HealthMetric heightMetric = healthMetricRepository.findTopByUserIdAndMetricTypeOrderByTimestampDesc(user.getId(), "Height").orElse(null);
+            if (isValidWeightInPounds(weightMetric) && isValidHeightInInches(heightMetric)) {
+                calculateAndSaveBMI(weightMetric, heightMetric);
+            }
+        }
+
+        notificationOutboxRepository.saveAll(latestMetrics.stream()
+                .map(metric -> NotificationOutbox.pending(OutboxEventType.HEALTH_METRIC_CREATED, metric.getId()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Timestamps are submitted in UTC and stored as Chicago local time
+     */
+    private static LocalDateTime toChicagoTime(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        ZonedDateTime chicagoTime = timestamp
+                .atZone(ZoneId.of("UTC"))
+                .withZoneSameInstant(ZoneId.of("America/Chicago"));
+        return chicagoTime.toLocalDateTime();
+    }
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.HEALTH_METRIC_CREATED;
+    }
+
+    /**
+     * Run the abnormal-value rules for a newly recorded metric, dispatched from the outbox
+     */
+    @Override
+    public void handle(NotificationOutbox event) {
+        healthMetricRepository.findById(event.getAggregateId())
+                .ifPresent(notificationService::sendAbnormalHealthMetricNotification);
+    }
+
     private boolean isValidWeightInPounds(HealthMetric weightMetric) {
         if (weightMetric == null || weightMetric.getValue() <= 0) {
             return false;
@@ -138,33 +325,97 @@ public class HealthMetricServiceImpl implements HealthMetricService {
     }
 
 
+    /**
+     * Every sample the user recorded: compacted samples decoded from their blocks, then the raw samples
+     */
     @Override
     public List<HealthMetricDto> findAllHealthMetricsByUserId(Long userId) {
 
-        List<HealthMetric> healthMetrics = healthMetricRepository.findByUserId(userId);
-        return healthMetrics.stream()
+        List<HealthMetricDto> healthMetrics = new ArrayList<>(healthMetricTimeSeries.findArchivedSamples(userId));
+        healthMetricRepository.findByUserId(userId).stream()
                 .map(HealthMetricMapper::mapToHealthMetricDto)
+                .forEach(healthMetrics::add);
+        return healthMetrics;
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public HealthMetricSeriesDto findHealthMetricSeries(Long userId, String metricType, LocalDateTime from,
+                                                        LocalDateTime to, String bucket, List<String> aggregates) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("A time range with from before to is required");
+        }
+        String bucketName = bucket == null || bucket.isBlank() ? DEFAULT_SERIES_BUCKET : bucket.trim();
+        Duration bucketSize = parseSeriesBucket(bucketName);
+        if (Duration.between(from, to).dividedBy(bucketSize) >= MAX_SERIES_BUCKETS) {
+            throw new RuntimeException("Time range spans more than " + MAX_SERIES_BUCKETS + " buckets of " + bucketName);
+        }
+
+        Set<String> requested = new HashSet<>();
+        for (String aggregate : aggregates == null || aggregates.isEmpty() ? List.of("avg") : aggregates) {
+            String name = aggregate.trim().toLowerCase();
+            if (!SERIES_AGGREGATES.contains(name)) {
+                throw new RuntimeException("Unknown aggregate: " + aggregate);
+            }
+            requested.add(name);
+        }
+
+        List<HealthMetricBucketDto> buckets = healthMetricTimeSeries.aggregate(userId, metricType, from, to, bucketSize,
+                        requested.contains("p95") ? 95.0 : null).stream()
+                .map(series -> new HealthMetricBucketDto(
+                        series.start(),
+                        series.count(),
+                        requested.contains("avg") ? series.average() : null,
+                        requested.contains("min") ? series.min() : null,
+                        requested.contains("max") ? series.max() : null,
+                        series.percentile()))
                 .collect(Collectors.toList());
+        return new HealthMetricSeriesDto(userId, metricType, bucketName, buckets);
+    }
+
+    private static Duration parseSeriesBucket(String bucket) {
+        Matcher matcher = SERIES_BUCKET.matcher(bucket);
+        if (!matcher.matches() || Integer.parseInt(matcher.group(1)) == 0) {
+            throw new RuntimeException("Invalid bucket size: " + bucket);
+        }
+        int amount = Integer.parseInt(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
     }
 
 
     @Override
+    @Transactional
     public HealthMetricDto updateHealthMetric(Long healthMetricId, HealthMetricDto healthMetricDto) {
 
         HealthMetric healthMetric = healthMetricRepository.findById(healthMetricId).orElseThrow(() -> new RuntimeException("healthMetricId not found"));
+        String oldMetricType = healthMetric.getMetricType();
+        LocalDateTime oldTimestamp = healthMetric.getTimestamp();
+
         healthMetric.setMetricType(healthMetricDto.getMetricType());
         healthMetric.setValue(healthMetricDto.getValue());
         healthMetric.setTimestamp(healthMetricDto.getTimestamp());
         HealthMetric updatedHealthMetric = healthMetricRepository.save(healthMetric);
+
+        // The sample may have moved to other buckets; fix both the ones it left and the ones it joined
+        Long userId = updatedHealthMetric.getUser().getId();
+        healthMetricTimeSeries.rebuildRollups(userId, oldMetricType, oldTimestamp);
+        healthMetricTimeSeries.rebuildRollups(userId, updatedHealthMetric.getMetricType(), updatedHealthMetric.getTimestamp());
         return HealthMetricMapper.mapToHealthMetricDto(updatedHealthMetric);
     }
 
     @Override
+    @Transactional
     public void deleteHealthMetric(Long healthMetricId) {
 
         HealthMetric healthMetric = healthMetricRepository.findById(healthMetricId)
                 .orElseThrow(() -> new RuntimeException("healthMetricId not found"));
         healthMetricRepository.deleteById(healthMetricId);
+        healthMetricTimeSeries.rebuildRollups(healthMetric.getUser().getId(), healthMetric.getMetricType(), healthMetric.getTimestamp());
 
     }
 
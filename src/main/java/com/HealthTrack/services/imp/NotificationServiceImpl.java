@@ -1,19 +1,33 @@
 package com.HealthTrack.services.imp;
 
+import com.HealthTrack.cache.NotificationCooldownCache;
+import com.HealthTrack.cache.UserReferenceCache;
 import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.NotificationPageDto;
 import com.HealthTrack.mapper.NotificationMapper;
 import com.HealthTrack.models.HealthMetric;
 import com.HealthTrack.models.Notification;
 import com.HealthTrack.models.Symptom;
 import com.HealthTrack.models.User;
+import com.HealthTrack.push.NotificationPushHub;
 import com.HealthTrack.repositories.NotificationRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.rules.HealthRuleEngine;
 import com.HealthTrack.services.NotificationService;
+import com.HealthTrack.templates.MessageTemplates;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,43 +35,46 @@ import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
+@Slf4j
+@Timed("healthtrack.service")
 public class NotificationServiceImpl implements NotificationService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    // Keeps the IN list of a bulk update a sensible size
+    private static final int MAX_BULK_IDS = 1000;
+    // Bounds used when an inbox request leaves one end of the time range open; both fit a MySQL DATETIME
+    private static final LocalDateTime EARLIEST_NOTIFICATION_TIME = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_NOTIFICATION_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final String NOTIFICATIONS_CREATED_METRIC = "healthtrack.notifications.created";
+
     private NotificationRepository notificationRepository;
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
+    private HealthRuleEngine healthRuleEngine;
+    private NotificationCooldownCache notificationCooldownCache;
+    private NotificationPushHub notificationPushHub;
+    private MeterRegistry meterRegistry;
+    private MessageTemplates messageTemplates;
 
     @Override
     public void sendAbnormalHealthMetricNotification(HealthMetric healthMetric) {
         User user = healthMetric.getUser();
         LocalDateTime now = LocalDateTime.now();
-        Map<String, Double> thresholds = new HashMap<>();
-        thresholds.put("Blood Pressure", 140.0);
-        thresholds.put("Heart Rate", 100.0);
-        thresholds.put("Blood Sugar", 180.0);
-        thresholds.put("Cholesterol", 200.0);
-        thresholds.put("Body Temperature", 38.0);
-        thresholds.put("Respiratory Rate", 20.0);
-        thresholds.put("Oxygen Saturation", 90.0);
-        thresholds.put("BMI", 30.0);
-        thresholds.put("Weight", 330.0); // 330 lbs threshold
-        thresholds.put("Height", 78.0); // 78 inches threshold
-        thresholds.put("Blood Pressure Diastolic", 90.0);
-
-        Double thresholdValue = thresholds.get(healthMetric.getMetricType());
-        if (thresholdValue != null && healthMetric.getValue() > thresholdValue) {
-            boolean notificationExists = notificationRepository.existsSimilarNotification(
+        double thresholdValue = healthRuleEngine.metricThreshold(healthMetric.getMetricType());
+        if (!Double.isNaN(thresholdValue) && healthMetric.getValue() > thresholdValue) {
+            boolean notificationExists = notificationCooldownCache.wasSentSince(
                     user.getId(), healthMetric.getMetricType(), now.minusHours(24)
             );
 
             if (!notificationExists) {
                 Notification notification = new Notification();
-                notification.setMessage(buildHealthMetricNotificationMessage(healthMetric, thresholdValue));
+                notification.setMessage(buildHealthMetricNotificationMessage(messageTemplates, healthMetric, thresholdValue));
                 notification.setType("HealthMetricAlert");
                 notification.setMetricType(healthMetric.getMetricType());
                 notification.setTimestamp(now);
                 notification.setUser(user);
                 notification.setRead(false);
-                Notification savedNotification = notificationRepository.save(notification);
+                Notification savedNotification = saveNotification(notification);
                 logNotification(savedNotification);
             }
         }
@@ -72,10 +89,10 @@ public class NotificationServiceImpl implements NotificationService {
 
         // Determine notification type and message based on symptom characteristics
         String notificationType = determineSymptomNotificationType(symptom);
-        String message = buildSymptomNotificationMessage(symptom, notificationType);
+        String message = buildSymptomNotificationMessage(messageTemplates, symptom, notificationType);
 
         // Check if similar notification was sent recently
-        boolean notificationExists = notificationRepository.existsSimilarNotification(
+        boolean notificationExists = notificationCooldownCache.wasSentSince(
                 user.getId(), notificationType, now.minusHours(getNotificationCooldownHours(notificationType))
         );
 
@@ -88,7 +105,7 @@ public class NotificationServiceImpl implements NotificationService {
             notification.setUser(user);
             notification.setRead(false);
 
-            Notification savedNotification = notificationRepository.save(notification);
+            Notification savedNotification = saveNotification(notification);
             logNotification(savedNotification);
         }
     }
@@ -100,7 +117,7 @@ public class NotificationServiceImpl implements NotificationService {
         String tipMessage = generateWellnessTip(symptomType, severity);
 
         // Check if wellness tip was sent recently (once per day)
-        boolean notificationExists = notificationRepository.existsSimilarNotification(
+        boolean notificationExists = notificationCooldownCache.wasSentSince(
                 user.getId(), "WellnessTip", LocalDateTime.now().minusHours(24)
         );
 
@@ -113,7 +130,7 @@ public class NotificationServiceImpl implements NotificationService {
             notification.setUser(user);
             notification.setRead(false);
 
-            Notification savedNotification = notificationRepository.save(notification);
+            Notification savedNotification = saveNotification(notification);
             logNotification(savedNotification);
         }
     }
@@ -123,22 +140,17 @@ public class NotificationServiceImpl implements NotificationService {
      */
     private String determineSymptomNotificationType(Symptom symptom) {
         // Critical symptoms that need immediate attention
-        Set<String> criticalSymptoms = Set.of(
-                "Chest Pain", "Severe Headache", "Difficulty Breathing",
-                "Sudden Vision Loss", "Severe Abdominal Pain", "Numbness", "Confusion"
-        );
-
-        if (criticalSymptoms.contains(symptom.getSymptomType())) {
+        if (healthRuleEngine.isCriticalSymptom(symptom.getSymptomType())) {
             return "CriticalSymptomAlert";
         }
 
-        // High severity symptoms (8-10)
-        if (symptom.getSeverity() >= 8) {
+        // High severity symptoms (8-10 by default)
+        if (symptom.getSeverity() >= healthRuleEngine.highSeverity()) {
             return "HighSeveritySymptom";
         }
 
-        // Moderate to high severity (6-7)
-        if (symptom.getSeverity() >= 6) {
+        // Moderate to high severity (6-7 by default)
+        if (symptom.getSeverity() >= healthRuleEngine.moderateSeverity()) {
             return "ModerateSymptomAlert";
         }
 
@@ -169,34 +181,27 @@ public class NotificationServiceImpl implements NotificationService {
     /**
      * Build symptom notification message based on type and severity
      */
-    private String buildSymptomNotificationMessage(Symptom symptom, String notificationType) {
+    static String buildSymptomNotificationMessage(MessageTemplates messageTemplates, Symptom symptom,
+                                                  String notificationType) {
         String symptomType = symptom.getSymptomType();
         int severity = symptom.getSeverity();
         String description = symptom.getDescription();
 
         switch (notificationType) {
             case "CriticalSymptomAlert":
-                return String.format("🚨 URGENT: You've reported %s. This symptom requires immediate medical attention. " +
-                                "Severity: %d/10. Description: %s. Please seek emergency care or contact your doctor immediately.",
-                        symptomType.toLowerCase(), severity, description);
+                return messageTemplates.render("symptom.alert.critical", symptomType, severity, description);
 
             case "HighSeveritySymptom":
-                return String.format("⚠️ HIGH SEVERITY: Your %s is rated %d/10. This is concerning and you should " +
-                                "consider contacting a healthcare provider today. Description: %s. Monitor closely for any changes.",
-                        symptomType.toLowerCase(), severity, description);
+                return messageTemplates.render("symptom.alert.high", symptomType, severity, description);
 
             case "ModerateSymptomAlert":
-                return String.format("📋 MODERATE SYMPTOM: You've logged %s with severity %d/10. " +
-                        "Keep monitoring this symptom. If it persists or worsens, consider consulting a healthcare provider. " +
-                        "Description: %s", symptomType.toLowerCase(), severity, description);
+                return messageTemplates.render("symptom.alert.moderate", symptomType, severity, description);
 
             case "SymptomTracking":
-                return String.format("📊 SYMPTOM LOGGED: %s recorded with severity %d/10. " +
-                        "We're tracking your symptoms to help identify patterns. Description: %s. " +
-                        "Remember to rest and stay hydrated.", symptomType.toLowerCase(), severity, description);
+                return messageTemplates.render("symptom.alert.tracking", symptomType, severity, description);
 
             default:
-                return String.format("Symptom Update: %s logged with severity %d/10.", symptomType, severity);
+                return messageTemplates.render("symptom.alert.other", symptomType, severity);
         }
     }
 
@@ -204,44 +209,21 @@ public class NotificationServiceImpl implements NotificationService {
      * Generate wellness tips based on symptom type and severity
      */
     private String generateWellnessTip(String symptomType, int severity) {
-        Map<String, String> wellnessTips = new HashMap<>();
-
-        wellnessTips.put("Headache", "💡 TIP: For headaches, try drinking more water, getting adequate sleep, " +
-                "and taking breaks from screens. Consider gentle neck stretches and relaxation techniques.");
-
-        wellnessTips.put("Fatigue", "💡 TIP: Combat fatigue by maintaining a regular sleep schedule, eating balanced meals, " +
-                "staying hydrated, and incorporating light exercise like walking into your routine.");
-
-        wellnessTips.put("Fever", "💡 TIP: When experiencing fever, rest, drink plenty of fluids, and monitor your temperature. " +
-                "If fever exceeds 101°F (38.3°C) or persists, contact a healthcare provider.");
-
-        wellnessTips.put("Cough", "💡 TIP: For coughs, stay hydrated, use a humidifier, avoid irritants like smoke, " +
-                "and consider honey (for adults) or throat lozenges for relief.");
-
-        wellnessTips.put("Nausea", "💡 TIP: To manage nausea, try eating small, bland meals, sipping ginger tea, " +
-                "getting fresh air, and avoiding strong odors. Rest in a comfortable position.");
-
-        wellnessTips.put("Muscle Pain", "💡 TIP: For muscle pain, apply heat or ice as needed, gentle stretching, " +
-                "adequate rest, and stay hydrated. Light movement can help prevent stiffness.");
-
-        // Default tip for unlisted symptoms
-        String tip = wellnessTips.get(symptomType);
-        if (tip == null) {
-            tip = "💡 TIP: Remember to rest, stay hydrated, and listen to your body. " +
-                    "Track your symptoms and consult a healthcare provider if they persist or worsen.";
-        }
+        // Falls back to the general tip for unlisted symptoms
+        String tip = healthRuleEngine.wellnessTip(symptomType);
 
         // Add severity-specific advice
         if (severity >= 7) {
-            tip += " Given the severity of your symptoms, please consider seeking medical advice.";
+            tip = messageTemplates.render("wellness.tip.severe", tip);
         } else if (severity >= 5) {
-            tip += " Monitor your symptoms closely and don't hesitate to seek care if needed.";
+            tip = messageTemplates.render("wellness.tip.moderate", tip);
         }
 
         return tip;
     }
 
-    private String buildHealthMetricNotificationMessage(HealthMetric healthMetric, Double threshold) {
+    static String buildHealthMetricNotificationMessage(MessageTemplates messageTemplates, HealthMetric healthMetric,
+                                                       double threshold) {
         String metric = healthMetric.getMetricType();
         double value = healthMetric.getValue();
         String message;
@@ -249,54 +231,143 @@ public class NotificationServiceImpl implements NotificationService {
         switch (metric) {
             case "BMI":
                 if (value > 30) {
-                    message = String.format("Your BMI is %.2f, which is considered obese. Please consult with a nutritionist or healthcare provider.", value);
+                    message = messageTemplates.render("metric.bmi.obese", value);
                 } else if (value > 25) {
-                    message = String.format("Your BMI is %.2f, indicating overweight. Consider a balanced diet and regular exercise.", value);
+                    message = messageTemplates.render("metric.bmi.overweight", value);
                 } else {
-                    message = String.format("Your BMI is %.2f, slightly above normal. Stay active and monitor regularly.", value);
+                    message = messageTemplates.render("metric.bmi.aboveNormal", value);
                 }
                 break;
 
             case "Weight":
                 if (value > 330 && value < 660) {
-                    message = String.format("Your recorded weight is %.2f lbs. Please ensure this is accurate and consult a doctor if unexpected.", value);
+                    message = messageTemplates.render("metric.weight.unexpected", value);
                 } else if (value >= 660) {
-                    message = String.format("Weight registered: %.2f lbs. This is extremely high - please seek immediate medical attention.", value);
+                    message = messageTemplates.render("metric.weight.extreme", value);
                 } else {
-                    message = String.format("Weight registered: %.2f lbs. No critical alert, just for your awareness.", value);
+                    message = messageTemplates.render("metric.weight.registered", value);
                 }
                 break;
 
             case "Height":
                 if (value > 78) {
-                    message = String.format("Your recorded height is %.2f inches (%.1f feet). Please verify this measurement is correct.",
-                            value, value / 12.0);
+                    message = messageTemplates.render("metric.height.unusual", value, value / 12.0);
                 } else {
-                    message = String.format("Height registered: %.2f inches. No concerns noted.", value);
+                    message = messageTemplates.render("metric.height.registered", value);
                 }
                 break;
 
             default:
-                message = String.format(
-                        "Warning! Your %s is abnormally high: %.2f (Threshold: %.2f). Please consult a healthcare provider.",
-                        metric, value, threshold
-                );
+                message = messageTemplates.render("metric.abnormal", metric, value, threshold);
                 break;
         }
 
         return message;
     }
 
+    /**
+     * Insert a notification, start its cooldown and push it to the user's open streams
+     */
+    private Notification saveNotification(Notification notification) {
+        Notification savedNotification = notificationRepository.save(notification);
+        recordSent(savedNotification);
+        return savedNotification;
+    }
+
+    private void recordSent(Notification notification) {
+        notificationCooldownCache.recordSent(notification.getUser().getId(), notification.getMetricType(),
+                notification.getTimestamp());
+        notificationPushHub.publish(NotificationMapper.mapToNotificationDto(notification));
+        // Every rule that fires ends up here, so this counts firings per rule type
+        meterRegistry.counter(NOTIFICATIONS_CREATED_METRIC, "type", String.valueOf(notification.getType())).increment();
+    }
+
     private void logNotification(Notification notification) {
-        System.out.println("Notification sent: " + notification.getMessage());
-        System.out.println("Type: " + notification.getType() + ", User: " + notification.getUser().getId());
+        log.atInfo().setMessage("Notification sent")
+                .addKeyValue("notificationId", notification.getId())
+                .addKeyValue("type", notification.getType())
+                .addKeyValue("userId", notification.getUser().getId())
+                .log();
     }
 
     @Override
     public List<NotificationDto> getUserNotifications(Long userId) {
-        return notificationRepository.findByUserId(userId).stream()
-                .map(NotificationMapper::mapToNotificationDto)
-                .collect(Collectors.toList());
+        // Sorted by the database (newest first)
+        return notificationRepository.findNotificationDtosByUserId(userId);
+    }
+
+    /**
+     * A page of the user's inbox: unread notifications first, then read ones, each newest first.
+     * Unread and read notifications are read as two ranges of the (user_id, is_read, timestamp) index,
+     * continuing from the cursor of the previous page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public NotificationPageDto getUserInbox(Long userId, Boolean unread, String type, String metricType,
+                                            LocalDateTime since, String after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime start = since != null ? since : EARLIEST_NOTIFICATION_TIME;
+        String typeFilter = type == null || type.isEmpty() ? null : type;
+        String metricTypeFilter = metricType == null || metricType.isEmpty() ? null : metricType;
+
+        // Ids are below Long.MAX_VALUE, so the first page starts with the newest unread notification
+        boolean cursorRead = false;
+        LocalDateTime cursorTime = LATEST_NOTIFICATION_TIME;
+        Long cursorId = Long.MAX_VALUE;
+        if (after != null && !after.isEmpty()) {
+            String[] cursor = decodeCursor(after);
+            cursorRead = Boolean.parseBoolean(cursor[0]);
+            cursorTime = LocalDateTime.parse(cursor[1]);
+            cursorId = Long.valueOf(cursor[2]);
+        }
+
+        // Fetch one extra row to know whether another page follows
+        List<NotificationDto> notifications = new ArrayList<>(pageSize + 1);
+        if (!cursorRead) {
+            notifications.addAll(notificationRepository.findInboxPage(userId, false, typeFilter, metricTypeFilter,
+                    start, cursorTime, cursorId, PageRequest.of(0, pageSize + 1)));
+            cursorTime = LATEST_NOTIFICATION_TIME;
+            cursorId = Long.MAX_VALUE;
+        }
+        boolean unreadOnly = Boolean.TRUE.equals(unread);
+        if (!unreadOnly && notifications.size() <= pageSize) {
+            notifications.addAll(notificationRepository.findInboxPage(userId, true, typeFilter, metricTypeFilter,
+                    start, cursorTime, cursorId, PageRequest.of(0, pageSize + 1 - notifications.size())));
+        }
+
+        String nextCursor = null;
+        if (notifications.size() > pageSize) {
+            notifications = notifications.subList(0, pageSize);
+            nextCursor = encodeCursor(notifications.get(pageSize - 1));
+        }
+        return new NotificationPageDto(notifications, nextCursor);
+    }
+
+    @Override
+    public long countUnreadNotifications(Long userId) {
+        return notificationRepository.countUnreadByUserId(userId);
+    }
+
+    /**
+     * Opaque page cursor holding the (isRead, timestamp, id) of the last notification on a page
+     */
+    private static String encodeCursor(NotificationDto notification) {
+        String cursor = notification.isRead() + "|" + notification.getTimestamp() + "|" + notification.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (!"true".equals(parts[0]) && !"false".equals(parts[0])) {
+                throw new IllegalArgumentException(parts[0]);
+            }
+            LocalDateTime.parse(parts[1]);
+            Long.valueOf(parts[2]);
+            return parts;
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid notification cursor: " + cursor);
+        }
     }
 
     @Override
@@ -307,15 +378,76 @@ public class NotificationServiceImpl implements NotificationService {
         notificationRepository.save(notification);
     }
 
+    /**
+     * Mark every unread notification of the user read, in one UPDATE
+     */
+    @Override
+    @Transactional
+    public int markAllNotificationsAsRead(Long userId) {
+        return notificationRepository.markAllReadByUserId(userId);
+    }
+
+    /**
+     * Mark several of the user's notifications read, in one UPDATE
+     */
+    @Override
+    @Transactional
+    public int markNotificationsAsRead(Long userId, Collection<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        if (notificationIds.size() > MAX_BULK_IDS) {
+            throw new RuntimeException("Cannot mark more than " + MAX_BULK_IDS + " notifications at once");
+        }
+        return notificationRepository.markReadByUserIdAndIdIn(userId, notificationIds);
+    }
+
     @Override
     public NotificationDto createNotification(NotificationDto notificationDto) {
-        User user = userRepository.findById(notificationDto.getUserId())
+        User user = userReferenceCache.findReference(notificationDto.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Notification notification = NotificationMapper.mapToNotification(notificationDto, user);
-        Notification savedNotification = notificationRepository.save(notification);
+        Notification savedNotification = saveNotification(notification);
         return NotificationMapper.mapToNotificationDto(savedNotification);
     }
 
+    /**
+     * Create many notifications at once: users are resolved through the user reference cache, with at most
+     * one IN query for users it does not know, and the rows are inserted through JDBC batches.
+     * Notifications for unknown users are skipped.
+     */
+    @Override
+    @Transactional
+    public List<NotificationDto> createNotifications(Collection<NotificationDto> notificationDtos) {
+        if (notificationDtos.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> userIds = notificationDtos.stream()
+                .map(NotificationDto::getUserId)
+                .collect(Collectors.toSet());
+        Map<Long, User> users = userReferenceCache.findReferences(userIds);
+
+        List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+        for (NotificationDto notificationDto : notificationDtos) {
+            User user = users.get(notificationDto.getUserId());
+            if (user == null) {
+                log.atWarn().setMessage("Skipping notification for missing user")
+                        .addKeyValue("userId", notificationDto.getUserId())
+                        .addKeyValue("type", notificationDto.getType())
+                        .log();
+                continue;
+            }
+            notifications.add(NotificationMapper.mapToNotification(notificationDto, user));
+        }
+
+        List<Notification> savedNotifications = notificationRepository.saveAll(notifications);
+        savedNotifications.forEach(this::recordSent);
+        return savedNotifications.stream()
+                .map(NotificationMapper::mapToNotificationDto)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public NotificationDto updateNotification(Long notificationId, NotificationDto notificationDto) {
         Notification existingNotification = notificationRepository.findById(notificationId)
@@ -335,4 +467,16 @@ public class NotificationServiceImpl implements NotificationService {
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
         notificationRepository.delete(notification);
     }
+
+    /**
+     * Delete the user's notifications matching the filters, in one DELETE; a null filter matches anything
+     */
+    @Override
+    @Transactional
+    public int deleteNotifications(Long userId, Boolean read, String type, String metricType, LocalDateTime before) {
+        return notificationRepository.deleteByUserIdAndFilter(userId, read,
+                type == null || type.isEmpty() ? null : type,
+                metricType == null || metricType.isEmpty() ? null : metricType,
+                before);
+    }
 }
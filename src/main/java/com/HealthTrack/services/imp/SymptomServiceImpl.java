@@ -1,16 +1,27 @@
 package com.HealthTrack.services.imp;
 
+import com.HealthTrack.cache.UserReferenceCache;
 import com.HealthTrack.dtos.SymptomDto;
 import com.HealthTrack.dtos.NotificationDto;
 import com.HealthTrack.mapper.SymptomMapper;
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
 import com.HealthTrack.models.Symptom;
 import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
 import com.HealthTrack.repositories.SymptomRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.rules.HealthRuleEngine;
+import com.HealthTrack.rules.SymptomPatternDetector;
+import com.HealthTrack.rules.SymptomPatternDetector.SymptomPatterns;
+import com.HealthTrack.scheduling.OutboxEventHandler;
 import com.HealthTrack.services.SymptomService;
 import com.HealthTrack.services.NotificationService;
+import com.HealthTrack.templates.MessageTemplates;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -18,21 +29,28 @@ import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
-public class SymptomServiceImpl implements SymptomService {
+@Slf4j
+@Timed("healthtrack.service")
+public class SymptomServiceImpl implements SymptomService, OutboxEventHandler {
     private SymptomRepository symptomRepository;
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
     private NotificationService notificationService;
+    private NotificationOutboxRepository notificationOutboxRepository;
+    private HealthRuleEngine healthRuleEngine;
+    private SymptomPatternDetector symptomPatternDetector;
+    private MessageTemplates messageTemplates;
 
     @Override
+    @Transactional
     public SymptomDto createSymptom(SymptomDto symptomDto) {
-        User user = userRepository.findById(symptomDto.getUserId())
+        User user = userReferenceCache.findReference(symptomDto.getUserId())
                 .orElseThrow(() -> new RuntimeException("User with ID " + symptomDto.getUserId() + " not found"));
 
         Symptom symptom = SymptomMapper.mapToSymptom(symptomDto, user);
         Symptom savedSymptom = symptomRepository.save(symptom);
 
-        // Send symptom-related notifications
-        sendSymptomNotifications(savedSymptom);
+        // Symptom-related notifications are generated in the background, from an event committed with the symptom
+        notificationOutboxRepository.save(NotificationOutbox.pending(OutboxEventType.SYMPTOM_CREATED, savedSymptom.getId()));
 
         return SymptomMapper.mapToSymptomDto(savedSymptom);
     }
@@ -65,10 +83,11 @@ public class SymptomServiceImpl implements SymptomService {
         symptom.setTimestamp(symptomDto.getTimestamp());
 
         Symptom updatedSymptom = symptomRepository.save(symptom);
+        symptomPatternDetector.invalidate(userIdOf(updatedSymptom));
 
         // Send notifications for significant changes
         if (updatedSymptom.getSeverity() - oldSeverity >= 3) {
-            createSymptomNotification(updatedSymptom.getUser(),
+            saveSymptomNotification(updatedSymptom.getUser(),
                     buildDeteriorationMessage(updatedSymptom, oldSeverity),
                     "SymptomDeterioration",
                     updatedSymptom.getSymptomType());
@@ -82,142 +101,185 @@ public class SymptomServiceImpl implements SymptomService {
         Symptom symptom = symptomRepository.findById(idSymptom)
                 .orElseThrow(() -> new RuntimeException("Symptom not found"));
         symptomRepository.deleteById(idSymptom);
+        symptomPatternDetector.invalidate(userIdOf(symptom));
+    }
+
+    private Long userIdOf(Symptom symptom) {
+        return symptom.getUser() != null ? symptom.getUser().getId() : null;
+    }
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.SYMPTOM_CREATED;
+    }
+
+    /**
+     * Generate the notifications for a newly logged symptom, dispatched from the outbox
+     */
+    @Override
+    public void handle(NotificationOutbox event) {
+        // Nothing to announce if the symptom was deleted before the event was dispatched
+        symptomRepository.findById(event.getAggregateId()).ifPresent(this::sendSymptomNotifications);
     }
 
     /**
-     * Send basic symptom notifications without repository dependencies
+     * Send basic symptom notifications
+     * Errors propagate so the outbox retries the event
      */
     private void sendSymptomNotifications(Symptom symptom) {
-        try {
-            // High severity notification (7-10)
-            if (symptom.getSeverity() >= 7) {
-                String message = buildHighSeverityMessage(symptom);
-                createSymptomNotification(symptom.getUser(), message, "HighSeveritySymptom", symptom.getSymptomType());
-                System.out.println("High severity notification sent for: " + symptom.getSymptomType());
-            }
+        List<NotificationDto> notifications = new ArrayList<>();
 
-            // Critical symptom type notification
-            sendCriticalSymptomNotification(symptom);
+        // High severity notification (7-10)
+        if (symptom.getSeverity() >= 7) {
+            String message = buildHighSeverityMessage(symptom);
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "HighSeveritySymptom", symptom.getSymptomType()));
+            logRuleFired("HighSeveritySymptom", symptom);
+        }
 
-            // Basic recurring pattern check using existing methods
-            checkForBasicPatterns(symptom);
+        // Critical symptom type notification
+        sendCriticalSymptomNotification(symptom, notifications);
 
-        } catch (Exception e) {
-            System.out.println("Error sending notifications: " + e.getMessage());
-        }
+        // Basic recurring pattern check using existing methods
+        checkForBasicPatterns(symptom, notifications);
+
+        notificationService.createNotifications(notifications);
+        logNotificationsCreated(notifications);
     }
 
     /**
      * Check for critical symptom types
      */
-    private void sendCriticalSymptomNotification(Symptom symptom) {
-        Set<String> criticalSymptoms = Set.of(
-                "Chest Pain", "Severe Headache", "Difficulty Breathing",
-                "Sudden Vision Loss", "Severe Abdominal Pain", "Numbness", "Confusion"
-        );
-
-        if (criticalSymptoms.contains(symptom.getSymptomType())) {
-            String message = String.format("🚨 CRITICAL SYMPTOM ALERT: You've reported %s. " +
-                            "This type of symptom can be serious and may require immediate medical evaluation. " +
-                            "Severity: %d/10. Description: %s. Please consider contacting a healthcare provider.",
-                    symptom.getSymptomType().toLowerCase(),
+    private void sendCriticalSymptomNotification(Symptom symptom, List<NotificationDto> notifications) {
+        if (healthRuleEngine.isCriticalSymptom(symptom.getSymptomType())) {
+            String message = messageTemplates.render("symptom.critical",
+                    symptom.getSymptomType(),
                     symptom.getSeverity(),
                     symptom.getDescription());
 
-            createSymptomNotification(symptom.getUser(), message, "CriticalSymptom", symptom.getSymptomType());
-            System.out.println("Critical symptom notification sent for: " + symptom.getSymptomType());
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "CriticalSymptom", symptom.getSymptomType()));
+            logRuleFired("CriticalSymptom", symptom);
         }
     }
 
     /**
-     * Basic pattern detection using existing repository methods
+     * Check the user's recent symptoms for recurring, co-occurring and worsening patterns
      */
-    private void checkForBasicPatterns(Symptom symptom) {
-        try {
-            List<Symptom> allUserSymptoms = symptomRepository.findByUserId(symptom.getUser().getId());
-
-            // Check for recurring symptoms (same type in last week)
-            LocalDateTime oneWeekAgo = LocalDateTime.now().minusWeeks(1);
-            long sameSymptomCount = allUserSymptoms.stream()
-                    .filter(s -> s.getSymptomType().equals(symptom.getSymptomType()))
-                    .filter(s -> s.getTimestamp().isAfter(oneWeekAgo))
-                    .count();
-
-            if (sameSymptomCount >= 3) {
-                String message = String.format("📋 RECURRING PATTERN: You've logged %s %d times in the past week. " +
-                                "Consider discussing recurring symptoms with your healthcare provider.",
-                        symptom.getSymptomType().toLowerCase(), (int) sameSymptomCount);
-
-                createSymptomNotification(symptom.getUser(), message, "RecurringSymptom", symptom.getSymptomType());
-                System.out.println("Recurring pattern notification sent for: " + symptom.getSymptomType());
-            }
-
-            // Check for multiple symptoms today
-            LocalDateTime today = LocalDateTime.now().minusHours(24);
-            Set<String> todaySymptomTypes = allUserSymptoms.stream()
-                    .filter(s -> s.getTimestamp().isAfter(today))
-                    .map(Symptom::getSymptomType)
-                    .collect(Collectors.toSet());
-
-            if (todaySymptomTypes.size() >= 3) {
-                String symptomList = String.join(", ", todaySymptomTypes);
-                String message = String.format("📊 MULTIPLE SYMPTOMS: You've logged %d different symptoms today: %s. " +
-                                "Consider rest and hydration. Contact healthcare provider if symptoms worsen.",
-                        todaySymptomTypes.size(), symptomList);
-
-                createSymptomNotification(symptom.getUser(), message, "MultipleSymptoms", "Multiple");
-                System.out.println("Multiple symptoms notification sent. Count: " + todaySymptomTypes.size());
-            }
+    private void checkForBasicPatterns(Symptom symptom, List<NotificationDto> notifications) {
+        SymptomPatterns patterns = symptomPatternDetector.record(symptom, LocalDateTime.now());
 
-        } catch (Exception e) {
-            System.out.println("Pattern detection error: " + e.getMessage());
+        // Check for recurring symptoms (same type in last week)
+        if (patterns.sameTypeThisWeek() >= 3) {
+            String message = messageTemplates.render("symptom.recurring",
+                    symptom.getSymptomType(), patterns.sameTypeThisWeek());
+
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "RecurringSymptom", symptom.getSymptomType()));
+            logRuleFired("RecurringSymptom", symptom);
+        }
+
+        // Check for multiple symptoms today
+        Set<String> todaySymptomTypes = patterns.typesToday();
+        if (todaySymptomTypes.size() >= 3) {
+            String symptomList = String.join(", ", todaySymptomTypes);
+            String message = messageTemplates.render("symptom.multiple", todaySymptomTypes.size(), symptomList);
+
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "MultipleSymptoms", "Multiple"));
+            logRuleFired("MultipleSymptoms", symptom);
+        }
+
+        // Check for symptoms that are worth flagging together
+        for (Set<String> combination : patterns.combinationsToday()) {
+            String symptomList = String.join(" and ", new TreeSet<>(combination));
+            String message = messageTemplates.render("symptom.combination", symptomList);
+
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "SymptomCombination", symptom.getSymptomType()));
+            logRuleFired("SymptomCombination", symptom);
+        }
+
+        // Check for a symptom getting worse each time it is logged
+        if (!patterns.severityTrend().isEmpty()) {
+            String severities = patterns.severityTrend().stream()
+                    .map(severity -> messageTemplates.render("symptom.severityScore", severity))
+                    .collect(Collectors.joining(" → "));
+            String message = messageTemplates.render("symptom.trend",
+                    symptom.getSymptomType(), patterns.severityTrend().size(), severities);
+
+            notifications.add(createSymptomNotification(symptom.getUser(), message, "SymptomTrend", symptom.getSymptomType()));
+            logRuleFired("SymptomTrend", symptom);
         }
     }
 
     // Message building methods
     private String buildHighSeverityMessage(Symptom symptom) {
         String severity = getSeverityDescription(symptom.getSeverity());
-        return String.format("⚠️ HIGH SEVERITY ALERT: You've logged %s with %s severity (%d/10). " +
-                        "Description: %s. Please consider seeking medical attention if symptoms persist or worsen.",
-                symptom.getSymptomType().toLowerCase(),
+        return messageTemplates.render("symptom.highSeverity",
+                symptom.getSymptomType(),
                 severity,
                 symptom.getSeverity(),
                 symptom.getDescription());
     }
 
     private String buildDeteriorationMessage(Symptom symptom, int oldSeverity) {
-        return String.format("📈 SYMPTOM WORSENING: Your %s has worsened from %d/10 to %d/10. " +
-                        "Please monitor closely and consider seeking medical care if needed.",
-                symptom.getSymptomType().toLowerCase(),
+        return messageTemplates.render("symptom.deterioration",
+                symptom.getSymptomType(),
                 oldSeverity,
                 symptom.getSeverity());
     }
 
     private String getSeverityDescription(int severity) {
-        if (severity >= 9) return "critical";
-        if (severity >= 7) return "severe";
-        if (severity >= 5) return "moderate";
-        if (severity >= 3) return "mild";
-        return "minimal";
+        if (severity >= 9) return messageTemplates.render("symptom.severity.critical");
+        if (severity >= 7) return messageTemplates.render("symptom.severity.severe");
+        if (severity >= 5) return messageTemplates.render("symptom.severity.moderate");
+        if (severity >= 3) return messageTemplates.render("symptom.severity.mild");
+        return messageTemplates.render("symptom.severity.minimal");
     }
 
     /**
-     * Create notification using NotificationService
+     * Build a notification to be saved through NotificationService
      */
-    private void createSymptomNotification(User user, String message, String type, String metricType) {
+    private NotificationDto createSymptomNotification(User user, String message, String type, String metricType) {
+        NotificationDto notificationDto = new NotificationDto();
+        notificationDto.setMessage(message);
+        notificationDto.setType(type);
+        notificationDto.setMetricType(metricType);
+        notificationDto.setTimestamp(LocalDateTime.now());
+        notificationDto.setUserId(user.getId());
+        notificationDto.setRead(false);
+        return notificationDto;
+    }
+
+    /**
+     * Save a single notification using NotificationService
+     */
+    private void saveSymptomNotification(User user, String message, String type, String metricType) {
+        saveSymptomNotifications(List.of(createSymptomNotification(user, message, type, metricType)));
+    }
+
+    /**
+     * Save notifications in one batch using NotificationService
+     */
+    private void saveSymptomNotifications(List<NotificationDto> notifications) {
         try {
-            NotificationDto notificationDto = new NotificationDto();
-            notificationDto.setMessage(message);
-            notificationDto.setType(type);
-            notificationDto.setMetricType(metricType);
-            notificationDto.setTimestamp(LocalDateTime.now());
-            notificationDto.setUserId(user.getId());
-            notificationDto.setRead(false);
-
-            notificationService.createNotification(notificationDto);
-            System.out.println("Notification created: " + type + " for user: " + user.getId());
+            notificationService.createNotifications(notifications);
+            logNotificationsCreated(notifications);
         } catch (Exception e) {
-            System.out.println("Error creating notification: " + e.getMessage());
+            log.atWarn().setMessage("Error creating symptom notifications")
+                    .addKeyValue("notifications", notifications.size())
+                    .setCause(e).log();
         }
     }
+
+    private void logRuleFired(String type, Symptom symptom) {
+        log.atDebug().setMessage("Symptom rule fired")
+                .addKeyValue("type", type)
+                .addKeyValue("symptomId", symptom.getId())
+                .addKeyValue("symptomType", symptom.getSymptomType())
+                .log();
+    }
+
+    private void logNotificationsCreated(List<NotificationDto> notifications) {
+        notifications.forEach(notification -> log.atDebug().setMessage("Symptom notification created")
+                .addKeyValue("type", notification.getType())
+                .addKeyValue("userId", notification.getUserId())
+                .log());
+    }
 }
\ No newline at end of file
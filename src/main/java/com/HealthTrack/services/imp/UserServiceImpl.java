@@ -1,27 +1,58 @@
 package com.HealthTrack.services.imp;
 
+import com.HealthTrack.cache.CredentialCache;
+import com.HealthTrack.cache.UserReferenceCache;
+import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.SymptomDto;
 import com.HealthTrack.dtos.UserDto;
 import com.HealthTrack.mapper.UserMapper;
 import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.AppointmentRepository;
+import com.HealthTrack.repositories.HealthMetricRepository;
+import com.HealthTrack.repositories.NotificationRepository;
+import com.HealthTrack.repositories.SymptomRepository;
 import com.HealthTrack.repositories.UserRepository;
 import com.HealthTrack.services.UserService;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.net.PasswordAuthentication;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Service
+@Timed("healthtrack.service")
 public class UserServiceImpl implements UserService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final Set<String> USER_INCLUDES = Set.of("symptoms", "healthMetrics", "appointments", "notifications");
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final SymptomRepository symptomRepository;
+    private final HealthMetricRepository healthMetricRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final NotificationRepository notificationRepository;
+    private final CredentialCache credentialCache;
+    private final UserReferenceCache userReferenceCache;
+    private final HealthMetricTimeSeries healthMetricTimeSeries;
 
     @Override
     public UserDto createUser(UserDto userDto) {
@@ -43,36 +74,100 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public UserDto findUserById(Long userId) {
+        return findUserById(userId, Set.of());
+    }
+
+    @Override
+    public UserDto findUserById(Long userId, Set<String> includes) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return UserMapper.mapToUserTdo(user);
+        UserDto userDto = UserMapper.mapToUserTdo(user);
+        addIncludes(List.of(userDto), includes);
+        return userDto;
     }
 
     @Override
-    public List<UserDto> findAllUser() {
-        return userRepository.findAll().stream()
+    public List<UserDto> findAllUser(Integer page, Integer size, Set<String> includes) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = page == null ? 0 : Math.max(0, page);
+
+        List<UserDto> users = userRepository.findUserSummaries(PageRequest.of(pageNumber, pageSize)).stream()
                 .map(UserMapper::mapToUserTdo)
                 .collect(Collectors.toList());
+        addIncludes(users, includes);
+        return users;
+    }
+
+    /**
+     * Fill in the requested related records with one query per kind of record, however many users there are
+     */
+    private void addIncludes(List<UserDto> users, Set<String> includes) {
+        if (includes == null || includes.isEmpty()) {
+            return;
+        }
+        Set<String> unknown = new HashSet<>(includes);
+        unknown.removeAll(USER_INCLUDES);
+        if (!unknown.isEmpty()) {
+            throw new RuntimeException("Unknown include: " + String.join(", ", unknown));
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        List<Long> userIds = users.stream().map(UserDto::getId).collect(Collectors.toList());
+        if (includes.contains("symptoms")) {
+            include(users, symptomRepository.findSymptomDtosByUserIdIn(userIds), SymptomDto::getUserId, UserDto::setSymptoms);
+        }
+        if (includes.contains("healthMetrics")) {
+            include(users, healthMetricRepository.findHealthMetricDtosByUserIdIn(userIds), HealthMetricDto::getUserId,
+                    UserDto::setHealthMetrics);
+        }
+        if (includes.contains("appointments")) {
+            include(users, appointmentRepository.findAppointmentDtosByUserIdIn(userIds), AppointmentDto::getUserId,
+                    UserDto::setAppointments);
+        }
+        if (includes.contains("notifications")) {
+            include(users, notificationRepository.findNotificationDtosByUserIdIn(userIds), NotificationDto::getUserId,
+                    UserDto::setNotifications);
+        }
+    }
+
+    private static <T> void include(List<UserDto> users, List<T> records, Function<T, Long> userId,
+                                    BiConsumer<UserDto, List<T>> setter) {
+        Map<Long, List<T>> recordsByUser = records.stream().collect(Collectors.groupingBy(userId));
+        for (UserDto user : users) {
+            setter.accept(user, recordsByUser.getOrDefault(user.getId(), new ArrayList<>()));
+        }
     }
 
     @Override
     public UserDto updateUser(Long userId, UserDto userDto) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        String previousUsername = user.getUsername();
         user.setUsername(userDto.getUsername());
-        user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+        // The password is never sent back, so an update without one keeps the current password
+        if (userDto.getPassword() != null) {
+            user.setPassword(passwordEncoder.encode(userDto.getPassword()));
+        }
         user.setEmail(userDto.getEmail());
         user.setPhoneNumber(userDto.getPhoneNumber());
         User updatedUser = userRepository.save(user);
+        // Cached logins were verified against the old username and password
+        credentialCache.invalidate(previousUsername);
+        credentialCache.invalidate(updatedUser.getUsername());
         return UserMapper.mapToUserTdo(updatedUser);
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new RuntimeException("User not found");
-        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        healthMetricTimeSeries.deleteUserData(userId);
         userRepository.deleteById(userId);
+        credentialCache.invalidate(user.getUsername());
+        userReferenceCache.invalidate(userId);
     }
 }
 
@@ -0,0 +1,247 @@
+package com.HealthTrack.templates;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * A message parsed once into literal text and argument segments, rendered by appending each segment in turn.
+ *
+ * Placeholders are written {0}, {0,lower}, {0,fixed,2} (two decimals, rounded half up) or {0,date,name},
+ * where name is a date format defined alongside the templates. Formatters and number symbols are resolved
+ * for the template's locale when it is compiled, so rendering parses nothing and looks nothing up.
+ */
+public final class MessageTemplate {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    // Past this, scaled values no longer fit the fast path exactly
+    private static final double MAX_FAST_FIXED = 1e9;
+    // Room left for each placeholder when sizing the builder; names, numbers and dates mostly fit
+    private static final int PLACEHOLDER_ALLOWANCE = 24;
+
+    private final String id;
+    private final Segment[] segments;
+    private final int argumentCount;
+    private final String constant;
+    private final int sizeHint;
+
+    private MessageTemplate(String id, Segment[] segments, int argumentCount) {
+        this.id = id;
+        this.segments = segments;
+        this.argumentCount = argumentCount;
+        int literalLength = 0;
+        int placeholders = 0;
+        for (Segment segment : segments) {
+            if (segment instanceof Literal literal) {
+                literalLength += literal.text().length();
+            } else {
+                placeholders++;
+            }
+        }
+        this.sizeHint = literalLength + placeholders * PLACEHOLDER_ALLOWANCE;
+        this.constant = argumentCount == 0 ? append(new StringBuilder(sizeHint), new Object[0]).toString() : null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * How many arguments the template uses, i.e. one more than its highest placeholder index
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Render the template into a builder sized for it up front, so it rarely grows; templates without
+     * arguments return their text as is
+     */
+    String render(Object[] args) {
+        if (constant != null) {
+            return constant;
+        }
+        if (args.length < argumentCount) {
+            throw new RuntimeException("Message template " + id + " needs " + argumentCount + " arguments, got " + args.length);
+        }
+        return append(new StringBuilder(sizeHint), args).toString();
+    }
+
+    private StringBuilder append(StringBuilder out, Object[] args) {
+        for (Segment segment : segments) {
+            segment.appendTo(out, args);
+        }
+        return out;
+    }
+
+    /**
+     * Parse template text for a locale; dateFormats resolves the names used by date placeholders
+     */
+    static MessageTemplate compile(String id, String text, Locale locale, Function<String, DateTimeFormatter> dateFormats) {
+        List<Segment> segments = new ArrayList<>();
+        int argumentCount = 0;
+        char decimalSeparator = DecimalFormatSymbols.getInstance(locale).getDecimalSeparator();
+
+        int position = 0;
+        while (position < text.length()) {
+            int open = text.indexOf('{', position);
+            int close = text.indexOf('}', position);
+            if (open < 0) {
+                if (close >= 0) {
+                    throw new RuntimeException("Unmatched } in message template " + id);
+                }
+                segments.add(new Literal(text.substring(position)));
+                break;
+            }
+            if (close < open) {
+                throw new RuntimeException("Unmatched " + (close < 0 ? "{" : "}") + " in message template " + id);
+            }
+            if (open > position) {
+                segments.add(new Literal(text.substring(position, open)));
+            }
+
+            // Index, kind and the kind's option; date format names and patterns may themselves contain commas
+            String[] parts = text.substring(open + 1, close).split(",", 3);
+            int index;
+            try {
+                index = Integer.parseInt(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid placeholder {" + text.substring(open + 1, close) + "} in message template " + id);
+            }
+            if (index < 0) {
+                throw new RuntimeException("Negative placeholder index in message template " + id);
+            }
+            argumentCount = Math.max(argumentCount, index + 1);
+            segments.add(placeholder(id, index, parts, locale, decimalSeparator, dateFormats));
+            position = close + 1;
+        }
+        return new MessageTemplate(id, segments.toArray(new Segment[0]), argumentCount);
+    }
+
+    private static Segment placeholder(String id, int index, String[] parts, Locale locale, char decimalSeparator,
+                                       Function<String, DateTimeFormatter> dateFormats) {
+        String kind = parts.length > 1 ? parts[1].trim() : "";
+        String option = parts.length > 2 ? parts[2].trim() : "";
+        switch (kind) {
+            case "":
+                return new Argument(index);
+            case "lower":
+                return new LowerCase(index, locale);
+            case "fixed":
+                int decimals;
+                try {
+                    decimals = Integer.parseInt(option);
+                } catch (NumberFormatException e) {
+                    decimals = -1;
+                }
+                if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+                    throw new RuntimeException("Fixed placeholders take 0 to " + (POWERS_OF_TEN.length - 1) +
+                            " decimals, got '" + option + "' in message template " + id);
+                }
+                return new Fixed(index, decimals, decimalSeparator);
+            case "date":
+                DateTimeFormatter formatter = dateFormats.apply(option);
+                if (formatter == null) {
+                    throw new RuntimeException("Unknown date format '" + option + "' in message template " + id);
+                }
+                return new Date(index, formatter);
+            default:
+                throw new RuntimeException("Unknown placeholder kind '" + kind + "' in message template " + id);
+        }
+    }
+
+    private interface Segment {
+        void appendTo(StringBuilder out, Object[] args);
+    }
+
+    private record Literal(String text) implements Segment {
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            out.append(text);
+        }
+    }
+
+    private record Argument(int index) implements Segment {
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            Object value = args[index];
+            // Whole numbers are appended as digits, without an intermediate string
+            if (value instanceof Integer || value instanceof Long) {
+                out.append(((Number) value).longValue());
+            } else {
+                out.append(value);
+            }
+        }
+    }
+
+    private record LowerCase(int index, Locale locale) implements Segment {
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            out.append(String.valueOf(args[index]).toLowerCase(locale));
+        }
+    }
+
+    private record Fixed(int index, int decimals, char decimalSeparator) implements Segment {
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            appendFixed(out, ((Number) args[index]).doubleValue(), decimals, decimalSeparator);
+        }
+    }
+
+    private record Date(int index, DateTimeFormatter formatter) implements Segment {
+        @Override
+        public void appendTo(StringBuilder out, Object[] args) {
+            formatter.formatTo((TemporalAccessor) args[index], out);
+        }
+    }
+
+    /**
+     * Append a number with a fixed count of decimals, rounded half up from its shortest decimal form
+     * like String.format does
+     */
+    static void appendFixed(StringBuilder out, double value, int decimals, char decimalSeparator) {
+        if (!Double.isFinite(value)) {
+            out.append(value);
+            return;
+        }
+
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * POWERS_OF_TEN[decimals];
+        double fraction = scaled - Math.floor(scaled);
+        long digits;
+        // Values close to a tie may round differently in binary than in decimal, so only those pay for BigDecimal
+        if (magnitude < MAX_FAST_FIXED && Math.abs(fraction - 0.5) > 1e-6) {
+            digits = Math.round(scaled);
+        } else {
+            BigDecimal rounded = BigDecimal.valueOf(magnitude).setScale(decimals, RoundingMode.HALF_UP);
+            if (magnitude >= MAX_FAST_FIXED) {
+                if (value < 0) {
+                    out.append('-');
+                }
+                out.append(rounded.toPlainString().replace('.', decimalSeparator));
+                return;
+            }
+            digits = rounded.unscaledValue().longValue();
+        }
+
+        if (value < 0) {
+            out.append('-');
+        }
+        long unit = POWERS_OF_TEN[decimals];
+        out.append(digits / unit);
+        if (decimals > 0) {
+            out.append(decimalSeparator);
+            long fractionDigits = digits % unit;
+            for (long pad = unit / 10; pad > 1 && fractionDigits < pad; pad /= 10) {
+                out.append('0');
+            }
+            out.append(fractionDigits);
+        }
+    }
+}
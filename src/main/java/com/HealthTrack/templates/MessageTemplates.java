@@ -0,0 +1,157 @@
+package com.HealthTrack.templates;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Notification message templates, loaded from properties files and compiled once at startup.
+ *
+ * The base file (e.g. notifications.properties) holds every template; files with a locale suffix
+ * (notifications_fr.properties, notifications_fr_CA.properties) override some of them for that locale, falling
+ * back to the language and then the base file for the rest. Keys starting with "format." define the date
+ * patterns that templates refer to by name, so a locale can change how dates read without touching the
+ * messages. Unlike a MessageSource, nothing is parsed or formatted by pattern per message: each template is a
+ * segment array, rendered into a local builder sized from the template. Most messages are rendered by outbox
+ * handlers, each on a new virtual thread, so a per-thread buffer would never be reused there.
+ */
+@Component
+@Slf4j
+public class MessageTemplates {
+
+    public static final String DEFAULT_LOCATION = "classpath:messages/notifications";
+
+    private static final String FORMAT_PREFIX = "format.";
+    private static final String EXTENSION = ".properties";
+
+    private final Locale defaultLocale;
+    private final Map<Locale, Map<String, MessageTemplate>> templatesByLocale;
+    private final Map<String, MessageTemplate> baseTemplates;
+    // Which compiled templates a requested locale ends up using, worked out once per locale
+    private final Map<Locale, Map<String, MessageTemplate>> resolved = new ConcurrentHashMap<>();
+
+    public MessageTemplates(ResourceLoader resourceLoader,
+                            @Value("${healthtrack.templates.location:" + DEFAULT_LOCATION + "}") String location,
+                            @Value("${healthtrack.templates.locale:en}") Locale defaultLocale) {
+        this.defaultLocale = defaultLocale;
+
+        ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        Properties base = read(resolver.getResource(location + EXTENSION));
+        Map<Locale, Properties> overrides = new HashMap<>();
+        String baseName = location.substring(location.lastIndexOf('/') + 1);
+        try {
+            for (Resource resource : resolver.getResources(location + "_*" + EXTENSION)) {
+                // The suffix may hold language and country, as in fr_CA
+                String name = resource.getFilename();
+                String suffix = name.substring(baseName.length() + 1, name.length() - EXTENSION.length());
+                overrides.put(Locale.forLanguageTag(suffix.replace('_', '-')), read(resource));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list message templates for " + location, e);
+        }
+
+        // The base templates render with the default locale's formats and symbols
+        this.baseTemplates = compile(base, defaultLocale);
+        this.templatesByLocale = new HashMap<>();
+        overrides.forEach((locale, properties) -> {
+            Properties merged = new Properties();
+            merged.putAll(base);
+            Properties language = overrides.get(Locale.of(locale.getLanguage()));
+            if (language != null && !locale.getCountry().isEmpty()) {
+                merged.putAll(language);
+            }
+            merged.putAll(properties);
+            templatesByLocale.put(locale, compile(merged, locale));
+        });
+
+        log.atInfo().setMessage("Loaded message templates")
+                .addKeyValue("location", location)
+                .addKeyValue("templates", baseTemplates.size())
+                .addKeyValue("locales", templatesByLocale.keySet())
+                .log();
+    }
+
+    /**
+     * Render a template in the default locale
+     */
+    public String render(String id, Object... args) {
+        return render(defaultLocale, id, args);
+    }
+
+    /**
+     * Render a template in the given locale, or the closest one there are templates for
+     */
+    public String render(Locale locale, String id, Object... args) {
+        MessageTemplate template = templatesFor(locale).get(id);
+        if (template == null) {
+            throw new RuntimeException("No message template " + id);
+        }
+        return template.render(args);
+    }
+
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * The templates for a locale: its own, else its language's, else the base templates; the default locale
+     * resolves the same way
+     */
+    private Map<String, MessageTemplate> templatesFor(Locale locale) {
+        return resolved.computeIfAbsent(locale == null ? defaultLocale : locale, requested -> {
+            Map<String, MessageTemplate> templates = templatesByLocale.get(requested);
+            if (templates == null) {
+                templates = templatesByLocale.get(Locale.of(requested.getLanguage()));
+            }
+            return templates != null ? templates : baseTemplates;
+        });
+    }
+
+    private static Map<String, MessageTemplate> compile(Properties properties, Locale locale) {
+        Map<String, DateTimeFormatter> dateFormats = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(FORMAT_PREFIX)) {
+                try {
+                    dateFormats.put(key.substring(FORMAT_PREFIX.length()),
+                            DateTimeFormatter.ofPattern(properties.getProperty(key), locale));
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("Invalid date format " + key + " for locale " + locale, e);
+                }
+            }
+        }
+
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(FORMAT_PREFIX)) {
+                templates.put(key, MessageTemplate.compile(key, properties.getProperty(key), locale, dateFormats::get));
+            }
+        }
+        return Map.copyOf(templates);
+    }
+
+    private static Properties read(Resource resource) {
+        Properties properties = new Properties();
+        // UTF-8 rather than the ISO-8859-1 properties default, so messages can hold any character as is
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read message templates from " + resource.getDescription(), e);
+        }
+        return properties;
+    }
+}
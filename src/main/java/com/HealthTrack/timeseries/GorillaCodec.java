@@ -0,0 +1,219 @@
+package com.HealthTrack.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Compresses a run of (timestamp, value) samples the way Facebook's Gorilla does.
+ *
+ * Timestamps are stored as the change in the gap between samples (delta-of-delta), so a regular sampling
+ * interval costs one bit per sample. Values are XORed with the previous value and only the bits that
+ * changed are stored, reusing the previous sample's leading/trailing zero window when it fits.
+ * Layout: sample count (32 bits), first timestamp and value raw (64 bits each), then one encoded
+ * timestamp and value per remaining sample.
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    public record DecodedBlock(long[] timestamps, double[] values) {
+    }
+
+    /**
+     * Encode samples; timestamps must be in ascending order
+     */
+    public static byte[] encode(long[] timestamps, double[] values) {
+        if (timestamps.length != values.length) {
+            throw new IllegalArgumentException("Got " + timestamps.length + " timestamps for " + values.length + " values");
+        }
+        int count = timestamps.length;
+        BitWriter out = new BitWriter(16 + count * 4);
+        out.writeBits(count, 32);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+
+        out.writeBits(timestamps[0], 64);
+        out.writeBits(Double.doubleToRawLongBits(values[0]), 64);
+
+        long previousTimestamp = timestamps[0];
+        long previousDelta = 0;
+        long previousValue = Double.doubleToRawLongBits(values[0]);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            long delta = timestamps[i] - previousTimestamp;
+            if (delta < 0) {
+                throw new IllegalArgumentException("Timestamps must be in ascending order");
+            }
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previousDelta = delta;
+            previousTimestamp = timestamps[i];
+
+            long value = Double.doubleToRawLongBits(values[i]);
+            long xor = value ^ previousValue;
+            previousValue = value;
+            if (xor == 0) {
+                out.writeBit(false);
+                continue;
+            }
+            out.writeBit(true);
+
+            // Leading zeros are stored in 5 bits, so anything above 31 is stored as 31
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significantBits = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                // 1-64 significant bits, stored as 0-63
+                out.writeBits(significantBits - 1, 6);
+                out.writeBits(xor >>> trailing, significantBits);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static DecodedBlock decode(byte[] data) {
+        BitReader in = new BitReader(data);
+        int count = (int) in.readBits(32);
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        if (count == 0) {
+            return new DecodedBlock(timestamps, values);
+        }
+
+        timestamps[0] = in.readBits(64);
+        long previousValue = in.readBits(64);
+        values[0] = Double.longBitsToDouble(previousValue);
+
+        long previousDelta = 0;
+        int previousLeading = 0;
+        int previousTrailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            long delta = previousDelta + readDeltaOfDelta(in);
+            timestamps[i] = timestamps[i - 1] + delta;
+            previousDelta = delta;
+
+            if (in.readBit()) {
+                long xor;
+                if (!in.readBit()) {
+                    xor = in.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    int leading = (int) in.readBits(5);
+                    int significantBits = (int) in.readBits(6) + 1;
+                    int trailing = 64 - leading - significantBits;
+                    xor = in.readBits(significantBits) << trailing;
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+                previousValue ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previousValue);
+        }
+        return new DecodedBlock(timestamps, values);
+    }
+
+    /**
+     * 0 -> '0'; [-63, 64] -> '10' + 7 bits; [-255, 256] -> '110' + 9 bits; [-2047, 2048] -> '1110' + 12 bits;
+     * anything else -> '1111' + 64 bits
+     */
+    private static void writeDeltaOfDelta(BitWriter out, long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            out.writeBit(false);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(deltaOfDelta + 2047, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.readBits(7) - 63;
+        }
+        if (!in.readBit()) {
+            return in.readBits(9) - 255;
+        }
+        if (!in.readBit()) {
+            return in.readBits(12) - 2047;
+        }
+        return in.readBits(64);
+    }
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private int bitPosition;
+
+        BitWriter(int initialBytes) {
+            buffer = new byte[Math.max(initialBytes, 16)];
+        }
+
+        void writeBit(boolean bit) {
+            if ((bitPosition >>> 3) == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            if (bit) {
+                buffer[bitPosition >>> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+            }
+            bitPosition++;
+        }
+
+        /**
+         * Write the low bitCount bits of value, most significant first
+         */
+        void writeBits(long value, int bitCount) {
+            for (int i = bitCount - 1; i >= 0; i--) {
+                writeBit(((value >>> i) & 1) != 0);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (bitPosition + 7) >>> 3);
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private int bitPosition;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean readBit() {
+            if ((bitPosition >>> 3) >= buffer.length) {
+                throw new IllegalArgumentException("Truncated block");
+            }
+            boolean bit = (buffer[bitPosition >>> 3] & (0x80 >>> (bitPosition & 7))) != 0;
+            bitPosition++;
+            return bit;
+        }
+
+        long readBits(int bitCount) {
+            long value = 0;
+            for (int i = 0; i < bitCount; i++) {
+                value = (value << 1) | (readBit() ? 1 : 0);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.HealthTrack.timeseries;
+
+import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.HealthMetricBlock;
+import com.HealthTrack.models.HealthMetricRollup;
+import com.HealthTrack.models.RollupResolution;
+import com.HealthTrack.repositories.HealthMetricBlockRepository;
+import com.HealthTrack.repositories.HealthMetricRepository;
+import com.HealthTrack.repositories.HealthMetricRollupRepository;
+import com.HealthTrack.scheduling.SchedulerLease;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Time-series storage for health metrics, partitioned by user and metric type.
+ *
+ * Three tiers:
+ * - raw samples in health_metrics, which stay editable for the raw retention period (30 days by default);
+ * - compressed blocks of up to BLOCK_SIZE older samples (see GorillaCodec), written by a nightly compaction;
+ * - minute, hour and day rollups, updated incrementally as samples are recorded, for range and chart queries,
+ *   and backfilled by the compaction for series whose rollups are missing samples.
+ */
+@Component
+@Slf4j
+public class HealthMetricTimeSeries {
+
+    static final int BLOCK_SIZE = 1024;
+    private static final int COMPACTION_SERIES_PER_PAGE = 100;
+    private static final String COMPACTION_LEASE = "health-metric-compaction";
+    private static final Duration COMPACTION_LEASE_DURATION = Duration.ofHours(1);
+    private static final int BACKFILL_DAYS_PER_TRANSACTION = 7;
+
+    private final HealthMetricRepository healthMetricRepository;
+    private final HealthMetricRollupRepository rollupRepository;
+    private final HealthMetricBlockRepository blockRepository;
+    private final SchedulerLease schedulerLease;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration rawRetention;
+
+    public HealthMetricTimeSeries(HealthMetricRepository healthMetricRepository,
+                                  HealthMetricRollupRepository rollupRepository,
+                                  HealthMetricBlockRepository blockRepository,
+                                  SchedulerLease schedulerLease,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${healthtrack.metrics.raw-retention-days:30}") int rawRetentionDays) {
+        this.healthMetricRepository = healthMetricRepository;
+        this.rollupRepository = rollupRepository;
+        this.blockRepository = blockRepository;
+        this.schedulerLease = schedulerLease;
+        this.transactionTemplate = transactionTemplate;
+        this.rawRetention = Duration.ofDays(rawRetentionDays);
+    }
+
+    /**
+     * Add newly stored samples to their minute, hour and day rollups.
+     * Samples are summed per bucket first, so a batch costs one upsert per distinct bucket rather than per sample.
+     * Call from the transaction that stored the samples.
+     */
+    public void record(Collection<HealthMetric> metrics) {
+        Map<BucketKey, Aggregate> buckets = new HashMap<>();
+        for (HealthMetric metric : metrics) {
+            addToBuckets(buckets, metric.getUser().getId(), metric.getMetricType(), metric.getTimestamp(), metric.getValue());
+        }
+        buckets.forEach(this::addToRollup);
+    }
+
+    /**
+     * Recompute the rollups covering the given time from the stored samples,
+     * after a sample there was changed or removed. Call from the transaction that changed it.
+     */
+    public void rebuildRollups(Long userId, String metricType, LocalDateTime timestamp) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            LocalDateTime start = resolution.bucketStart(timestamp);
+            LocalDateTime end = resolution.nextBucket(start);
+
+            Aggregate aggregate = new Aggregate();
+            HealthMetricRepository.SampleAggregate raw = healthMetricRepository.aggregateSamples(userId, metricType, start, end);
+            if (raw != null && raw.getSampleCount() != null && raw.getSampleCount() > 0) {
+                aggregate.add(raw.getSampleCount(), raw.getValueSum(), raw.getMinValue(), raw.getMaxValue());
+            }
+            // Part of a day may already have been compacted
+            for (HealthMetricBlock block : blockRepository.findOverlapping(userId, metricType, start, end)) {
+                GorillaCodec.DecodedBlock samples = GorillaCodec.decode(block.getData());
+                long startMillis = toEpochMillis(start);
+                long endMillis = toEpochMillis(end);
+                for (int i = 0; i < samples.timestamps().length; i++) {
+                    if (samples.timestamps()[i] >= startMillis && samples.timestamps()[i] < endMillis) {
+                        aggregate.add(samples.values()[i]);
+                    }
+                }
+            }
+
+            rollupRepository.deleteRollup(userId, metricType, resolution, start);
+            if (aggregate.count > 0) {
+                addToRollup(new BucketKey(userId, metricType, resolution, start), aggregate);
+            }
+        }
+    }
+
+    /**
+     * Recompute every rollup of one series with buckets in [start, end), which must be whole days,
+     * from its raw samples and blocks
+     */
+    void rebuildRollups(Long userId, String metricType, LocalDateTime start, LocalDateTime end) {
+        Map<BucketKey, Aggregate> buckets = new HashMap<>();
+        try (Stream<HealthMetricRepository.SampleValue> samples =
+                     healthMetricRepository.streamSamples(userId, metricType, start, end)) {
+            samples.forEach(sample -> addToBuckets(buckets, userId, metricType, sample.getTimestamp(), sample.getValue()));
+        }
+        long startMillis = toEpochMillis(start);
+        long endMillis = toEpochMillis(end);
+        for (HealthMetricBlock block : blockRepository.findOverlapping(userId, metricType, start, end)) {
+            GorillaCodec.DecodedBlock samples = GorillaCodec.decode(block.getData());
+            for (int i = 0; i < samples.timestamps().length; i++) {
+                if (samples.timestamps()[i] >= startMillis && samples.timestamps()[i] < endMillis) {
+                    addToBuckets(buckets, userId, metricType, fromEpochMillis(samples.timestamps()[i]), samples.values()[i]);
+                }
+            }
+        }
+
+        rollupRepository.deleteRollups(userId, metricType, start, end);
+        buckets.forEach(this::addToRollup);
+    }
+
+    /**
+     * Remove a user's compressed blocks and rollups, which have no foreign key to the user.
+     * Call from the transaction that deletes the user.
+     */
+    public void deleteUserData(Long userId) {
+        blockRepository.deleteByUserId(userId);
+        rollupRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Rollups of one metric type with buckets starting in [from, to), oldest first
+     */
+    public List<HealthMetricRollup> findRollups(Long userId, String metricType, RollupResolution resolution,
+                                                LocalDateTime from, LocalDateTime to) {
+        return rollupRepository.findRollups(userId, metricType, resolution, resolution.bucketStart(from), to);
+    }
+
+    /**
+     * Count, sum, min and max of one series per bucket, over the whole buckets covering [from, to).
+     * Buckets are multiples of bucketSize counted from 1970-01-01 on the stored clock, so day buckets start
+     * at midnight; buckets without samples are left out. These are merged from the coarsest rollup that
+     * divides bucketSize, so the cost grows with the number of buckets rather than samples.
+     *
+     * With a percentile (0-100), the samples are also streamed to compute it per bucket, holding at most
+     * one block and the buckets it overlaps in memory. Call from a transaction.
+     */
+    public List<SeriesBucket> aggregate(Long userId, String metricType, LocalDateTime from, LocalDateTime to,
+                                        Duration bucketSize, Double percentile) {
+        long bucketMillis = bucketSize.toMillis();
+        LocalDateTime start = fromEpochMillis(Math.floorDiv(toEpochMillis(from), bucketMillis) * bucketMillis);
+        LocalDateTime end = fromEpochMillis((Math.floorDiv(toEpochMillis(to) - 1, bucketMillis) + 1) * bucketMillis);
+
+        RollupResolution resolution = RollupResolution.MINUTE;
+        for (RollupResolution candidate : RollupResolution.values()) {
+            if (bucketMillis % candidate.getDuration().toMillis() == 0) {
+                resolution = candidate;
+            }
+        }
+
+        // Rollups come back oldest first, so each bucket's rollups are adjacent
+        List<Long> bucketIndexes = new ArrayList<>();
+        List<Aggregate> aggregates = new ArrayList<>();
+        for (HealthMetricRollup rollup : rollupRepository.findRollups(userId, metricType, resolution, start, end)) {
+            long index = Math.floorDiv(toEpochMillis(rollup.getBucketStart()), bucketMillis);
+            if (bucketIndexes.isEmpty() || bucketIndexes.get(bucketIndexes.size() - 1) != index) {
+                bucketIndexes.add(index);
+                aggregates.add(new Aggregate());
+            }
+            aggregates.get(aggregates.size() - 1)
+                    .add(rollup.getSampleCount(), rollup.getValueSum(), rollup.getMinValue(), rollup.getMaxValue());
+        }
+
+        Map<Long, Double> percentiles = percentile == null ? Map.of()
+                : computePercentiles(userId, metricType, start, end, bucketMillis, percentile);
+
+        List<SeriesBucket> buckets = new ArrayList<>(aggregates.size());
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            buckets.add(new SeriesBucket(fromEpochMillis(bucketIndexes.get(i) * bucketMillis), aggregate.count,
+                    aggregate.sum, aggregate.min, aggregate.max, percentiles.get(bucketIndexes.get(i))));
+        }
+        return buckets;
+    }
+
+    /**
+     * Nearest-rank percentile of each bucket's samples, keyed by bucket index.
+     * Raw samples and blocks are both read in time order and merged, and a bucket is computed and dropped
+     * as soon as neither source can add to it any more.
+     */
+    private Map<Long, Double> computePercentiles(Long userId, String metricType, LocalDateTime start, LocalDateTime end,
+                                                 long bucketMillis, double percentile) {
+        long startMillis = toEpochMillis(start);
+        long endMillis = toEpochMillis(end);
+        NavigableMap<Long, ValueBuffer> pending = new TreeMap<>();
+        Map<Long, Double> percentiles = new HashMap<>();
+
+        try (Stream<HealthMetricRepository.SampleValue> rawSamples =
+                     healthMetricRepository.streamSamples(userId, metricType, start, end)) {
+            Iterator<HealthMetricRepository.SampleValue> raw = rawSamples.iterator();
+            HealthMetricRepository.SampleValue nextRaw = raw.hasNext() ? raw.next() : null;
+
+            for (HealthMetricBlock block : blockRepository.findOverlapping(userId, metricType, start, end)) {
+                long blockIndex = Math.floorDiv(Math.max(toEpochMillis(block.getBlockStart()), startMillis), bucketMillis);
+                while (nextRaw != null && Math.floorDiv(toEpochMillis(nextRaw.getTimestamp()), bucketMillis) < blockIndex) {
+                    long index = Math.floorDiv(toEpochMillis(nextRaw.getTimestamp()), bucketMillis);
+                    flushBefore(index, pending, percentiles, percentile);
+                    pending.computeIfAbsent(index, i -> new ValueBuffer()).add(nextRaw.getValue());
+                    nextRaw = raw.hasNext() ? raw.next() : null;
+                }
+                // Later blocks start no earlier than this one
+                flushBefore(blockIndex, pending, percentiles, percentile);
+
+                GorillaCodec.DecodedBlock samples = GorillaCodec.decode(block.getData());
+                for (int i = 0; i < samples.timestamps().length; i++) {
+                    long timestamp = samples.timestamps()[i];
+                    if (timestamp >= startMillis && timestamp < endMillis) {
+                        pending.computeIfAbsent(Math.floorDiv(timestamp, bucketMillis), index -> new ValueBuffer())
+                                .add(samples.values()[i]);
+                    }
+                }
+            }
+
+            while (nextRaw != null) {
+                long index = Math.floorDiv(toEpochMillis(nextRaw.getTimestamp()), bucketMillis);
+                flushBefore(index, pending, percentiles, percentile);
+                pending.computeIfAbsent(index, i -> new ValueBuffer()).add(nextRaw.getValue());
+                nextRaw = raw.hasNext() ? raw.next() : null;
+            }
+        }
+        flushBefore(Long.MAX_VALUE, pending, percentiles, percentile);
+        return percentiles;
+    }
+
+    private static void flushBefore(long bucketIndex, NavigableMap<Long, ValueBuffer> pending,
+                                    Map<Long, Double> percentiles, double percentile) {
+        while (!pending.isEmpty() && pending.firstKey() < bucketIndex) {
+            Map.Entry<Long, ValueBuffer> bucket = pending.pollFirstEntry();
+            percentiles.put(bucket.getKey(), bucket.getValue().percentile(percentile));
+        }
+    }
+
+    /**
+     * A user's samples that have been compacted into blocks, oldest first per metric type.
+     * Compacted samples are read-only, so they have no id.
+     */
+    public List<HealthMetricDto> findArchivedSamples(Long userId) {
+        List<HealthMetricDto> samples = new ArrayList<>();
+        for (HealthMetricBlock block : blockRepository.findByUserIdOrderByMetricTypeAscBlockStartAsc(userId)) {
+            GorillaCodec.DecodedBlock decoded = GorillaCodec.decode(block.getData());
+            for (int i = 0; i < decoded.timestamps().length; i++) {
+                samples.add(new HealthMetricDto(null, block.getMetricType(), decoded.values()[i],
+                        fromEpochMillis(decoded.timestamps()[i]), userId));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Like findArchivedSamples, but decodes one block at a time as the stream is consumed.
+     * Call from a transaction and close the stream.
+     */
+    public Stream<HealthMetricDto> streamArchivedSamples(Long userId) {
+        return blockRepository.streamBlockDataByUserId(userId).flatMap(block -> {
+            GorillaCodec.DecodedBlock decoded = GorillaCodec.decode(block.getData());
+            return IntStream.range(0, decoded.timestamps().length)
+                    .mapToObj(i -> new HealthMetricDto(null, block.getMetricType(), decoded.values()[i],
+                            fromEpochMillis(decoded.timestamps()[i]), userId));
+        });
+    }
+
+    /**
+     * Backfill missing rollups, then move raw samples older than the retention period into compressed blocks,
+     * one series at a time
+     */
+    @Scheduled(cron = "${healthtrack.metrics.compaction-cron:0 30 3 * * *}")
+    @Timed("healthtrack.metrics.compaction")
+    public void compactRawSamples() {
+        if (!schedulerLease.tryAcquire(COMPACTION_LEASE, COMPACTION_LEASE_DURATION)) {
+            return;
+        }
+        // Samples must be counted in the rollups before they are moved out of reach of the raw queries
+        if (!backfillRollups()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(rawRetention);
+        List<HealthMetricRepository.SeriesKey> series;
+        long compacted = 0;
+        do {
+            // Compacted series drop out of this query, so the first page always holds the remaining work
+            series = healthMetricRepository.findSeriesWithSamplesBefore(cutoff, PageRequest.of(0, COMPACTION_SERIES_PER_PAGE));
+            for (HealthMetricRepository.SeriesKey key : series) {
+                try {
+                    int moved;
+                    do {
+                        moved = transactionTemplate.execute(status ->
+                                compactNextBlock(key.getUserId(), key.getMetricType(), cutoff));
+                        compacted += moved;
+                    } while (moved == BLOCK_SIZE);
+                } catch (RuntimeException e) {
+                    // Stop rather than retry the same series forever; the next run picks it up again
+                    log.atError().setMessage("Error compacting health metrics")
+                            .addKeyValue("userId", key.getUserId())
+                            .addKeyValue("metricType", key.getMetricType())
+                            .setCause(e).log();
+                    return;
+                }
+            }
+        } while (series.size() == COMPACTION_SERIES_PER_PAGE);
+
+        if (compacted > 0) {
+            log.atInfo().setMessage("Compacted health metric samples")
+                    .addKeyValue("cutoff", cutoff)
+                    .addKeyValue("compacted", compacted)
+                    .log();
+        }
+    }
+
+    /**
+     * Rebuild the rollups of every series whose day rollups do not add up to its stored samples: samples stored
+     * before rollups existed, loaded straight into the table, or recorded while their day was being rebuilt.
+     * Series whose counts match are skipped, so this only does work where something is missing and is safe to
+     * run every night. Runs under the compaction lease and returns false if it stopped early.
+     */
+    boolean backfillRollups() {
+        long rebuilt = 0;
+        // Raw series first, then series that only remain in blocks; a series found twice already matches
+        for (Function<Pageable, List<HealthMetricRepository.SeriesKey>> findSeries :
+                List.<Function<Pageable, List<HealthMetricRepository.SeriesKey>>>of(
+                        healthMetricRepository::findSeries, blockRepository::findSeries)) {
+            List<HealthMetricRepository.SeriesKey> series;
+            int page = 0;
+            do {
+                // A long backfill renews the lease as it goes, and gives up if another node took it over
+                if (!schedulerLease.tryAcquire(COMPACTION_LEASE, COMPACTION_LEASE_DURATION)) {
+                    return false;
+                }
+                series = findSeries.apply(PageRequest.of(page++, COMPACTION_SERIES_PER_PAGE));
+                for (HealthMetricRepository.SeriesKey key : series) {
+                    try {
+                        if (backfillSeries(key.getUserId(), key.getMetricType())) {
+                            rebuilt++;
+                        }
+                    } catch (RuntimeException e) {
+                        log.atError().setMessage("Error backfilling health metric rollups")
+                                .addKeyValue("userId", key.getUserId())
+                                .addKeyValue("metricType", key.getMetricType())
+                                .setCause(e).log();
+                        return false;
+                    }
+                }
+            } while (series.size() == COMPACTION_SERIES_PER_PAGE);
+        }
+
+        if (rebuilt > 0) {
+            log.atInfo().setMessage("Backfilled health metric rollups")
+                    .addKeyValue("series", rebuilt)
+                    .log();
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild one series' rollups, a few days per transaction, if its day rollups do not count every stored sample.
+     * Returns whether it was rebuilt.
+     */
+    private boolean backfillSeries(Long userId, String metricType) {
+        HealthMetricRepository.SeriesSpan raw = healthMetricRepository.findSeriesSpan(userId, metricType);
+        HealthMetricRepository.SeriesSpan compacted = blockRepository.findSeriesSpan(userId, metricType);
+        long stored = raw.getSampleCount() + compacted.getSampleCount();
+        if (stored == 0 || rollupRepository.countRolledUpSamples(userId, metricType, RollupResolution.DAY) == stored) {
+            return false;
+        }
+
+        LocalDateTime first = Stream.of(raw.getFirstTimestamp(), compacted.getFirstTimestamp())
+                .filter(Objects::nonNull).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime last = Stream.of(raw.getLastTimestamp(), compacted.getLastTimestamp())
+                .filter(Objects::nonNull).max(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime end = RollupResolution.DAY.nextBucket(RollupResolution.DAY.bucketStart(last));
+        for (LocalDateTime day = RollupResolution.DAY.bucketStart(first); day.isBefore(end); ) {
+            LocalDateTime from = day;
+            LocalDateTime to = from.plusDays(BACKFILL_DAYS_PER_TRANSACTION).isBefore(end)
+                    ? from.plusDays(BACKFILL_DAYS_PER_TRANSACTION) : end;
+            transactionTemplate.executeWithoutResult(status -> rebuildRollups(userId, metricType, from, to));
+            day = to;
+        }
+        return true;
+    }
+
+    /**
+     * Move the oldest raw samples of one series before the cutoff into a block.
+     * Returns how many samples were moved; a full block means there may be more to compact.
+     */
+    int compactNextBlock(Long userId, String metricType, LocalDateTime cutoff) {
+        List<HealthMetric> samples = healthMetricRepository.findByUserIdAndMetricTypeAndTimestampBeforeOrderByTimestampAscIdAsc(
+                userId, metricType, cutoff, PageRequest.of(0, BLOCK_SIZE));
+        if (samples.isEmpty()) {
+            return 0;
+        }
+
+        long[] timestamps = new long[samples.size()];
+        double[] values = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            timestamps[i] = toEpochMillis(samples.get(i).getTimestamp());
+            values[i] = samples.get(i).getValue();
+        }
+
+        HealthMetricBlock block = new HealthMetricBlock();
+        block.setUserId(userId);
+        block.setMetricType(metricType);
+        block.setBlockStart(samples.get(0).getTimestamp());
+        block.setBlockEnd(samples.get(samples.size() - 1).getTimestamp());
+        block.setSampleCount(samples.size());
+        block.setData(GorillaCodec.encode(timestamps, values));
+        blockRepository.save(block);
+        healthMetricRepository.deleteAllInBatch(samples);
+
+        return samples.size();
+    }
+
+    private static void addToBuckets(Map<BucketKey, Aggregate> buckets, Long userId, String metricType,
+                                     LocalDateTime timestamp, double value) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            BucketKey key = new BucketKey(userId, metricType, resolution, resolution.bucketStart(timestamp));
+            buckets.computeIfAbsent(key, k -> new Aggregate()).add(value);
+        }
+    }
+
+    private void addToRollup(BucketKey key, Aggregate aggregate) {
+        rollupRepository.addToRollup(key.userId(), key.metricType(), key.resolution().name(), key.bucketStart(),
+                aggregate.count, aggregate.sum, aggregate.min, aggregate.max);
+    }
+
+    // Timestamps are stored as local date-times; blocks keep them as milliseconds on the same clock
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Statistics of one bucket of a series; percentile is null unless it was asked for
+     */
+    public record SeriesBucket(LocalDateTime start, long count, double sum, double min, double max, Double percentile) {
+
+        public double average() {
+            return sum / count;
+        }
+    }
+
+    private record BucketKey(Long userId, String metricType, RollupResolution resolution, LocalDateTime bucketStart) {
+    }
+
+    private static final class Aggregate {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            add(1, value, value, value);
+        }
+
+        void add(long count, double sum, double min, double max) {
+            this.count += count;
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+    }
+
+    private static final class ValueBuffer {
+        private double[] values = new double[16];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double percentile(double percentile) {
+            Arrays.sort(values, 0, size);
+            int rank = (int) Math.ceil(percentile / 100 * size);
+            return values[Math.max(rank, 1) - 1];
+        }
+    }
+}
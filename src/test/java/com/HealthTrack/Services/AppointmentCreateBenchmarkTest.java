@@ -0,0 +1,229 @@
+package com.HealthTrack.Services;
+
+import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.scheduling.NotificationOutboxDispatcher;
+import com.HealthTrack.services.AppointmentService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures create-appointment latency on H2 as the number of appointments held by other users grows.
+ * Each create is followed by dispatching its outbox event, so the timing covers the same-day and conflict
+ * checks too. Those only read the creating user's appointments, so the work done per create should not
+ * depend on how busy the rest of the table is. The scheduled outbox and search catch-up runs are pushed
+ * out of the way, so the test's own dispatch handles every event and nothing else reads appointments.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:appointment-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.HealthTrack.Services.AppointmentCreateBenchmarkTest$BenchmarkStatementInspector",
+        "healthtrack.outbox.poll-ms=3600000",
+        "healthtrack.search.catch-up-ms=3600000",
+        "healthtrack.search.index-dir=target/search-index/appointment-benchmark",
+        "logging.level.com.HealthTrack.Services.AppointmentCreateBenchmarkTest=DEBUG"
+})
+public class AppointmentCreateBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentCreateBenchmarkTest.class);
+
+    private static final int BACKGROUND_USERS = 200;
+    private static final int CREATES_PER_RUN = 40;
+    private static final int WARMUP_CREATES = 20;
+    private static final int BENCHMARK_DAYS = 16;
+
+    // Far enough out that the reminder sweep never picks these appointments up while the test runs
+    private final LocalDateTime benchmarkDay = LocalDateTime.now().plusDays(60).toLocalDate().atTime(9, 0);
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private NotificationOutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+    private int createdCount;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM appointments");
+        jdbcTemplate.update("DELETE FROM users");
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i <= BACKGROUND_USERS; i++) {
+            users.add(new Object[]{"bench-user-" + i, "bench" + i + "@example.com", "555-0100"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, phone_number) VALUES (?, ?, ?)", users);
+        createdCount = 0;
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'bench-user-0'", Long.class);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        BenchmarkStatementInspector.measureCurrentThread();
+    }
+
+    @Test
+    public void testAppointmentIndexCoversUserAndDate() {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                        "WHERE INDEX_NAME = 'IDX_APPOINTMENTS_USER_DATE' ORDER BY ORDINAL_POSITION", String.class);
+
+        assertEquals(Arrays.asList("USER_ID", "APPOINTMENT_DATE"), columns);
+    }
+
+    @Test
+    public void testCreateAppointmentWorkStaysFlatAsTableGrows() {
+        appendBackgroundAppointments(1_000);
+        Result small = measureCreates();
+
+        appendBackgroundAppointments(19_000);
+        Result large = measureCreates();
+
+        logResult(1_000, small);
+        logResult(20_000, large);
+
+        // Only the user, the appointment and its outbox event are loaded, however many appointments others have
+        assertEquals(small.entityLoadsPerCreate, large.entityLoadsPerCreate);
+        assertTrue(large.entityLoadsPerCreate < 8);
+        // The same statements run and read the same rows: the benchmark user's own appointments, at most a day's worth
+        assertEquals(small.statementsPerCreate, large.statementsPerCreate);
+        assertTrue(large.statementsPerCreate < 20);
+        assertEquals(small.queryRowsPerCreate, large.queryRowsPerCreate);
+        assertTrue(large.queryRowsPerCreate < 20);
+    }
+
+    /**
+     * Add appointments for other users, spread over the benchmark days so they fall inside every check window
+     */
+    private void appendBackgroundAppointments(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        Long firstBackgroundUser = userId + 1;
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{
+                    "Background " + i,
+                    "Clinic",
+                    Timestamp.valueOf(benchmarkDay.plusMinutes((i * 7L) % (BENCHMARK_DAYS * 24 * 60))),
+                    "Checkup",
+                    firstBackgroundUser + (i % BACKGROUND_USERS)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO appointments (doctor_name, location, appointment_date, reason_for_visit, user_id) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private Result measureCreates() {
+        for (int i = 0; i < WARMUP_CREATES; i++) {
+            createAppointment();
+        }
+
+        statistics.clear();
+        BenchmarkStatementInspector.clear();
+        long[] timings = new long[CREATES_PER_RUN];
+        for (int i = 0; i < CREATES_PER_RUN; i++) {
+            long start = System.nanoTime();
+            createAppointment();
+            timings[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(timings);
+
+        long queryRows = Arrays.stream(statistics.getQueries())
+                .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount())
+                .sum();
+        return new Result(timings[CREATES_PER_RUN / 2], BenchmarkStatementInspector.statements() / CREATES_PER_RUN,
+                queryRows / CREATES_PER_RUN, statistics.getEntityLoadCount() / CREATES_PER_RUN);
+    }
+
+    /**
+     * Create the next appointment for the benchmark user, 3 hours after the previous one so they never conflict
+     */
+    private void createAppointment() {
+        AppointmentDto appointmentDto = new AppointmentDto(null, "Smith", "Main Clinic",
+                benchmarkDay.plusHours(3L * createdCount++), "Follow-up", userId);
+        appointmentService.createAppointment(appointmentDto);
+        outboxDispatcher.dispatchPendingEvents();
+    }
+
+    private static void logResult(int backgroundAppointments, Result result) {
+        log.atDebug().setMessage("Create appointment benchmark")
+                .addKeyValue("backgroundAppointments", backgroundAppointments)
+                .addKeyValue("medianMicros", result.medianMicros)
+                .addKeyValue("statementsPerCreate", result.statementsPerCreate)
+                .addKeyValue("queryRowsPerCreate", result.queryRowsPerCreate)
+                .addKeyValue("entityLoadsPerCreate", result.entityLoadsPerCreate)
+                .log();
+    }
+
+    private static final class Result {
+        private final long medianMicros;
+        private final long statementsPerCreate;
+        private final long queryRowsPerCreate;
+        private final long entityLoadsPerCreate;
+
+        private Result(long medianMicros, long statementsPerCreate, long queryRowsPerCreate, long entityLoadsPerCreate) {
+            this.medianMicros = medianMicros;
+            this.statementsPerCreate = statementsPerCreate;
+            this.queryRowsPerCreate = queryRowsPerCreate;
+            this.entityLoadsPerCreate = entityLoadsPerCreate;
+        }
+    }
+
+    /**
+     * Counts the statements prepared by the test thread and the outbox handler threads it starts,
+     * leaving out the scheduled jobs that keep running on threads of their own
+     */
+    public static class BenchmarkStatementInspector implements StatementInspector {
+
+        private static final InheritableThreadLocal<Boolean> measured = new InheritableThreadLocal<>();
+        private static final AtomicLong statements = new AtomicLong();
+
+        static void measureCurrentThread() {
+            measured.set(Boolean.TRUE);
+        }
+
+        static void clear() {
+            statements.set(0);
+        }
+
+        static long statements() {
+            return statements.get();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (Boolean.TRUE.equals(measured.get())) {
+                statements.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.HealthTrack.Services;
+
+import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.services.AppointmentService;
+import com.HealthTrack.services.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Updates and deletes appointments on H2 while saving notifications fails, and checks the change still commits
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:appointment-notification-failure;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/appointment-notification-failure"
+})
+public class AppointmentNotificationFailureTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    private Long userId;
+    private Long appointmentId;
+    private final LocalDateTime appointmentDate = LocalDateTime.now().plusDays(30).withNano(0);
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM appointments");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (username, email, phone_number) VALUES ('failure-user', 'failure@example.com', '555-0100')");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'failure-user'", Long.class);
+        jdbcTemplate.update("INSERT INTO appointments (doctor_name, location, appointment_date, reason_for_visit, user_id) " +
+                "VALUES ('Dr. Smith', 'City Clinic', ?, 'Checkup', ?)", Timestamp.valueOf(appointmentDate), userId);
+        appointmentId = jdbcTemplate.queryForObject("SELECT id FROM appointments WHERE user_id = ?", Long.class, userId);
+
+        when(notificationService.createNotifications(any())).thenThrow(new RuntimeException("notifications unavailable"));
+    }
+
+    @Test
+    public void testDeleteCommitsWhenCancellationNotificationFails() {
+        appointmentService.deleteAppointment(appointmentId);
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments WHERE id = ?", Integer.class, appointmentId));
+        verify(notificationService, times(1)).createNotifications(any());
+    }
+
+    @Test
+    public void testUpdateCommitsWhenUpdateNotificationFails() {
+        appointmentService.updateAppointment(appointmentId, new AppointmentDto(appointmentId, "Dr. Jones", "City Clinic",
+                appointmentDate, "Checkup", userId));
+
+        assertEquals("Dr. Jones", jdbcTemplate.queryForObject("SELECT doctor_name FROM appointments WHERE id = ?",
+                String.class, appointmentId));
+        verify(notificationService, times(1)).createNotifications(any());
+    }
+}
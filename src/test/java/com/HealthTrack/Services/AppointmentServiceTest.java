@@ -1,25 +1,40 @@
 package com.HealthTrack.Services;
 
+import com.HealthTrack.cache.UserReferenceCache;
 import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.AppointmentPageDto;
 import com.HealthTrack.mapper.AppointmentMapper;
 import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.NotificationOutbox;
 import com.HealthTrack.models.User;
 import com.HealthTrack.repositories.AppointmentRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import com.HealthTrack.scheduling.ReminderTimingWheel;
+import com.HealthTrack.search.AppointmentSearchIndex;
 import com.HealthTrack.services.imp.AppointmentImpl;
+import com.HealthTrack.templates.MessageTemplates;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -29,7 +44,20 @@ public class AppointmentServiceTest {
     private AppointmentRepository appointmentRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
+
+    @Mock
+    private ReminderTimingWheel reminderWheel;
+
+    @Mock
+    private AppointmentSearchIndex searchIndex;
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Spy
+    private MessageTemplates messageTemplates =
+            new MessageTemplates(new DefaultResourceLoader(), MessageTemplates.DEFAULT_LOCATION, Locale.ENGLISH);
 
     @InjectMocks
     private AppointmentImpl appointmentService;
@@ -42,13 +70,16 @@ public class AppointmentServiceTest {
         AppointmentDto appointmentDto = new AppointmentDto(null, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", 1L);
         Appointment appointment = AppointmentMapper.mapToAppointment(appointmentDto, user);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userReferenceCache.findReference(1L)).thenReturn(Optional.of(user));
         when(appointmentRepository.save(any(Appointment.class))).thenReturn(appointment);
 
         AppointmentDto createdAppointment = appointmentService.createAppointment(appointmentDto);
 
         assertEquals("Dr. Smith", createdAppointment.getDoctorName());
         verify(appointmentRepository, times(1)).save(any(Appointment.class));
+        verify(reminderWheel, times(1)).schedule(appointment.getId(), appointment.getAppointmentDate());
+        verify(searchIndex, times(1)).index(appointment);
+        verify(notificationOutboxRepository, times(1)).save(any(NotificationOutbox.class));
 
     }
 
@@ -77,7 +108,7 @@ public class AppointmentServiceTest {
 
         List<Appointment> appointments = Arrays.asList(appointment1, appointment2);
 
-        when(appointmentRepository.findByUserId(userId)).thenReturn(appointments);
+        when(appointmentRepository.findByUserIdOrderByAppointmentDateAscIdAsc(userId)).thenReturn(appointments);
 
         List<AppointmentDto> appointmentDtos = appointmentService.findAllAppointmentByUserId(userId);
 
@@ -85,7 +116,47 @@ public class AppointmentServiceTest {
         assertEquals("Dr. Smith", appointmentDtos.get(0).getDoctorName());
         assertEquals("Dr. Johnson", appointmentDtos.get(1).getDoctorName());
 
-        verify(appointmentRepository, times(1)).findByUserId(userId);
+        verify(appointmentRepository, times(1)).findByUserIdOrderByAppointmentDateAscIdAsc(userId);
+    }
+
+    @Test
+    public void testFindAppointmentPageReturnsCursorForNextPage() {
+        LocalDateTime date = LocalDateTime.of(2030, 5, 1, 10, 0);
+        Appointment appointment1 = new Appointment(1L, "Dr. Smith", "City Clinic", date, "Routine checkup", null);
+        Appointment appointment2 = new Appointment(2L, "Dr. Johnson", "General Hospital", date, "Follow-up", null);
+        Appointment appointment3 = new Appointment(3L, "Dr. Lee", "General Hospital", date.plusDays(1), "Follow-up", null);
+
+        when(appointmentRepository.findAppointmentPageAscending(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class), eq(0L), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(Arrays.asList(appointment1, appointment2, appointment3)));
+        when(appointmentRepository.findAppointmentPageAscending(eq(1L), any(LocalDateTime.class), eq(date), eq(2L), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(appointment3)));
+
+        AppointmentPageDto firstPage = appointmentService.findAppointmentPage(1L, null, null, null, null, 2);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertEquals("Dr. Johnson", firstPage.getItems().get(1).getDoctorName());
+        assertNotNull(firstPage.getNextCursor());
+
+        AppointmentPageDto secondPage = appointmentService.findAppointmentPage(1L, null, null, null, firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getItems().size());
+        assertEquals("Dr. Lee", secondPage.getItems().get(0).getDoctorName());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void testSearchAppointmentsKeepsRelevanceOrder() {
+        Appointment appointment1 = new Appointment(1L, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", null);
+        Appointment appointment2 = new Appointment(2L, "Dr. Johnson", "General Hospital", LocalDateTime.now(), "Follow-up", null);
+
+        when(searchIndex.search(1L, "clinic", 20)).thenReturn(Arrays.asList(2L, 1L, 3L));
+        when(appointmentRepository.findAllById(Arrays.asList(2L, 1L, 3L))).thenReturn(Arrays.asList(appointment1, appointment2));
+
+        List<AppointmentDto> results = appointmentService.searchAppointments(1L, "clinic", null);
+
+        assertEquals(2, results.size());
+        assertEquals("Dr. Johnson", results.get(0).getDoctorName());
+        assertEquals("Dr. Smith", results.get(1).getDoctorName());
     }
 
     @Test
@@ -112,8 +183,52 @@ public class AppointmentServiceTest {
         appointmentService.deleteAppointment(1L);
 
         verify(appointmentRepository, times(1)).deleteById(1L);
+        verify(reminderWheel, times(1)).cancel(1L);
+        verify(searchIndex, times(1)).remove(1L);
+
+
+    }
+
+    @Test
+    public void testCreateAppointmentSchedulesRemindersOnlyOnCommit() {
+        User user = new User(1L, "john_doe", "hashed_password", "john.doe@example.com", "123-456-7890", null, null, null, null);
+        AppointmentDto appointmentDto = new AppointmentDto(null, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", 1L);
+        Appointment appointment = AppointmentMapper.mapToAppointment(appointmentDto, user);
 
+        when(userReferenceCache.findReference(1L)).thenReturn(Optional.of(user));
+        when(appointmentRepository.save(any(Appointment.class))).thenReturn(appointment);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appointmentService.createAppointment(appointmentDto);
+
+            verifyNoInteractions(reminderWheel, searchIndex);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(reminderWheel, times(1)).schedule(appointment.getId(), appointment.getAppointmentDate());
+        verify(searchIndex, times(1)).index(appointment);
+    }
+
+    @Test
+    public void testRolledBackDeleteKeepsRemindersAndIndex() {
+        Appointment appointment = new Appointment(1L, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", null);
+
+        when(appointmentRepository.findById(1L)).thenReturn(Optional.of(appointment));
 
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appointmentService.deleteAppointment(1L);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(reminderWheel, never()).cancel(1L);
+        verify(searchIndex, never()).remove(1L);
     }
 
 
@@ -0,0 +1,137 @@
+package com.HealthTrack.Services;
+
+import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.ExportFormat;
+import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.Notification;
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.AppointmentRepository;
+import com.HealthTrack.repositories.HealthMetricRepository;
+import com.HealthTrack.repositories.NotificationRepository;
+import com.HealthTrack.repositories.SymptomRepository;
+import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.services.ExportService;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports a user's record from H2, including compacted health metrics
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-service;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/export-service"
+})
+public class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private HealthMetricTimeSeries healthMetricTimeSeries;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private SymptomRepository symptomRepository;
+
+    @Autowired
+    private HealthMetricRepository healthMetricRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        for (String table : List.of("notification_outbox", "notifications", "health_metric_rollups", "health_metric_blocks",
+                "health_metrics", "symptoms", "appointments", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+
+        user = new User();
+        user.setUsername("export-user");
+        user.setEmail("export@example.com");
+        user.setPhoneNumber("555-0101");
+        user = userRepository.save(user);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        appointmentRepository.save(new Appointment(null, "Dr. Smith", "Main St, Suite 2", now.plusDays(3), "Checkup", user));
+        symptomRepository.save(new Symptom(null, "Headache", 4, "Said \"mild\",\nthen worse", now.minusDays(1), user));
+        notificationRepository.save(new Notification(null, "High heart rate", "Heart Rate", "HealthMetricAlert", false, now, user));
+
+        List<HealthMetric> metrics = new ArrayList<>();
+        metrics.add(new HealthMetric(null, "Heart Rate", 61.0, now.minusDays(90), user));
+        metrics.add(new HealthMetric(null, "Heart Rate", 62.0, now.minusDays(89), user));
+        metrics.add(new HealthMetric(null, "Heart Rate", 75.0, now.minusHours(1), user));
+        healthMetricRepository.saveAll(metrics);
+        healthMetricTimeSeries.compactRawSamples();
+    }
+
+    @Test
+    public void testNdjsonExportHasOneLinePerRecord() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportUserRecord(user.getId(), ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length);
+        List<String> recordTypes = new ArrayList<>();
+        List<Double> metricValues = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode record = objectMapper.readTree(line);
+            recordTypes.add(record.get("recordType").asText());
+            assertEquals(user.getId(), record.get("userId").asLong());
+            if (record.has("value")) {
+                metricValues.add(record.get("value").asDouble());
+            }
+        }
+        assertEquals(List.of("appointment", "symptom", "healthMetric", "healthMetric", "healthMetric", "notification"), recordTypes);
+        // Compacted samples are exported before the raw ones
+        assertEquals(List.of(61.0, 62.0, 75.0), metricValues);
+        assertEquals("Said \"mild\",\nthen worse", objectMapper.readTree(lines[1]).get("description").asText());
+    }
+
+    @Test
+    public void testCsvExportQuotesFields() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportUserRecord(user.getId(), ExportFormat.CSV, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("recordType,id,userId,timestamp,metricType,value,"));
+        assertTrue(csv.contains(",\"Main St, Suite 2\",Checkup,"));
+        assertTrue(csv.contains(",\"Said \"\"mild\"\",\nthen worse\","));
+        assertTrue(csv.contains("\r\nnotification,"));
+        assertTrue(csv.endsWith(",HealthMetricAlert,High heart rate,false\r\n"));
+    }
+}
@@ -1,17 +1,25 @@
 package com.HealthTrack.Services;
 
+import com.HealthTrack.cache.UserReferenceCache;
+import com.HealthTrack.dtos.HealthMetricBatchResultDto;
 import com.HealthTrack.dtos.HealthMetricDto;
 import com.HealthTrack.mapper.HealthMetricMapper;
 import com.HealthTrack.models.HealthMetric;
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
 import com.HealthTrack.models.User;
 import com.HealthTrack.repositories.HealthMetricRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
 import com.HealthTrack.services.NotificationService;
 import com.HealthTrack.services.imp.HealthMetricServiceImpl;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -27,12 +35,21 @@ public class HealthMetricServiceTest {
     @Mock
     private HealthMetricRepository healthMetricRepository;
     @Mock
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
 
 
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Mock
+    private HealthMetricTimeSeries healthMetricTimeSeries;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private HealthMetricServiceImpl healthMetricService;
 
@@ -60,7 +77,7 @@ public class HealthMetricServiceTest {
         heightMetric.setValue(70.0);
         heightMetric.setTimestamp(LocalDateTime.now().minusDays(1));
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userReferenceCache.findReference(userId)).thenReturn(Optional.of(user));
         when(healthMetricRepository.save(any(HealthMetric.class))).thenReturn(weightMetric);
         when(healthMetricRepository.findTopByUserIdAndMetricTypeOrderByTimestampDesc(userId, "Height"))
                 .thenReturn(Optional.of(heightMetric));
@@ -71,14 +88,75 @@ public class HealthMetricServiceTest {
         // Assert
         assertEquals("Weight", result.getMetricType());
         verify(healthMetricRepository, times(1)).save(any(HealthMetric.class));
-        verify(notificationService, times(1)).sendAbnormalHealthMetricNotification(any(HealthMetric.class));
+        verify(notificationOutboxRepository, times(1)).save(any(NotificationOutbox.class));
+        verify(notificationService, never()).sendAbnormalHealthMetricNotification(any(HealthMetric.class));
         verify(healthMetricRepository, times(1)).findTopByUserIdAndMetricTypeOrderByTimestampDesc(userId, "Height");
     }
 
+    @Test
+    public void testHandleOutboxEvent_RunsAbnormalMetricRules() {
+        HealthMetric metric = new HealthMetric();
+        metric.setId(100L);
+        metric.setMetricType("Heart Rate");
+        metric.setValue(120.0);
+
+        when(healthMetricRepository.findById(100L)).thenReturn(Optional.of(metric));
+
+        healthMetricService.handle(NotificationOutbox.pending(OutboxEventType.HEALTH_METRIC_CREATED, 100L));
+
+        verify(notificationService, times(1)).sendAbnormalHealthMetricNotification(metric);
+    }
+
 
 
 
 
+    @Test
+    public void testCreateHealthMetricBatch_ReportsPerItemResultsAndAlertsOnLatestSamples() {
+        Long userId = 1L;
+        User user = new User(userId, "john_doe", "password", "john@example.com", "123-456-7890", null, null, null, null);
+        LocalDateTime now = LocalDateTime.of(2030, 5, 1, 12, 0);
+        List<HealthMetricDto> samples = Arrays.asList(
+                new HealthMetricDto(null, "Heart Rate", 80.0, now.minusMinutes(10), userId),
+                new HealthMetricDto(null, "Heart Rate", null, now.minusMinutes(5), userId),
+                new HealthMetricDto(null, "Heart Rate", 130.0, now, null),
+                new HealthMetricDto(null, "Heart Rate", 70.0, now.minusMinutes(1), 2L),
+                new HealthMetricDto(null, "Weight", 180.0, now.minusMinutes(3), userId)
+        );
+
+        when(userReferenceCache.findReference(userId)).thenReturn(Optional.of(user));
+        when(healthMetricRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<HealthMetric> metrics = invocation.getArgument(0);
+            for (int i = 0; i < metrics.size(); i++) {
+                metrics.get(i).setId(100L + i);
+            }
+            return metrics;
+        });
+
+        HealthMetricBatchResultDto result = healthMetricService.createHealthMetricBatch(userId, samples.iterator());
+
+        assertEquals(3, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(0, 1, 2, 3, 4), result.getItems().stream().map(item -> item.getIndex()).toList());
+        assertEquals(100L, result.getItems().get(0).getId());
+        assertEquals("value is required", result.getItems().get(1).getError());
+        assertNull(result.getItems().get(3).getId());
+        assertEquals(102L, result.getItems().get(4).getId());
+
+        // One user lookup and one insert batch for the whole upload
+        verify(userReferenceCache, times(1)).findReference(userId);
+        verify(healthMetricRepository, times(1)).saveAll(anyList());
+        verify(healthMetricRepository, never()).save(any(HealthMetric.class));
+
+        // Alerts only for the latest heart rate and the weight; BMI pairing looked up once
+        verify(notificationOutboxRepository, times(1)).saveAll(argThat(events -> {
+            List<Long> ids = new java.util.ArrayList<>();
+            events.forEach(event -> ids.add(event.getAggregateId()));
+            return ids.size() == 2 && ids.containsAll(List.of(101L, 102L));
+        }));
+        verify(healthMetricRepository, times(1)).findTopByUserIdAndMetricTypeOrderByTimestampDesc(userId, "Height");
+    }
+
     @Test
     public void testGetHealthMetricById() {
         HealthMetric healthMetric = new HealthMetric(1L, "Weight", 75.5, LocalDateTime.now(), null);
@@ -112,7 +190,10 @@ public class HealthMetricServiceTest {
 
     @Test
     public void testUpdateHealthMetric() {
-        HealthMetric healthMetric = new HealthMetric(1L, "Weight", 75.5, LocalDateTime.now(), null);
+        User user = new User();
+        user.setId(1L);
+        LocalDateTime recordedAt = LocalDateTime.now().minusHours(3);
+        HealthMetric healthMetric = new HealthMetric(1L, "Weight", 75.5, recordedAt, user);
         HealthMetricDto healthMetricDto = new HealthMetricDto(1L, "Blood Pressure", 120.80, LocalDateTime.now(), 1L);
 
         when(healthMetricRepository.findById(1L)).thenReturn(Optional.of(healthMetric));
@@ -123,15 +204,20 @@ public class HealthMetricServiceTest {
         assertEquals("Blood Pressure", updatedHealthMetric.getMetricType());
 
         verify(healthMetricRepository, times(1)).save(any(HealthMetric.class));
+        verify(healthMetricTimeSeries, times(1)).rebuildRollups(1L, "Weight", recordedAt);
+        verify(healthMetricTimeSeries, times(1)).rebuildRollups(1L, "Blood Pressure", healthMetricDto.getTimestamp());
     }
 
     @Test
     public void testDeleteHealthMetric() {
-        HealthMetric healthMetric = new HealthMetric(1L, "Weight", 75.5, LocalDateTime.now(), null);
+        User user = new User();
+        user.setId(1L);
+        HealthMetric healthMetric = new HealthMetric(1L, "Weight", 75.5, LocalDateTime.now(), user);
         when(healthMetricRepository.findById(1L)).thenReturn(Optional.of(healthMetric));
 
         healthMetricService.deleteHealthMetric(1L);
 
         verify(healthMetricRepository, times(1)).deleteById(1L);
+        verify(healthMetricTimeSeries, times(1)).rebuildRollups(1L, "Weight", healthMetric.getTimestamp());
     }
 }
\ No newline at end of file
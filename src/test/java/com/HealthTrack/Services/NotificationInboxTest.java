@@ -0,0 +1,153 @@
+package com.HealthTrack.Services;
+
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.NotificationPageDto;
+import com.HealthTrack.models.Notification;
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.NotificationRepository;
+import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.services.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pages through a user's notification inbox in H2
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notification-inbox;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/notification-inbox"
+})
+public class NotificationInboxTest {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 3, 1, 12, 0);
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        for (String table : List.of("notification_outbox", "notifications", "health_metric_rollups", "health_metric_blocks",
+                "health_metrics", "symptoms", "appointments", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        user = saveUser("inbox-user");
+        User otherUser = saveUser("other-user");
+
+        notificationRepository.saveAll(List.of(
+                new Notification(null, "Heart rate high", "Heart Rate", "HealthMetricAlert", false, now.minusHours(3), user),
+                new Notification(null, "Drink water", "Headache", "WellnessTip", false, now.minusHours(1), user),
+                new Notification(null, "Heart rate high again", "Heart Rate", "HealthMetricAlert", true, now, user),
+                new Notification(null, "Appointment tomorrow", null, "AppointmentReminder", true, now.minusHours(2), user),
+                new Notification(null, "Weight high", "Weight", "HealthMetricAlert", false, now.minusDays(5), user),
+                new Notification(null, "Someone else's", "Heart Rate", "HealthMetricAlert", false, now, otherUser)));
+    }
+
+    @Test
+    public void testPagesListUnreadFirstThenNewestFirst() {
+        List<String> messages = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            NotificationPageDto page = notificationService.getUserInbox(user.getId(), null, null, null, null, cursor, 2);
+            page.getItems().forEach(notification -> messages.add(notification.getMessage()));
+            pageSizes.add(page.getItems().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("Drink water", "Heart rate high", "Weight high", "Heart rate high again", "Appointment tomorrow"),
+                messages);
+        assertEquals(List.of(2, 2, 1), pageSizes);
+    }
+
+    @Test
+    public void testFilters() {
+        assertEquals(List.of("Drink water", "Heart rate high", "Weight high"),
+                messages(notificationService.getUserInbox(user.getId(), true, null, null, null, null, null)));
+        assertEquals(List.of("Heart rate high", "Heart rate high again"),
+                messages(notificationService.getUserInbox(user.getId(), null, "HealthMetricAlert", null, now.minusDays(1), null, null)));
+        assertEquals(List.of("Heart rate high", "Heart rate high again"),
+                messages(notificationService.getUserInbox(user.getId(), false, null, "Heart Rate", null, null, null)));
+    }
+
+    @Test
+    public void testUnreadCount() {
+        assertEquals(3, notificationService.countUnreadNotifications(user.getId()));
+    }
+
+    @Test
+    public void testMarkAllRead() {
+        assertEquals(3, notificationService.markAllNotificationsAsRead(user.getId()));
+
+        assertEquals(0, notificationService.countUnreadNotifications(user.getId()));
+        assertEquals(1, notificationRepository.countUnreadByUserId(otherUserId()));
+    }
+
+    @Test
+    public void testMarkReadByIdsOnlyTouchesOwnUnreadNotifications() {
+        List<Long> ids = notificationRepository.findAll().stream()
+                .filter(notification -> notification.getMessage().startsWith("Heart rate high")
+                        || notification.getMessage().equals("Someone else's"))
+                .map(Notification::getId)
+                .toList();
+
+        // One of the user's two is already read, and the other user's is not theirs to mark
+        assertEquals(1, notificationService.markNotificationsAsRead(user.getId(), ids));
+        assertEquals(2, notificationService.countUnreadNotifications(user.getId()));
+        assertEquals(1, notificationRepository.countUnreadByUserId(otherUserId()));
+    }
+
+    @Test
+    public void testDeleteByFilter() {
+        assertEquals(1, notificationService.deleteNotifications(user.getId(), true, "HealthMetricAlert", null, null));
+        assertEquals(1, notificationService.deleteNotifications(user.getId(), null, null, null, now.minusDays(1)));
+
+        assertEquals(List.of("Drink water", "Heart rate high", "Appointment tomorrow"),
+                messages(notificationService.getUserInbox(user.getId(), null, null, null, null, null, null)));
+        assertEquals(1, notificationRepository.countUnreadByUserId(otherUserId()));
+    }
+
+    @Test
+    public void testInvalidCursorIsRejected() {
+        assertThrows(RuntimeException.class,
+                () -> notificationService.getUserInbox(user.getId(), null, null, null, null, "not-a-cursor", null));
+    }
+
+    private User saveUser(String username) {
+        User newUser = new User();
+        newUser.setUsername(username);
+        newUser.setEmail(username + "@example.com");
+        newUser.setPhoneNumber("555-0102");
+        return userRepository.save(newUser);
+    }
+
+    private Long otherUserId() {
+        return userRepository.findByUsername("other-user").orElseThrow().getId();
+    }
+
+    private static List<String> messages(NotificationPageDto page) {
+        return page.getItems().stream().map(NotificationDto::getMessage).toList();
+    }
+}
@@ -1,19 +1,27 @@
 package com.HealthTrack.Services;
 
+import com.HealthTrack.cache.UserReferenceCache;
 
+import com.HealthTrack.cache.NotificationCooldownCache;
 import com.HealthTrack.dtos.NotificationDto;
 import com.HealthTrack.models.HealthMetric;
 import com.HealthTrack.models.Notification;
 import com.HealthTrack.models.User;
+import com.HealthTrack.push.NotificationPushHub;
 import com.HealthTrack.repositories.NotificationRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.rules.HealthRuleEngine;
 import com.HealthTrack.services.imp.NotificationServiceImpl;
+import com.HealthTrack.templates.MessageTemplates;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
 
 import java.time.LocalDateTime;
 
@@ -34,7 +42,24 @@ public class NotificationServiceImplTest {
     private NotificationRepository notificationRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
+
+    @Mock
+    private NotificationCooldownCache notificationCooldownCache;
+
+    @Mock
+    private NotificationPushHub notificationPushHub;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private HealthRuleEngine healthRuleEngine =
+            new HealthRuleEngine(new DefaultResourceLoader(), HealthRuleEngine.DEFAULT_LOCATION);
+
+    @Spy
+    private MessageTemplates messageTemplates =
+            new MessageTemplates(new DefaultResourceLoader(), MessageTemplates.DEFAULT_LOCATION, Locale.ENGLISH);
 
     @InjectMocks
     private NotificationServiceImpl notificationService;
@@ -59,17 +84,20 @@ public class NotificationServiceImplTest {
 
     @Test
     public void testSendAbnormalHealthMetricNotification_CreatesNotification() {
-        when(notificationRepository.existsSimilarNotification(anyLong(), anyString(), any())).thenReturn(false);
+        when(notificationCooldownCache.wasSentSince(anyLong(), anyString(), any())).thenReturn(false);
         when(notificationRepository.save(any(Notification.class))).thenAnswer(i -> i.getArguments()[0]);
 
         notificationService.sendAbnormalHealthMetricNotification(healthMetric);
 
-        verify(notificationRepository, times(1)).save(any(Notification.class));
+        verify(notificationRepository, times(1)).save(argThat(notification -> notification.getMessage().equals(
+                "Warning! Your Blood Pressure is abnormally high: 150.00 (Threshold: 140.00). Please consult a healthcare provider.")));
+        verify(notificationCooldownCache, times(1)).recordSent(eq(1L), eq("Blood Pressure"), any(LocalDateTime.class));
+        assertEquals(1.0, meterRegistry.counter("healthtrack.notifications.created", "type", "HealthMetricAlert").count());
     }
 
     @Test
     public void testSendAbnormalHealthMetricNotification_DoesNotCreateDuplicateNotification() {
-        when(notificationRepository.existsSimilarNotification(anyLong(), anyString(), any())).thenReturn(true);
+        when(notificationCooldownCache.wasSentSince(anyLong(), anyString(), any())).thenReturn(true);
 
         notificationService.sendAbnormalHealthMetricNotification(healthMetric);
 
@@ -78,10 +106,10 @@ public class NotificationServiceImplTest {
 
     @Test
     public void testGetUserNotifications_ReturnsNotifications() {
-        List<Notification> notifications = Arrays.asList(
-                new Notification(1L, "Test Message", "Blood Pressure", "HealthMetricAlert", false, LocalDateTime.now(), user)
+        List<NotificationDto> notifications = Arrays.asList(
+                new NotificationDto(1L, "Test Message", "Blood Pressure", "HealthMetricAlert", false, LocalDateTime.now(), 1L)
         );
-        when(notificationRepository.findByUserId(anyLong())).thenReturn(notifications);
+        when(notificationRepository.findNotificationDtosByUserId(anyLong())).thenReturn(notifications);
 
         List<NotificationDto> result = notificationService.getUserNotifications(1L);
 
@@ -117,6 +145,25 @@ public class NotificationServiceImplTest {
         verify(notificationRepository, times(1)).save(existingNotification);
     }
 
+    @Test
+    public void testCreateNotifications_ResolvesUsersOnceAndSavesInOneBatch() {
+        List<NotificationDto> notificationDtos = Arrays.asList(
+                new NotificationDto(null, "First", "Appointment", "Appointment24HourReminder", false, LocalDateTime.now(), 1L),
+                new NotificationDto(null, "Second", "Appointment", "Appointment2HourReminder", false, LocalDateTime.now(), 1L),
+                new NotificationDto(null, "Orphan", "Appointment", "Appointment2HourReminder", false, LocalDateTime.now(), 2L)
+        );
+        when(userReferenceCache.findReferences(anyCollection())).thenReturn(Map.of(user.getId(), user));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(i -> i.getArguments()[0]);
+
+        List<NotificationDto> result = notificationService.createNotifications(notificationDtos);
+
+        assertEquals(2, result.size());
+        assertEquals("First", result.get(0).getMessage());
+        verify(userReferenceCache, times(1)).findReferences(anyCollection());
+        verify(notificationRepository, times(1)).saveAll(anyList());
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
     @Test
     public void testDeleteNotification() {
         Notification notification = new Notification(1L, "Test Message", "Blood Pressure", "HealthMetricAlert", false, LocalDateTime.now(), user);
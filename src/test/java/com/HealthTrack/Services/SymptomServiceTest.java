@@ -1,12 +1,15 @@
 package com.HealthTrack.Services;
 
+import com.HealthTrack.cache.UserReferenceCache;
 import org.junit.jupiter.api.Test;
 import com.HealthTrack.dtos.SymptomDto;
 import com.HealthTrack.mapper.SymptomMapper;
+import com.HealthTrack.models.NotificationOutbox;
 import com.HealthTrack.models.Symptom;
 import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
 import com.HealthTrack.repositories.SymptomRepository;
-import com.HealthTrack.repositories.UserRepository;
+import com.HealthTrack.rules.SymptomPatternDetector;
 import com.HealthTrack.services.imp.SymptomServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -28,7 +31,13 @@ public class SymptomServiceTest {
     private SymptomRepository symptomRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserReferenceCache userReferenceCache;
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Mock
+    private SymptomPatternDetector symptomPatternDetector;
 
     @InjectMocks
     private SymptomServiceImpl symptomService;
@@ -39,13 +48,14 @@ public class SymptomServiceTest {
         User user = new User(1L, "john_doe", "hashed_password", "john.doe@example.com", "123-456-7890", null, null, null, null);
         Symptom symptom = SymptomMapper.mapToSymptom(symptomDto, user);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userReferenceCache.findReference(1L)).thenReturn(Optional.of(user));
         when(symptomRepository.save(any(Symptom.class))).thenReturn(symptom);
 
         SymptomDto createdSymptom = symptomService.createSymptom(symptomDto);
 
         assertEquals("Headache", createdSymptom.getSymptomType());
         verify(symptomRepository, times(1)).save(any(Symptom.class));
+        verify(notificationOutboxRepository, times(1)).save(any(NotificationOutbox.class));
     }
 
     @Test
@@ -107,5 +117,6 @@ public class SymptomServiceTest {
         symptomService.deleteSymptom(1L);
 
         verify(symptomRepository, times(1)).deleteById(1L);
+        verify(symptomPatternDetector, times(1)).invalidate(null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.HealthTrack.Services;
+
+import com.HealthTrack.dtos.UserDto;
+import com.HealthTrack.services.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the SQL statements behind the user list on H2 as the number of users on the page grows.
+ * Profiles come from one query, and each included kind of record from one more, so the count
+ * should not depend on how many users are listed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-list-benchmark;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "healthtrack.search.index-dir=target/search-index/user-list-benchmark"
+})
+public class UserListQueryBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserListQueryBenchmarkTest.class);
+
+    private static final Set<String> ALL_INCLUDES = Set.of("symptoms", "healthMetrics", "appointments", "notifications");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private int userCount;
+
+    @BeforeEach
+    public void setup() {
+        for (String table : List.of("notification_outbox", "notifications", "health_metric_rollups", "health_metric_blocks",
+                "health_metrics", "symptoms", "appointments", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        userCount = 0;
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testUserListQueryCountIsConstant() {
+        addUsers(10);
+        Result small = measureList(200, ALL_INCLUDES);
+
+        addUsers(190);
+        Result large = measureList(200, ALL_INCLUDES);
+
+        for (Result result : List.of(small, large)) {
+            log.atDebug().setMessage("User list benchmark")
+                    .addKeyValue("users", result.users)
+                    .addKeyValue("statements", result.statements)
+                    .addKeyValue("entityLoads", result.entityLoads)
+                    .addKeyValue("micros", result.micros)
+                    .log();
+        }
+
+        assertEquals(10, small.users);
+        assertEquals(200, large.users);
+        assertEquals(small.statements, large.statements);
+        assertEquals(1 + ALL_INCLUDES.size(), large.statements);
+        assertEquals(0, large.entityLoads);
+    }
+
+    @Test
+    public void testUserListWithoutIncludesReadsOnlyProfiles() {
+        addUsers(50);
+
+        Result result = measureList(20, Set.of());
+
+        assertEquals(20, result.users);
+        assertEquals(1, result.statements);
+        assertEquals(0, result.entityLoads);
+    }
+
+    /**
+     * Add users, each with two symptoms, two health metrics, an appointment and a notification
+     */
+    private void addUsers(int count) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < count; i++) {
+            int n = userCount++;
+            jdbcTemplate.update("INSERT INTO users (username, password, email, phone_number) VALUES (?, ?, ?, ?)",
+                    "list-user-" + n, "{noop}secret", "list" + n + "@example.com", "555-0100");
+            Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, "list-user-" + n);
+
+            for (int j = 0; j < 2; j++) {
+                jdbcTemplate.update("INSERT INTO symptoms (symptom_type, severity, description, timestamp, user_id) " +
+                        "VALUES (?, ?, ?, ?, ?)", "Headache", 3, "Mild", now, userId);
+                jdbcTemplate.update("INSERT INTO health_metrics (id, metric_type, value, timestamp, user_id) " +
+                        "VALUES (?, ?, ?, ?, ?)", 1_000_000L + n * 2L + j, "Heart Rate", 70.0, now, userId);
+            }
+            jdbcTemplate.update("INSERT INTO appointments (doctor_name, location, appointment_date, reason_for_visit, user_id) " +
+                    "VALUES (?, ?, ?, ?, ?)", "Dr. Smith", "Clinic", now, "Checkup", userId);
+            jdbcTemplate.update("INSERT INTO notifications (id, message, metric_type, type, is_read, timestamp, user_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", 1_000_000L + n, "Reminder", null, "AppointmentReminder", false, now, userId);
+        }
+    }
+
+    private Result measureList(int pageSize, Set<String> includes) {
+        userService.findAllUser(0, pageSize, includes);
+
+        statistics.clear();
+        long start = System.nanoTime();
+        List<UserDto> users = userService.findAllUser(0, pageSize, includes);
+        long micros = (System.nanoTime() - start) / 1_000;
+        return new Result(users.size(), statistics.getPrepareStatementCount(), statistics.getEntityLoadCount(), micros);
+    }
+
+    private static final class Result {
+        private final int users;
+        private final long statements;
+        private final long entityLoads;
+        private final long micros;
+
+        private Result(int users, long statements, long entityLoads, long micros) {
+            this.users = users;
+            this.statements = statements;
+            this.entityLoads = entityLoads;
+            this.micros = micros;
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package com.HealthTrack.Services;
 
 
+import com.HealthTrack.cache.CredentialCache;
+import com.HealthTrack.cache.UserReferenceCache;
+import com.HealthTrack.dtos.SymptomDto;
 import com.HealthTrack.dtos.UserDto;
 import com.HealthTrack.mapper.UserMapper;
 import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.SymptomRepository;
 import com.HealthTrack.repositories.UserRepository;
 import com.HealthTrack.services.UserService;
 import com.HealthTrack.services.imp.UserServiceImpl;
+import com.HealthTrack.timeseries.HealthMetricTimeSeries;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.Arrays;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -26,6 +35,18 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private SymptomRepository symptomRepository;
+
+    @Mock
+    private CredentialCache credentialCache;
+
+    @Mock
+    private UserReferenceCache userReferenceCache;
+
+    @Mock
+    private HealthMetricTimeSeries healthMetricTimeSeries;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -61,20 +82,48 @@ public class UserServiceTest {
 
     @Test
     public void findAllUser(){
-        User user1 = new User(1L, "cham","mbk","cham@email.com","123-456-7890",null, null,null, null);
-        User user2 = new User(2L, "jane_doe", "password456", "jane.doe@example.com", "987-654-3210", null, null, null, null);
-        List<User> users = Arrays.asList(user1,user2);
+        List<UserRepository.UserSummary> users = Arrays.asList(
+                summary(1L, "cham", "cham@email.com"),
+                summary(2L, "jane_doe", "jane.doe@example.com"));
 
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findUserSummaries(PageRequest.of(0, 50))).thenReturn(users);
 
-        List<UserDto> userDtos = userService.findAllUser();
+        List<UserDto> userDtos = userService.findAllUser(null, null, null);
 
         assertEquals(2, userDtos.size());
         assertEquals("cham", userDtos.get(0).getUsername());
         assertEquals("jane_doe", userDtos.get(1).getUsername());
-        verify(userRepository, times(1)).findAll();
+        assertNull(userDtos.get(0).getPassword());
+        assertNull(userDtos.get(0).getSymptoms());
+        verify(userRepository, times(1)).findUserSummaries(PageRequest.of(0, 50));
+
+
+    }
 
+    @Test
+    public void findAllUserWithIncludes(){
+        List<UserRepository.UserSummary> users = Arrays.asList(
+                summary(1L, "cham", "cham@email.com"),
+                summary(2L, "jane_doe", "jane.doe@example.com"));
+        when(userRepository.findUserSummaries(PageRequest.of(2, 200))).thenReturn(users);
+        when(symptomRepository.findSymptomDtosByUserIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                new SymptomDto(10L, "Headache", 4, "Mild", LocalDateTime.now(), 2L),
+                new SymptomDto(11L, "Fever", 6, "High", LocalDateTime.now(), 2L)));
+
+        List<UserDto> userDtos = userService.findAllUser(2, 1000, Set.of("symptoms"));
+
+        assertEquals(0, userDtos.get(0).getSymptoms().size());
+        assertEquals(2, userDtos.get(1).getSymptoms().size());
+        assertNull(userDtos.get(1).getAppointments());
+        verify(symptomRepository, times(1)).findSymptomDtosByUserIdIn(List.of(1L, 2L));
+    }
 
+    private static UserRepository.UserSummary summary(Long id, String username, String email) {
+        UserRepository.UserSummary summary = mock(UserRepository.UserSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getUsername()).thenReturn(username);
+        when(summary.getEmail()).thenReturn(email);
+        return summary;
     }
 
     @Test
@@ -103,6 +152,9 @@ public class UserServiceTest {
        userService.deleteUser(1L);
 
        verify(userRepository, times(1)).deleteById(1L);
+       verify(healthMetricTimeSeries, times(1)).deleteUserData(1L);
+       verify(userReferenceCache, times(1)).invalidate(1L);
+       verify(credentialCache, times(1)).invalidate("cham");
 
 
     }
@@ -0,0 +1,67 @@
+package com.HealthTrack.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CredentialCacheTest {
+
+    private final UserDetails cham = User.withUsername("cham").password("$2a$10$hash").roles("USER").build();
+
+    @Test
+    public void testVerifiedPasswordIsRemembered() {
+        CredentialCache cache = new CredentialCache(100, 300);
+        assertNull(cache.verify("cham", "secret"));
+
+        cache.recordVerified(cham, "secret", cache.generation("cham"));
+
+        UserDetails user = cache.verify("cham", "secret");
+        assertNotNull(user);
+        assertEquals("cham", user.getUsername());
+        assertTrue(user.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+    }
+
+    @Test
+    public void testOtherPasswordsAndUsersMiss() {
+        CredentialCache cache = new CredentialCache(100, 300);
+        cache.recordVerified(cham, "secret", cache.generation("cham"));
+
+        assertNull(cache.verify("cham", "Secret"));
+        assertNull(cache.verify("cham", "secret "));
+        assertNull(cache.verify("jane", "secret"));
+        assertNull(cache.verify("cham", null));
+    }
+
+    @Test
+    public void testInvalidateForgetsUser() {
+        CredentialCache cache = new CredentialCache(100, 300);
+        cache.recordVerified(cham, "secret", cache.generation("cham"));
+
+        cache.invalidate("cham");
+
+        assertNull(cache.verify("cham", "secret"));
+    }
+
+    @Test
+    public void testCheckStartedBeforeInvalidateIsNotRecorded() {
+        CredentialCache cache = new CredentialCache(100, 300);
+        long generation = cache.generation("cham");
+
+        cache.invalidate("cham");
+        cache.recordVerified(cham, "old-secret", generation);
+
+        assertNull(cache.verify("cham", "old-secret"));
+        cache.recordVerified(cham, "new-secret", cache.generation("cham"));
+        assertNotNull(cache.verify("cham", "new-secret"));
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        CredentialCache cache = new CredentialCache(100, 0);
+        cache.recordVerified(cham, "secret", cache.generation("cham"));
+
+        assertNull(cache.verify("cham", "secret"));
+    }
+}
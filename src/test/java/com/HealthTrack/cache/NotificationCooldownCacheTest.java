@@ -0,0 +1,89 @@
+package com.HealthTrack.cache;
+
+import com.HealthTrack.repositories.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationCooldownCacheTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 3, 1, 12, 0);
+
+    private NotificationRepository notificationRepository;
+
+    @BeforeEach
+    public void setup() {
+        notificationRepository = mock(NotificationRepository.class);
+    }
+
+    @Test
+    public void testMissIsWarmedOnceFromDatabase() {
+        NotificationCooldownCache cache = new NotificationCooldownCache(notificationRepository, 1000, false);
+        when(notificationRepository.findLatestNotificationTimestamp(1L, "Heart Rate")).thenReturn(now.minusHours(2));
+
+        assertTrue(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+        assertFalse(cache.wasSentSince(1L, "Heart Rate", now.minusHours(1)));
+
+        verify(notificationRepository, times(1)).findLatestNotificationTimestamp(1L, "Heart Rate");
+    }
+
+    @Test
+    public void testNeverSentIsCached() {
+        NotificationCooldownCache cache = new NotificationCooldownCache(notificationRepository, 1000, false);
+
+        assertFalse(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+        assertFalse(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+
+        verify(notificationRepository, times(1)).findLatestNotificationTimestamp(1L, "Heart Rate");
+    }
+
+    @Test
+    public void testRecordedNotificationStartsCooldown() {
+        NotificationCooldownCache cache = new NotificationCooldownCache(notificationRepository, 1000, false);
+        assertFalse(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+
+        cache.recordSent(1L, "Heart Rate", now);
+        // An older notification recorded late does not move the cooldown back
+        cache.recordSent(1L, "Heart Rate", now.minusDays(3));
+
+        assertTrue(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+        assertFalse(cache.wasSentSince(2L, "Heart Rate", now.minusHours(24)));
+    }
+
+    @Test
+    public void testRecordWaitsForCommit() {
+        NotificationCooldownCache cache = new NotificationCooldownCache(notificationRepository, 1000, false);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.recordSent(1L, "Heart Rate", now);
+            assertFalse(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+    }
+
+    @Test
+    public void testDatabaseFallbackConfirmsNegativeAnswers() {
+        NotificationCooldownCache cache = new NotificationCooldownCache(notificationRepository, 1000, true);
+        when(notificationRepository.findLatestNotificationTimestamp(1L, "Heart Rate"))
+                .thenReturn(null)
+                .thenReturn(now.minusHours(1));
+
+        // First lookup warms "never sent", the fallback then sees the notification another node just sent
+        assertTrue(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+        assertTrue(cache.wasSentSince(1L, "Heart Rate", now.minusHours(24)));
+
+        verify(notificationRepository, times(2)).findLatestNotificationTimestamp(1L, "Heart Rate");
+    }
+}
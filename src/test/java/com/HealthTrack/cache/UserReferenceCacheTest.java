@@ -0,0 +1,98 @@
+package com.HealthTrack.cache;
+
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserReferenceCacheTest {
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserReferenceCache cache;
+    private final User reference = new User();
+
+    @BeforeEach
+    public void setup() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserReferenceCache(userRepository, meterRegistry, 1000);
+        reference.setId(1L);
+        when(userRepository.getReferenceById(1L)).thenReturn(reference);
+    }
+
+    @Test
+    public void testKnownUserIsCheckedOnce() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertSame(reference, cache.findReference(1L).orElseThrow());
+        assertSame(reference, cache.findReference(1L).orElseThrow());
+        assertTrue(cache.exists(1L));
+
+        verify(userRepository, times(1)).existsById(1L);
+        verify(userRepository, never()).findById(1L);
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "userReferences").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userReferences").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void testUnknownUserIsNotCached() {
+        when(userRepository.existsById(2L)).thenReturn(false).thenReturn(true);
+
+        assertTrue(cache.findReference(2L).isEmpty());
+        // Created since, e.g. on another node
+        assertTrue(cache.exists(2L));
+        assertFalse(cache.exists(null));
+
+        verify(userRepository, times(2)).existsById(2L);
+    }
+
+    @Test
+    public void testBatchLookupQueriesOnlyUnknownIds() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        cache.exists(1L);
+        User otherReference = new User();
+        when(userRepository.getReferenceById(2L)).thenReturn(otherReference);
+        when(userRepository.findExistingIds(Set.of(2L, 3L))).thenReturn(List.of(2L));
+
+        Map<Long, User> references = cache.findReferences(List.of(1L, 2L, 3L));
+
+        assertEquals(Map.of(1L, reference, 2L, otherReference), references);
+        verify(userRepository, times(1)).findExistingIds(Set.of(2L, 3L));
+        assertTrue(cache.exists(2L));
+        verify(userRepository, never()).existsById(2L);
+    }
+
+    @Test
+    public void testInvalidateAppliesAgainAfterCommit() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.exists(1L);
+            cache.invalidate(1L);
+            // A lookup racing the deletion caches the user again...
+            cache.exists(1L);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // ...until the deletion commits
+        when(userRepository.existsById(1L)).thenReturn(false);
+        assertFalse(cache.exists(1L));
+    }
+}
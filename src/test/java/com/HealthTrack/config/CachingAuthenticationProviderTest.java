@@ -0,0 +1,70 @@
+package com.HealthTrack.config;
+
+import com.HealthTrack.cache.CredentialCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachingAuthenticationProviderTest {
+
+    private final UserDetails cham = User.withUsername("cham").password("$2a$10$hash").roles("USER").build();
+
+    @Test
+    public void testSecondLoginSkipsDelegate() {
+        AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+        when(delegate.authenticate(any())).thenReturn(
+                UsernamePasswordAuthenticationToken.authenticated(cham, null, cham.getAuthorities()));
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, new CredentialCache(100, 300));
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("cham", "secret"));
+        Authentication cached = provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("cham", "secret"));
+
+        assertTrue(cached.isAuthenticated());
+        assertEquals("cham", cached.getName());
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    public void testWrongPasswordIsAlwaysChecked() {
+        AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+        when(delegate.authenticate(any())).thenAnswer(invocation -> {
+            Authentication attempt = invocation.getArgument(0);
+            if (!"secret".equals(attempt.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return UsernamePasswordAuthenticationToken.authenticated(cham, null, cham.getAuthorities());
+        });
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, new CredentialCache(100, 300));
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("cham", "secret"));
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(BadCredentialsException.class,
+                    () -> provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("cham", "guess")));
+        }
+        verify(delegate, times(3)).authenticate(any());
+    }
+
+    @Test
+    public void testPasswordChangeDuringCheckIsNotCached() {
+        AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+        CredentialCache credentialCache = new CredentialCache(100, 300);
+        when(delegate.authenticate(any())).thenAnswer(invocation -> {
+            // The password is changed while the BCrypt check of the old one is running
+            credentialCache.invalidate("cham");
+            return UsernamePasswordAuthenticationToken.authenticated(cham, null, cham.getAuthorities());
+        });
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, credentialCache);
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("cham", "old-secret"));
+
+        assertNull(credentialCache.verify("cham", "old-secret"));
+    }
+}
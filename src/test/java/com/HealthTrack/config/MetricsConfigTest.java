@@ -0,0 +1,52 @@
+package com.HealthTrack.config;
+
+import com.HealthTrack.services.NotificationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls a service and checks that its timings show up on the Prometheus scrape endpoint
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics-config;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/metrics-config"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsConfigTest {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser
+    public void testServiceAndRepositoryTimingsAreScraped() throws Exception {
+        notificationService.countUnreadNotifications(1L);
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("healthtrack_service_seconds_count{class=\"com.HealthTrack.services.imp.NotificationServiceImpl\""),
+                "service timer missing");
+        assertTrue(scrape.contains("method=\"countUnreadNotifications\""), "service method tag missing");
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_count{"), "repository timer missing");
+        assertTrue(scrape.contains("healthtrack_notifications_streams "), "stream gauge missing");
+    }
+}
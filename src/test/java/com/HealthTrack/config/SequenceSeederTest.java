@@ -0,0 +1,43 @@
+package com.HealthTrack.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class SequenceSeederTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SequenceSeeder sequenceSeeder;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        sequenceSeeder = new SequenceSeeder(jdbcTemplate);
+    }
+
+    @Test
+    public void testMySqlSequenceTableIsRaisedPastExistingIds() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM health_metrics", Long.class)).thenReturn(1200L);
+        when(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM notifications", Long.class)).thenReturn(0L);
+
+        sequenceSeeder.seed();
+
+        verify(jdbcTemplate, times(1)).update("UPDATE health_metric_seq SET next_val = ? WHERE next_val < ?", 1251L, 1251L);
+        verify(jdbcTemplate, times(1)).update("UPDATE notification_seq SET next_val = ? WHERE next_val < ?", 51L, 51L);
+    }
+
+    @Test
+    public void testNativeSequencesAreLeftAlone() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        sequenceSeeder.seed();
+
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+}
@@ -1,6 +1,7 @@
 package com.HealthTrack.controllers;
 
 import com.HealthTrack.dtos.AppointmentDto;
+import com.HealthTrack.dtos.AppointmentPageDto;
 import com.HealthTrack.services.AppointmentService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -79,6 +80,43 @@ public class AppointmentControllerTest {
     }
 
 
+    @Test
+    public void testGetAppointmentPage() throws Exception {
+        AppointmentPageDto page = new AppointmentPageDto(Arrays.asList(
+                new AppointmentDto(1L, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", 1L)
+        ), "next-cursor");
+
+        when(appointmentService.findAppointmentPage(1L, "upcoming", null, null, "cursor", 10)).thenReturn(page);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(appointmentController).build();
+
+        mockMvc.perform(get("/api/appointments/page")
+                        .param("userId", "1")
+                        .param("when", "upcoming")
+                        .param("after", "cursor")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].doctorName").value("Dr. Smith"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"));
+    }
+
+    @Test
+    public void testSearchAppointments() throws Exception {
+        List<AppointmentDto> appointments = Arrays.asList(
+                new AppointmentDto(1L, "Dr. Smith", "City Clinic", LocalDateTime.now(), "Routine checkup", 1L)
+        );
+
+        when(appointmentService.searchAppointments(1L, "checkup", null)).thenReturn(appointments);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(appointmentController).build();
+
+        mockMvc.perform(get("/api/appointments/search")
+                        .param("userId", "1")
+                        .param("q", "checkup"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].doctorName").value("Dr. Smith"));
+    }
+
     @Test
     public void testUpdateAppointment() throws Exception {
         AppointmentDto appointmentDto = new AppointmentDto(1L, "Dr. Johnson", "General Hospital", LocalDateTime.now(), "Follow-up", 1L);
@@ -1,21 +1,31 @@
 package com.HealthTrack.controllers;
 
+import com.HealthTrack.dtos.BatchItemResultDto;
+import com.HealthTrack.dtos.HealthMetricBatchResultDto;
+import com.HealthTrack.dtos.HealthMetricBucketDto;
 import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.HealthMetricSeriesDto;
 import com.HealthTrack.services.imp.HealthMetricServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 @SpringBootTest
@@ -26,6 +36,9 @@ public class HealthMetricControllerTest {
     @Mock
     private HealthMetricServiceImpl healthMetricService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private HealthMetricController healthMetricController;
 
@@ -47,6 +60,85 @@ public class HealthMetricControllerTest {
                 .andExpect(jsonPath("$.metricType").value("Weight"));
     }
 
+    @Test
+    public void testGetHealthMetricSeries() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 5, 2, 0, 0);
+        HealthMetricSeriesDto series = new HealthMetricSeriesDto(1L, "Heart Rate", "1h", List.of(
+                new HealthMetricBucketDto(from, 12L, 71.5, 60.0, 90.0, 88.0)));
+        when(healthMetricService.findHealthMetricSeries(1L, "Heart Rate", from, to, "1h", List.of("avg", "max", "p95")))
+                .thenReturn(series);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(healthMetricController).build();
+
+        mockMvc.perform(get("/api/healthMetrics/series")
+                        .param("userId", "1")
+                        .param("type", "Heart Rate")
+                        .param("from", "2030-05-01T00:00:00")
+                        .param("to", "2030-05-02T00:00:00")
+                        .param("bucket", "1h")
+                        .param("agg", "avg,max,p95"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bucket").value("1h"))
+                .andExpect(jsonPath("$.buckets[0].count").value(12))
+                .andExpect(jsonPath("$.buckets[0].p95").value(88.0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamHealthMetricBatch_ReadsEachNdjsonLine() throws Exception {
+        List<Object> read = new ArrayList<>();
+        when(healthMetricService.createHealthMetricBatch(eq(1L), any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<HealthMetricDto> samples = invocation.getArgument(1);
+            while (samples.hasNext()) {
+                try {
+                    read.add(samples.next().getValue());
+                } catch (RuntimeException e) {
+                    read.add("invalid");
+                }
+            }
+            return new HealthMetricBatchResultDto(2, 1, List.of(
+                    new BatchItemResultDto(0, 10L, null),
+                    new BatchItemResultDto(1, null, "Invalid JSON"),
+                    new BatchItemResultDto(2, 11L, null)));
+        });
+
+        mockMvc = MockMvcBuilders.standaloneSetup(healthMetricController).build();
+
+        mockMvc.perform(post("/api/healthMetrics/batch")
+                        .param("userId", "1")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"metricType\":\"Heart Rate\",\"value\":72,\"timestamp\":\"2023-09-20T10:00:00\"}\n" +
+                                "{\"metricType\":\n" +
+                                "\n" +
+                                "{\"metricType\":\"Heart Rate\",\"value\":75,\"timestamp\":\"2023-09-20T10:01:00\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.items[1].error").value("Invalid JSON"));
+
+        assertEquals(List.of(72.0, "invalid", 75.0), read);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCreateHealthMetricBatch_AcceptsJsonArray() throws Exception {
+        ArgumentCaptor<Iterator<HealthMetricDto>> samples = ArgumentCaptor.forClass(Iterator.class);
+        when(healthMetricService.createHealthMetricBatch(eq(1L), samples.capture()))
+                .thenReturn(new HealthMetricBatchResultDto(2, 0, List.of()));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(healthMetricController).build();
+
+        mockMvc.perform(post("/api/healthMetrics/batch")
+                        .param("userId", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"metricType\":\"Heart Rate\",\"value\":72,\"timestamp\":\"2023-09-20T10:00:00\"}," +
+                                "{\"metricType\":\"Heart Rate\",\"value\":75,\"timestamp\":\"2023-09-20T10:01:00\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2));
+
+        assertEquals("Heart Rate", samples.getValue().next().getMetricType());
+    }
+
     @Test
     public void testGetHealthMetricById() throws Exception {
         HealthMetricDto healthMetricDto = new HealthMetricDto(1L, "Weight", 75.5, LocalDateTime.now(), 1L);
@@ -5,6 +5,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.dtos.NotificationPageDto;
+import com.HealthTrack.push.NotificationPushHub;
 import com.HealthTrack.services.NotificationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +16,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -27,6 +30,9 @@ public class NotificationControllerTest {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private NotificationPushHub notificationPushHub;
+
     @InjectMocks
     private NotificationController notificationController;
 
@@ -53,6 +59,74 @@ public class NotificationControllerTest {
         verify(notificationService, times(1)).getUserNotifications(1L);
     }
 
+    @Test
+    public void testGetUserInbox() throws Exception {
+        NotificationPageDto page = new NotificationPageDto(Arrays.asList(
+                new NotificationDto(1L, "Abnormal Blood Pressure", "Blood Pressure", "HealthMetricAlert", false, LocalDateTime.now(), 1L)
+        ), "next-cursor");
+
+        when(notificationService.getUserInbox(1L, true, "HealthMetricAlert", null, null, "cursor", 10)).thenReturn(page);
+
+        mockMvc.perform(get("/api/notifications/user/1/inbox")
+                        .param("unread", "true")
+                        .param("type", "HealthMetricAlert")
+                        .param("after", "cursor")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].message").value("Abnormal Blood Pressure"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"));
+    }
+
+    @Test
+    public void testGetUnreadCount() throws Exception {
+        when(notificationService.countUnreadNotifications(1L)).thenReturn(7L);
+
+        mockMvc.perform(get("/api/notifications/user/1/unread-count"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("7"));
+    }
+
+    @Test
+    public void testStreamUserNotifications() throws Exception {
+        when(notificationPushHub.subscribe(1L, "5")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/notifications/user/1/stream").header("Last-Event-ID", "5"))
+                .andExpect(request().asyncStarted());
+
+        verify(notificationPushHub, times(1)).subscribe(1L, "5");
+    }
+
+    @Test
+    public void testMarkAllNotificationsAsRead() throws Exception {
+        when(notificationService.markAllNotificationsAsRead(1L)).thenReturn(4);
+
+        mockMvc.perform(put("/api/notifications/user/1/read-all"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("4"));
+    }
+
+    @Test
+    public void testMarkNotificationsAsRead() throws Exception {
+        when(notificationService.markNotificationsAsRead(1L, List.of(2L, 3L))).thenReturn(2);
+
+        mockMvc.perform(put("/api/notifications/user/1/read")
+                        .contentType("application/json")
+                        .content("[2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
+    @Test
+    public void testDeleteNotificationsByFilter() throws Exception {
+        when(notificationService.deleteNotifications(1L, true, "WellnessTip", null, null)).thenReturn(5);
+
+        mockMvc.perform(delete("/api/notifications/user/1")
+                        .param("read", "true")
+                        .param("type", "WellnessTip"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("5"));
+    }
+
     @Test
     public void testMarkNotificationAsRead() throws Exception {
         mockMvc.perform(put("/api/notifications/1/read"))
@@ -2,6 +2,8 @@ package com.HealthTrack.controllers;
 
 
 import com.HealthTrack.dtos.UserDto;
+import com.HealthTrack.models.ExportFormat;
+import com.HealthTrack.services.ExportService;
 import com.HealthTrack.services.UserService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -9,11 +11,19 @@ import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static org.mockito.ArgumentMatchers.any;
 
@@ -30,6 +40,9 @@ public class UserControllerTest {
    @Mock
    private UserService userService;
 
+   @Mock
+   private ExportService exportService;
+
    @InjectMocks
    private UserController userController;
 
@@ -59,13 +72,15 @@ public class UserControllerTest {
 
       UserDto userDto = new UserDto(1L, "cham","mbk","cham@email.com","123-456-7890",null, null,null, null);
 
-      when(userService.findUserById(1L)).thenReturn(userDto);
+      when(userService.findUserById(1L, null)).thenReturn(userDto);
 
       mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
 
 
       mockMvc.perform(get("/api/users/1"))
               .andExpect(status().isOk())
+              .andExpect(jsonPath("$.password").doesNotExist())
+              .andExpect(jsonPath("$.symptoms").doesNotExist())
               .andExpect(jsonPath("$.username").value("cham"))
               .andExpect(jsonPath("$.email").value("cham@email.com"));
 
@@ -79,10 +94,10 @@ public class UserControllerTest {
               new UserDto(2L, "jane", "password", "jane@email.com", "123-555-7890", null, null, null, null)
       );
 
-      when(userService.findAllUser()).thenReturn(users);
+      when(userService.findAllUser(1, 2, Set.of("symptoms", "appointments"))).thenReturn(users);
 
       mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
-      mockMvc.perform(get("/api/users"))
+      mockMvc.perform(get("/api/users").param("page", "1").param("size", "2").param("include", "symptoms,appointments"))
               .andExpect(status().isOk())
               .andExpect(jsonPath("$[0].username").value("cham"))
               .andExpect(jsonPath("$[1].username").value("jane"));
@@ -122,7 +137,28 @@ public class UserControllerTest {
 
    }
 
+   @Test
+   public void testExportUserRecordIsGzipped() throws Exception {
+     doAnswer(invocation -> {
+       OutputStream out = invocation.getArgument(2);
+       out.write("{\"recordType\":\"symptom\"}\n".getBytes(StandardCharsets.UTF_8));
+       return null;
+     }).when(exportService).exportUserRecord(eq(1L), eq(ExportFormat.CSV), any(OutputStream.class));
 
+     mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
 
+     MvcResult started = mockMvc.perform(get("/api/users/1/export")
+                     .param("format", "csv")
+                     .header("Accept-Encoding", "gzip, deflate"))
+             .andExpect(request().asyncStarted())
+             .andReturn();
+     MvcResult result = mockMvc.perform(asyncDispatch(started))
+             .andExpect(status().isOk())
+             .andExpect(header().string("Content-Encoding", "gzip"))
+             .andExpect(header().string("Content-Disposition", "attachment; filename=\"healthtrack-user-1.csv\""))
+             .andReturn();
 
+     byte[] body = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())).readAllBytes();
+     assertEquals("{\"recordType\":\"symptom\"}\n", new String(body, StandardCharsets.UTF_8));
+   }
 }
@@ -0,0 +1,327 @@
+package com.HealthTrack.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Drives load against a running app started with the perf profile, and reports throughput and latency
+ * percentiles per endpoint.
+ *
+ * Each of the given number of workers sends one request at a time, picking a weighted mix of reads and writes
+ * across every controller for a random synthetic user, for the given duration. Requests sent during the warmup
+ * are not counted. Afterwards the reminder sweep timer is read from the metrics endpoint, so a slower sweep
+ * shows up next to the endpoint latencies. Run through the load-test Maven profile, see pom.xml.
+ *
+ * Options: --url, --users, --concurrency, --duration and --warmup (seconds), --username, --password,
+ * --only with a regex of the scenarios to run, and --each-once true to send every scenario once before the
+ * timed mix, so each shows up in the report however short the run.
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Options options;
+    private final HttpClient client;
+    private final String authorization;
+    private final List<Scenario> scenarios;
+    private final int totalWeight;
+
+    public LoadDriver(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (options.username() + ":" + options.password()).getBytes(StandardCharsets.UTF_8));
+        Pattern only = Pattern.compile(options.only());
+        this.scenarios = scenarios().stream()
+                .filter(scenario -> only.matcher(scenario.name()).find())
+                .toList();
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("No scenario matches " + options.only());
+        }
+        this.totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.printf("Driving %s with %d workers for %ds after a %ds warmup, %d users%n",
+                options.url(), options.concurrency(), options.durationSeconds(), options.warmupSeconds(), options.users());
+        Report report = new LoadDriver(options).run();
+        report.print(System.out);
+    }
+
+    /**
+     * One kind of request; the function builds it for a user id
+     */
+    record Scenario(String name, int weight, Function<Long, HttpRequest.Builder> request) {
+    }
+
+    public record Options(String url, int users, int concurrency, int durationSeconds, int warmupSeconds,
+                          String username, String password, String only, boolean eachOnce) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                if (!args[i].startsWith("--")) {
+                    throw new IllegalArgumentException("Expected an option, got " + args[i]);
+                }
+                values.put(args[i].substring(2), args[i + 1]);
+            }
+            return new Options(
+                    values.getOrDefault("url", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("users", "1000")),
+                    Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                    Integer.parseInt(values.getOrDefault("duration", "60")),
+                    Integer.parseInt(values.getOrDefault("warmup", "10")),
+                    values.getOrDefault("username", "perf-user-1"),
+                    values.getOrDefault("password", "perf-password"),
+                    values.getOrDefault("only", ".*"),
+                    Boolean.parseBoolean(values.getOrDefault("each-once", "false")));
+        }
+    }
+
+    private List<Scenario> scenarios() {
+        return List.of(
+                get("appointments.list", 5, userId -> "/api/appointments?userId=" + userId),
+                get("appointments.upcoming-page", 10, userId -> "/api/appointments/page?userId=" + userId +
+                        "&when=upcoming&limit=20"),
+                get("appointments.search", 3, userId -> "/api/appointments/search?userId=" + userId + "&q=checkup"),
+                post("appointments.create", 2, userId -> "/api/appointments", userId -> Map.of(
+                        "doctorName", "Dr. Load",
+                        "location", "City Clinic",
+                        "appointmentDate", LocalDateTime.now().plusDays(random().nextInt(1, 30))
+                                .truncatedTo(ChronoUnit.HOURS).toString(),
+                        "reasonForVisit", "Follow-up visit",
+                        "userId", userId)),
+                get("healthMetrics.list", 5, userId -> "/api/healthMetrics?userId=" + userId),
+                get("healthMetrics.series", 5, userId -> {
+                    LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+                    return "/api/healthMetrics/series?userId=" + userId + "&type=Weight&bucket=1d" +
+                            "&from=" + to.minusDays(30) + "&to=" + to;
+                }),
+                post("healthMetrics.create", 3, userId -> "/api/healthMetrics", userId -> Map.of(
+                        "metricType", "Heart Rate",
+                        "value", 60 + random().nextInt(40),
+                        "timestamp", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString(),
+                        "userId", userId)),
+                get("symptoms.list", 5, userId -> "/api/symptoms?userId=" + userId),
+                post("symptoms.create", 2, userId -> "/api/symptoms", userId -> Map.of(
+                        "symptomType", "Headache",
+                        "severity", 1 + random().nextInt(6),
+                        "description", "Logged by the load driver",
+                        "timestamp", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString(),
+                        "userId", userId)),
+                get("notifications.inbox", 10, userId -> "/api/notifications/user/" + userId + "/inbox?limit=20"),
+                get("notifications.unread-count", 10, userId -> "/api/notifications/user/" + userId + "/unread-count"),
+                new Scenario("notifications.read-all", 1, userId -> request("/api/notifications/user/" + userId + "/read-all")
+                        .PUT(HttpRequest.BodyPublishers.noBody())),
+                get("users.get", 5, userId -> "/api/users/" + userId),
+                get("users.page", 2, userId -> "/api/users?page=" + random().nextInt(Math.max(1, options.users() / 20)) +
+                        "&size=20"));
+    }
+
+    /**
+     * Send requests from every worker until the duration is up
+     */
+    public Report run() throws Exception {
+        // Sent before the warmup, so it only counts when there is none
+        Map<String, Samples> merged = new TreeMap<>();
+        if (options.eachOnce()) {
+            scenarios.forEach(scenario -> send(scenario, merged, options.warmupSeconds() == 0));
+        }
+
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(options.warmupSeconds()).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(options.durationSeconds()).toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency());
+        List<Future<Map<String, Samples>>> results = new ArrayList<>();
+        for (int i = 0; i < options.concurrency(); i++) {
+            results.add(workers.submit(() -> work(warmupEnd, end)));
+        }
+
+        // Each worker records into its own samples, merged once they are done
+        for (Future<Map<String, Samples>> result : results) {
+            result.get().forEach((name, samples) -> merged.computeIfAbsent(name, n -> new Samples()).addAll(samples));
+        }
+        workers.shutdown();
+
+        return new Report(merged, options.durationSeconds(), reminderSweep());
+    }
+
+    private Map<String, Samples> work(long warmupEnd, long end) {
+        Map<String, Samples> samples = new HashMap<>();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            send(pick(), samples, now >= warmupEnd);
+        }
+        return samples;
+    }
+
+    /**
+     * Send one request of the scenario for a random user, and record it if asked to
+     */
+    private void send(Scenario scenario, Map<String, Samples> samples, boolean record) {
+        long start = System.nanoTime();
+        long userId = random().nextLong(1, options.users() + 1);
+        boolean error;
+        try {
+            HttpResponse<Void> response = client.send(scenario.request().apply(userId).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            error = response.statusCode() >= 400;
+        } catch (Exception e) {
+            error = true;
+        }
+        if (record) {
+            samples.computeIfAbsent(scenario.name(), name -> new Samples()).add(System.nanoTime() - start, error);
+        }
+    }
+
+    private Scenario pick() {
+        int roll = random().nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            roll -= scenario.weight();
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    /**
+     * Runs, mean and max of the reminder sweep in seconds, or null if the metrics endpoint has none yet
+     */
+    private double[] reminderSweep() {
+        try {
+            HttpResponse<String> response = client.send(request("/actuator/metrics/healthtrack.reminders.sweep").GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            Map<String, Double> statistics = new HashMap<>();
+            for (JsonNode measurement : OBJECT_MAPPER.readTree(response.body()).path("measurements")) {
+                statistics.put(measurement.path("statistic").asText(), measurement.path("value").asDouble());
+            }
+            double count = statistics.getOrDefault("COUNT", 0.0);
+            return new double[]{count, count > 0 ? statistics.getOrDefault("TOTAL_TIME", 0.0) / count : 0,
+                    statistics.getOrDefault("MAX", 0.0)};
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Scenario get(String name, int weight, Function<Long, String> path) {
+        return new Scenario(name, weight, userId -> request(path.apply(userId)).GET());
+    }
+
+    private Scenario post(String name, int weight, Function<Long, String> path, Function<Long, Map<String, Object>> body) {
+        return new Scenario(name, weight, userId -> {
+            try {
+                return request(path.apply(userId))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body.apply(userId))));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to write request body", e);
+            }
+        });
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(options.url() + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", authorization);
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * Latencies in nanoseconds, and how many of the requests failed
+     */
+    static final class Samples {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void add(long latency, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (error) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i], false);
+            }
+            errors += other.errors;
+        }
+
+        int count() {
+            return count;
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        /**
+         * Nearest-rank percentile in milliseconds; sorts the samples
+         */
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            Arrays.sort(latencies, 0, count);
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return latencies[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+    }
+
+    public record Report(Map<String, Samples> samples, int durationSeconds, double[] reminderSweep) {
+
+        public long requests() {
+            return samples.values().stream().mapToLong(Samples::count).sum();
+        }
+
+        public long errors() {
+            return samples.values().stream().mapToLong(Samples::errors).sum();
+        }
+
+        void print(PrintStream out) {
+            out.printf("%-30s %9s %7s %9s %9s %9s %9s %9s%n",
+                    "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+            samples.forEach((name, scenario) -> out.printf("%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, scenario.count(), scenario.errors(), (double) scenario.count() / durationSeconds,
+                    scenario.percentileMillis(50), scenario.percentileMillis(90), scenario.percentileMillis(99),
+                    scenario.percentileMillis(100)));
+            out.printf("%-30s %9d %7d %9.1f%n", "total", requests(), errors(), (double) requests() / durationSeconds);
+            if (reminderSweep != null) {
+                out.printf("Reminder sweep: %.0f runs, mean %.2f ms, max %.2f ms%n",
+                        reminderSweep[0], reminderSweep[1] * 1000, reminderSweep[2] * 1000);
+            }
+        }
+    }
+}
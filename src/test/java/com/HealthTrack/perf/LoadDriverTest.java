@@ -0,0 +1,38 @@
+package com.HealthTrack.perf;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the app with the perf profile and a few synthetic users, and drives it briefly so every scenario
+ * is known to succeed against the generated data. Every scenario is sent once up front, since a short
+ * weighted mix may never draw the rare ones.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-driver;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "healthtrack.search.index-dir=target/search-index/load-driver",
+        "healthtrack.perf.users=20",
+        "healthtrack.perf.metrics-per-user=30"
+})
+@ActiveProfiles("perf")
+public class LoadDriverTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testEveryScenarioSucceedsAgainstSyntheticData() throws Exception {
+        LoadDriver.Options options = new LoadDriver.Options("http://localhost:" + port, 20, 4, 3, 0,
+                SyntheticDataGenerator.USERNAME_PREFIX + 1, "perf-password", ".*", true);
+
+        LoadDriver.Report report = new LoadDriver(options).run();
+
+        assertTrue(report.requests() > 0);
+        assertEquals(14, report.samples().size(), "every scenario should have run");
+        report.samples().forEach((name, samples) -> assertEquals(0, samples.errors(), name + " had errors"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.HealthTrack.push;
+
+import com.HealthTrack.controllers.NotificationController;
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.repositories.NotificationRepository;
+import com.HealthTrack.services.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Opens notification streams through the controller and checks what the hub writes to them
+ */
+public class NotificationPushHubTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 9, 30, 15);
+
+    private NotificationRepository notificationRepository;
+    private NotificationPushHub hub;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        notificationRepository = mock(NotificationRepository.class);
+        hub = new NotificationPushHub(notificationRepository, 30, 100, 60);
+        mockMvc = MockMvcBuilders.standaloneSetup(new NotificationController(mock(NotificationService.class), hub)).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    public void testNewNotificationIsPushedToItsUserOnly() throws Exception {
+        MockHttpServletResponse userStream = open("/api/notifications/user/1/stream", null);
+        MockHttpServletResponse otherStream = open("/api/notifications/user/2/stream", null);
+        assertEquals(2, hub.openStreamCount());
+
+        hub.publish(notification(7L, 1L, "Heart rate high"));
+
+        String events = awaitContent(userStream, "Heart rate high");
+        assertTrue(events.contains("id:" + NOW + "_7"), events);
+        assertTrue(events.contains("event:notification"), events);
+        assertEquals("", otherStream.getContentAsString());
+        verify(notificationRepository, never()).findNotificationDtosByUserIdSince(any(), any(), any());
+    }
+
+    @Test
+    public void testPollPushesNotificationsCreatedOnOtherNodes() throws Exception {
+        MockHttpServletResponse stream = open("/api/notifications/user/1/stream", null);
+        hub.publish(notification(7L, 1L, "Created here"));
+        awaitContent(stream, "Created here");
+        when(notificationRepository.findNotificationDtosByUserIdInSince(eq(List.of(1L)), any(), any(Pageable.class)))
+                .thenReturn(List.of(notification(7L, 1L, "Created here"), notification(8L, 1L, "Created elsewhere")));
+
+        hub.pollNotifications();
+        hub.pollNotifications();
+
+        String events = awaitContent(stream, "Created elsewhere");
+        // Seen by the local publish and both polls, but sent once
+        assertEquals(1, events.split("Created here", -1).length - 1, events);
+        assertEquals(1, events.split("Created elsewhere", -1).length - 1, events);
+    }
+
+    @Test
+    public void testPollSkipsNodesWithoutStreams() {
+        hub.pollNotifications();
+
+        verify(notificationRepository, never()).findNotificationDtosByUserIdInSince(any(), any(), any());
+    }
+
+    @Test
+    public void testReconnectReplaysMissedNotifications() throws Exception {
+        when(notificationRepository.findNotificationDtosByUserIdSince(eq(1L), eq(NOW.minusSeconds(60)), any(Pageable.class)))
+                .thenReturn(List.of(notification(5L, 1L, "Last seen"),
+                        notification(6L, 1L, "Missed one"), notification(7L, 1L, "Missed two")));
+
+        MockHttpServletResponse stream = open("/api/notifications/user/1/stream", NOW + "_5");
+        hub.publish(notification(8L, 1L, "Live one"));
+
+        String events = awaitContent(stream, "Live one");
+        assertTrue(events.indexOf("Missed one") < events.indexOf("Missed two"), events);
+        assertTrue(events.indexOf("Missed two") < events.indexOf("Live one"), events);
+        assertFalse(events.contains("Last seen"), events);
+    }
+
+    @Test
+    public void testReplayReachesBackPastOutOfOrderIds() throws Exception {
+        // A lower id from another node's sequence block, committed after the client saw id 151
+        when(notificationRepository.findNotificationDtosByUserIdSince(eq(1L), eq(NOW.minusSeconds(60)), any(Pageable.class)))
+                .thenReturn(List.of(notification(102L, 1L, "Other node"), notification(151L, 1L, "Last seen")));
+
+        MockHttpServletResponse stream = open("/api/notifications/user/1/stream", NOW + "_151");
+
+        String events = awaitContent(stream, "Other node");
+        assertFalse(events.contains("Last seen"), events);
+    }
+
+    @Test
+    public void testBareNotificationIdResumesFromItsTimestamp() throws Exception {
+        when(notificationRepository.findTimestampById(5L)).thenReturn(Optional.of(NOW));
+        when(notificationRepository.findNotificationDtosByUserIdSince(eq(1L), eq(NOW.minusSeconds(60)), any(Pageable.class)))
+                .thenReturn(List.of(notification(6L, 1L, "Missed one")));
+
+        MockHttpServletResponse stream = open("/api/notifications/user/1/stream", "5");
+
+        awaitContent(stream, "Missed one");
+    }
+
+    @Test
+    public void testHeartbeatIsSentToIdleStreams() throws Exception {
+        MockHttpServletResponse stream = open("/api/notifications/user/1/stream", null);
+
+        hub.sendHeartbeats();
+
+        assertTrue(awaitContent(stream, ":heartbeat").startsWith(":heartbeat"));
+    }
+
+    private MockHttpServletResponse open(String path, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder streamRequest = get(path);
+        if (lastEventId != null) {
+            streamRequest.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(streamRequest).andExpect(request().asyncStarted()).andReturn().getResponse();
+    }
+
+    /**
+     * Events are written by a drain task, so wait for the expected text to show up
+     */
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+
+    private static NotificationDto notification(Long id, Long userId, String message) {
+        return new NotificationDto(id, message, "Heart Rate", "HealthMetricAlert", false, NOW, userId);
+    }
+}
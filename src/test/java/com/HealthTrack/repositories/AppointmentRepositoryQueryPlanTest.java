@@ -0,0 +1,147 @@
+package com.HealthTrack.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the day-based appointment queries against H2 and checks the plan of the SQL Hibernate actually sends,
+ * so a query that wraps appointment_date in a function (and stops using the indexes) fails here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:appointment-query-plan;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/appointment-query-plan",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.HealthTrack.repositories.AppointmentRepositoryQueryPlanTest$RecordingStatementInspector"
+})
+public class AppointmentRepositoryQueryPlanTest {
+
+    private static final ZoneId CHICAGO = ZoneId.of("America/Chicago");
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate day = LocalDate.of(2031, 6, 10);
+    private Long userId;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM appointments");
+        jdbcTemplate.update("DELETE FROM users");
+
+        jdbcTemplate.update("INSERT INTO users (username, email, phone_number) VALUES ('plan-user', 'plan@example.com', '555-0100')");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'plan-user'", Long.class);
+
+        // Stored as UTC; the 10th in Chicago (UTC-5 in June) runs from 05:00 UTC on the 10th to 05:00 UTC on the 11th
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(appointmentRow("Early", day.atTime(4, 30)));
+        rows.add(appointmentRow("Midday", day.atTime(12, 0)));
+        rows.add(appointmentRow("Late", day.atTime(23, 30)));
+        rows.add(appointmentRow("Next day", day.plusDays(1).atTime(6, 0)));
+        jdbcTemplate.batchUpdate("INSERT INTO appointments (doctor_name, location, appointment_date, reason_for_visit, user_id) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.update("ANALYZE");
+    }
+
+    @Test
+    public void testUserDayQueryUsesUserDateIndexAndZone() {
+        RecordingStatementInspector.clear();
+        List<String> doctors = appointmentRepository.findAppointmentsByUserIdAndDate(userId, day, CHICAGO).stream()
+                .map(appointment -> appointment.getDoctorName())
+                .toList();
+
+        assertEquals(List.of("Midday", "Late"), doctors);
+        String plan = explainLast(userId, startOfDayUtc(day), startOfDayUtc(day.plusDays(1)));
+        // A condition after the index name means H2 seeks into the index rather than scanning it
+        assertTrue(plan.contains("IDX_APPOINTMENTS_USER_DATE:") && plan.contains("APPOINTMENT_DATE >= ?2"), plan);
+    }
+
+    @Test
+    public void testTodayQueryUsesDateIndex() {
+        RecordingStatementInspector.clear();
+        appointmentRepository.findAppointmentsForToday(day.atTime(9, 0));
+
+        String plan = explainLast(Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        assertTrue(plan.contains("IDX_APPOINTMENTS_DATE:"), plan);
+    }
+
+    @Test
+    public void testHasAppointmentsOnDateIsIndexedExistsProbe() {
+        assertTrue(appointmentRepository.hasAppointmentsOnDate(userId, day.atTime(9, 0)));
+        assertFalse(appointmentRepository.hasAppointmentsOnDate(userId, day.plusDays(5), CHICAGO));
+
+        RecordingStatementInspector.clear();
+        appointmentRepository.hasAppointmentsOnDate(userId, day, CHICAGO);
+        String sql = RecordingStatementInspector.last().toLowerCase();
+
+        assertFalse(sql.contains("count("), sql);
+        assertTrue(sql.contains("fetch first") || sql.contains("limit") || sql.contains("offset"), sql);
+    }
+
+    @Test
+    public void testDateFunctionPredicateCannotUseIndex() {
+        // The shape these queries used to have: at best a full index scan, never a seek on the date
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM appointments WHERE CAST(appointment_date AS DATE) = ?",
+                String.class, java.sql.Date.valueOf(day));
+
+        assertFalse(plan.contains("IDX_APPOINTMENTS_DATE:"), plan);
+    }
+
+    private Object[] appointmentRow(String doctorName, LocalDateTime appointmentDate) {
+        return new Object[]{doctorName, "Clinic", Timestamp.valueOf(appointmentDate), "Checkup", userId};
+    }
+
+    private static Timestamp startOfDayUtc(LocalDate date) {
+        return Timestamp.valueOf(date.atStartOfDay(CHICAGO).withZoneSameInstant(ZoneId.of("UTC")).toLocalDateTime());
+    }
+
+    /**
+     * EXPLAIN the last SQL statement Hibernate prepared, binding the given parameters in order
+     */
+    private String explainLast(Object... args) {
+        String sql = RecordingStatementInspector.last();
+        assertNotNull(sql);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        private static volatile String lastSql;
+
+        static void clear() {
+            lastSql = null;
+        }
+
+        static String last() {
+            return lastSql;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase().contains("appointments")) {
+                lastSql = sql;
+            }
+            return sql;
+        }
+    }
+}
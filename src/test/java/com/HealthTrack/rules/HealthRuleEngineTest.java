@@ -0,0 +1,86 @@
+package com.HealthTrack.rules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HealthRuleEngineTest {
+
+    @TempDir
+    Path rulesDir;
+
+    @Test
+    public void testBundledRulesMatchPreviousThresholds() {
+        HealthRuleEngine engine = new HealthRuleEngine(new DefaultResourceLoader(), HealthRuleEngine.DEFAULT_LOCATION);
+
+        assertEquals(140.0, engine.metricThreshold("Blood Pressure"));
+        assertEquals(90.0, engine.metricThreshold("Blood Pressure Diastolic"));
+        assertEquals(330.0, engine.metricThreshold("Weight"));
+        assertTrue(Double.isNaN(engine.metricThreshold("Steps")));
+        assertTrue(Double.isNaN(engine.metricThreshold(null)));
+
+        assertTrue(engine.isCriticalSymptom("Chest Pain"));
+        assertFalse(engine.isCriticalSymptom("Headache"));
+        assertEquals(8, engine.highSeverity());
+        assertEquals(6, engine.moderateSeverity());
+
+        assertTrue(engine.wellnessTip("Headache").startsWith("💡 TIP: For headaches"));
+        assertTrue(engine.wellnessTip("Hiccups").startsWith("💡 TIP: Remember to rest"));
+        assertTrue(engine.symptomCombinations().contains(Set.of("Fever", "Cough")));
+    }
+
+    @Test
+    public void testChangedFileIsReloaded() throws IOException {
+        Path rules = writeRules("\"HEART_RATE\": 100.0", "\"Chest Pain\"", 0);
+        HealthRuleEngine engine = new HealthRuleEngine(new DefaultResourceLoader(), rules.toUri().toString());
+        assertEquals(100.0, engine.metricThreshold("Heart Rate"));
+
+        writeRules("\"HEART_RATE\": 120.0", "\"Chest Pain\", \"Fainting\"", 1);
+        engine.reloadIfChanged();
+
+        assertEquals(120.0, engine.metricThreshold("Heart Rate"));
+        assertTrue(engine.isCriticalSymptom("Fainting"));
+    }
+
+    @Test
+    public void testInvalidFileKeepsCurrentRules() throws IOException {
+        Path rules = writeRules("\"HEART_RATE\": 100.0", "\"Chest Pain\"", 0);
+        HealthRuleEngine engine = new HealthRuleEngine(new DefaultResourceLoader(), rules.toUri().toString());
+
+        writeRules("\"HEART_RATES\": 120.0", "\"Chest Pain\"", 1);
+        engine.reloadIfChanged();
+
+        assertEquals(100.0, engine.metricThreshold("Heart Rate"));
+    }
+
+    @Test
+    public void testInvalidFileFailsStartup() throws IOException {
+        Path rules = writeRules("\"HEART_RATE\": 100.0", "\"Chest Pain\"", 0);
+        Files.writeString(rules, "{ \"metricThresholds\": {} }");
+
+        assertThrows(RuntimeException.class,
+                () -> new HealthRuleEngine(new DefaultResourceLoader(), rules.toUri().toString()));
+    }
+
+    /**
+     * Write a rules file, stamping it a few seconds apart per version so the change is seen even on coarse clocks
+     */
+    private Path writeRules(String thresholds, String criticalSymptoms, int version) throws IOException {
+        Path rules = rulesDir.resolve("health-rules.json");
+        Files.writeString(rules, "{ \"metricThresholds\": { " + thresholds + " }, " +
+                "\"criticalSymptoms\": [ " + criticalSymptoms + " ], " +
+                "\"highSeverity\": 8, \"moderateSeverity\": 6, " +
+                "\"wellnessTips\": { \"Headache\": \"Drink water\" }, " +
+                "\"defaultWellnessTip\": \"Rest\" }");
+        Files.setLastModifiedTime(rules, FileTime.fromMillis(1_000_000_000_000L + version * 5_000L));
+        return rules;
+    }
+}
@@ -0,0 +1,116 @@
+package com.HealthTrack.rules;
+
+import com.HealthTrack.models.Symptom;
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.SymptomRepository;
+import com.HealthTrack.repositories.SymptomRepository.RecentSymptom;
+import com.HealthTrack.rules.SymptomPatternDetector.SymptomPatterns;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SymptomPatternDetectorTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 3, 10, 12, 0);
+    private final User user = new User(1L, "john_doe", "hashed_password", "john.doe@example.com", "123-456-7890",
+            null, null, null, null);
+
+    private SymptomRepository symptomRepository;
+    private SymptomPatternDetector detector;
+
+    @BeforeEach
+    public void setup() {
+        symptomRepository = mock(SymptomRepository.class);
+        HealthRuleEngine healthRuleEngine = new HealthRuleEngine(new DefaultResourceLoader(), HealthRuleEngine.DEFAULT_LOCATION);
+        detector = new SymptomPatternDetector(symptomRepository, healthRuleEngine, 1000, 1000);
+    }
+
+    @Test
+    public void testWindowIsLoadedOnceFromPastWeek() {
+        when(symptomRepository.findRecentSymptoms(1L, now.minusDays(7))).thenReturn(List.of(
+                recent(1L, "Headache", 4, now.minusDays(3)),
+                recent(2L, "Headache", 4, now.minusDays(2))));
+
+        assertEquals(3, detector.record(symptom(3L, "Headache", 4, now.minusHours(1)), now).sameTypeThisWeek());
+        assertEquals(4, detector.record(symptom(4L, "Headache", 4, now), now.plusMinutes(1)).sameTypeThisWeek());
+
+        verify(symptomRepository, times(1)).findRecentSymptoms(eq(1L), any());
+    }
+
+    @Test
+    public void testSameSymptomIsCountedOnce() {
+        // The window loaded for a symptom already holds it when it was committed before the check
+        when(symptomRepository.findRecentSymptoms(1L, now.minusDays(7))).thenReturn(List.of(
+                recent(1L, "Headache", 4, now.minusHours(1))));
+
+        assertEquals(1, detector.record(symptom(1L, "Headache", 4, now.minusHours(1)), now).sameTypeThisWeek());
+        assertEquals(1, detector.record(symptom(1L, "Headache", 4, now.minusHours(1)), now).sameTypeThisWeek());
+    }
+
+    @Test
+    public void testOldSymptomsSlideOutOfWindows() {
+        detector.record(symptom(1L, "Headache", 4, now.minusHours(2)), now);
+        detector.record(symptom(2L, "Fever", 4, now.minusHours(1)), now);
+
+        SymptomPatterns sameDay = detector.record(symptom(3L, "Cough", 4, now), now);
+        assertEquals(Set.of("Headache", "Fever", "Cough"), sameDay.typesToday());
+
+        SymptomPatterns nextDay = detector.record(symptom(4L, "Headache", 4, now.plusHours(23).plusMinutes(30)), now.plusHours(23).plusMinutes(30));
+        assertEquals(Set.of("Headache", "Cough"), nextDay.typesToday());
+        assertEquals(2, nextDay.sameTypeThisWeek());
+
+        SymptomPatterns nextWeek = detector.record(symptom(5L, "Headache", 4, now.plusDays(7)), now.plusDays(7));
+        assertEquals(Set.of("Headache"), nextWeek.typesToday());
+        assertEquals(2, nextWeek.sameTypeThisWeek());
+    }
+
+    @Test
+    public void testRisingSeverityIsATrend() {
+        assertTrue(detector.record(symptom(1L, "Headache", 3, now.minusDays(2)), now).severityTrend().isEmpty());
+        assertTrue(detector.record(symptom(2L, "Headache", 5, now.minusDays(1)), now).severityTrend().isEmpty());
+
+        assertEquals(List.of(3, 5, 8), detector.record(symptom(3L, "Headache", 8, now), now).severityTrend());
+        // Not worse than the last one
+        assertTrue(detector.record(symptom(4L, "Headache", 8, now), now).severityTrend().isEmpty());
+    }
+
+    @Test
+    public void testCombinationIsReportedBySymptomCompletingIt() {
+        assertTrue(detector.record(symptom(1L, "Fever", 5, now.minusHours(3)), now).combinationsToday().isEmpty());
+
+        assertEquals(List.of(Set.of("Fever", "Cough")),
+                detector.record(symptom(2L, "Cough", 5, now), now).combinationsToday());
+        assertTrue(detector.record(symptom(3L, "Headache", 5, now), now).combinationsToday().isEmpty());
+    }
+
+    @Test
+    public void testInvalidatedWindowIsReloaded() {
+        detector.record(symptom(1L, "Headache", 4, now), now);
+        detector.invalidate(1L);
+        detector.record(symptom(2L, "Headache", 4, now), now);
+
+        verify(symptomRepository, times(2)).findRecentSymptoms(eq(1L), any());
+    }
+
+    private Symptom symptom(Long id, String type, int severity, LocalDateTime timestamp) {
+        return new Symptom(id, type, severity, "Logged", timestamp, user);
+    }
+
+    private static RecentSymptom recent(Long id, String type, int severity, LocalDateTime timestamp) {
+        return new RecentSymptom() {
+            public Long getId() { return id; }
+            public String getSymptomType() { return type; }
+            public Integer getSeverity() { return severity; }
+            public LocalDateTime getTimestamp() { return timestamp; }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.models.NotificationOutbox;
+import com.HealthTrack.models.OutboxEventType;
+import com.HealthTrack.models.OutboxStatus;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class NotificationOutboxDispatcherTest {
+
+    private NotificationOutboxRepository outboxRepository;
+    private SchedulerLease schedulerLease;
+    private OutboxEventHandler appointmentHandler;
+    private NotificationOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    public void setup() {
+        outboxRepository = mock(NotificationOutboxRepository.class);
+        schedulerLease = mock(SchedulerLease.class);
+        appointmentHandler = mock(OutboxEventHandler.class);
+        when(appointmentHandler.getEventType()).thenReturn(OutboxEventType.APPOINTMENT_CREATED);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        dispatcher = new NotificationOutboxDispatcher(outboxRepository, schedulerLease, transactionTemplate,
+                List.of(appointmentHandler));
+    }
+
+    @Test
+    public void testSuccessfulEventIsClaimedAndHandled() {
+        NotificationOutbox event = event(1L, OutboxEventType.APPOINTMENT_CREATED);
+        when(outboxRepository.deleteEvent(1L)).thenReturn(1);
+
+        dispatcher.dispatch(event);
+
+        verify(appointmentHandler, times(1)).handle(event);
+        verify(outboxRepository, never()).save(any(NotificationOutbox.class));
+    }
+
+    @Test
+    public void testEventClaimedElsewhereIsNotHandledAgain() {
+        NotificationOutbox event = event(1L, OutboxEventType.APPOINTMENT_CREATED);
+        when(outboxRepository.deleteEvent(1L)).thenReturn(0);
+
+        dispatcher.dispatch(event);
+
+        verify(appointmentHandler, never()).handle(any(NotificationOutbox.class));
+    }
+
+    @Test
+    public void testFailedEventIsRescheduledWithBackoff() {
+        NotificationOutbox event = event(1L, OutboxEventType.APPOINTMENT_CREATED);
+        when(outboxRepository.deleteEvent(1L)).thenReturn(1);
+        doThrow(new RuntimeException("rule failed")).when(appointmentHandler).handle(event);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch(event);
+
+        verify(outboxRepository, times(1)).save(event);
+        assertEquals(OutboxStatus.PENDING, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(5)));
+        assertTrue(event.getLastError().contains("rule failed"));
+    }
+
+    @Test
+    public void testEventFailsPermanentlyAfterMaxAttempts() {
+        NotificationOutbox event = event(1L, OutboxEventType.APPOINTMENT_CREATED);
+        event.setAttempts(NotificationOutboxDispatcher.MAX_ATTEMPTS - 1);
+        when(outboxRepository.deleteEvent(1L)).thenReturn(1);
+        doThrow(new RuntimeException("rule failed")).when(appointmentHandler).handle(event);
+
+        dispatcher.dispatch(event);
+
+        verify(outboxRepository, times(1)).save(event);
+        assertEquals(OutboxStatus.FAILED, event.getStatus());
+    }
+
+    @Test
+    public void testEventWithoutHandlerIsRetried() {
+        NotificationOutbox event = event(2L, OutboxEventType.SYMPTOM_CREATED);
+        when(outboxRepository.deleteEvent(2L)).thenReturn(1);
+
+        dispatcher.dispatch(event);
+
+        verify(outboxRepository, times(1)).save(event);
+        assertEquals(1, event.getAttempts());
+    }
+
+    @Test
+    public void testNothingIsDispatchedWithoutTheLease() {
+        when(schedulerLease.tryAcquire(any(String.class), any(Duration.class))).thenReturn(false);
+
+        dispatcher.dispatchPendingEvents();
+
+        verify(outboxRepository, never()).findDue(any(OutboxStatus.class), any(LocalDateTime.class), any(Pageable.class));
+    }
+
+    @Test
+    public void testBackoffDoublesUpToCap() {
+        assertEquals(Duration.ofSeconds(5), NotificationOutboxDispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(10), NotificationOutboxDispatcher.backoff(2));
+        assertEquals(Duration.ofSeconds(40), NotificationOutboxDispatcher.backoff(4));
+        assertEquals(Duration.ofMinutes(30), NotificationOutboxDispatcher.backoff(20));
+    }
+
+    private static NotificationOutbox event(Long id, OutboxEventType type) {
+        NotificationOutbox event = NotificationOutbox.pending(type, 10L);
+        event.setId(id);
+        return event;
+    }
+}
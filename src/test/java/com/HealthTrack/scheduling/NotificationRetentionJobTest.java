@@ -0,0 +1,61 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.repositories.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class NotificationRetentionJobTest {
+
+    private NotificationRepository notificationRepository;
+    private SchedulerLease schedulerLease;
+    private PlatformTransactionManager transactionManager;
+    private NotificationRetentionJob retentionJob;
+
+    @BeforeEach
+    public void setup() {
+        notificationRepository = mock(NotificationRepository.class);
+        schedulerLease = mock(SchedulerLease.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        retentionJob = new NotificationRetentionJob(notificationRepository, schedulerLease,
+                new TransactionTemplate(transactionManager), 90, 2);
+    }
+
+    @Test
+    public void testPurgesInChunksUntilNoneLeft() {
+        when(schedulerLease.tryAcquire(eq("notification-retention"), any(Duration.class))).thenReturn(true);
+        when(notificationRepository.findReadNotificationIdsBefore(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+        when(notificationRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(notificationRepository.deleteByIdIn(List.of(3L))).thenReturn(1);
+
+        assertEquals(3, retentionJob.purgeReadNotifications());
+
+        // One transaction per chunk
+        verify(transactionManager, times(2)).commit(any());
+        verify(notificationRepository, times(2)).findReadNotificationIdsBefore(
+                argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusDays(89))), any(Pageable.class));
+    }
+
+    @Test
+    public void testSkipsWithoutLease() {
+        when(schedulerLease.tryAcquire(eq("notification-retention"), any(Duration.class))).thenReturn(false);
+
+        assertEquals(0, retentionJob.purgeReadNotifications());
+
+        verify(notificationRepository, never()).findReadNotificationIdsBefore(any(LocalDateTime.class), any(Pageable.class));
+        verify(notificationRepository, never()).deleteByIdIn(anyCollection());
+    }
+}
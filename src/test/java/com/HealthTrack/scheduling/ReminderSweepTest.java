@@ -0,0 +1,175 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.cache.UserReferenceCache;
+import com.HealthTrack.dtos.NotificationDto;
+import com.HealthTrack.models.ReminderType;
+import com.HealthTrack.repositories.AppointmentRepository;
+import com.HealthTrack.repositories.NotificationOutboxRepository;
+import com.HealthTrack.repositories.ReminderLedgerRepository;
+import com.HealthTrack.scheduling.ReminderTimingWheel.DueReminder;
+import com.HealthTrack.search.AppointmentSearchIndex;
+import com.HealthTrack.services.NotificationService;
+import com.HealthTrack.services.imp.AppointmentImpl;
+import com.HealthTrack.templates.MessageTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the reminder sweep against H2 with its own timing wheel, so the sweep the application schedules
+ * never sees these reminders; notifications go to a mock so the sends can be counted
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reminder-sweep;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/reminder-sweep"
+})
+public class ReminderSweepTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserReferenceCache userReferenceCache;
+
+    @Autowired
+    private ReminderLedgerRepository reminderLedgerRepository;
+
+    @Autowired
+    private SchedulerLease schedulerLease;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    private MessageTemplates messageTemplates;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private NotificationService notificationService;
+    private ReminderTimingWheel wheel;
+    private AppointmentImpl reminders;
+    private LocalDateTime now;
+    private Long userId;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM reminder_ledger");
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM appointments");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (username, email, phone_number) VALUES ('sweep-user', 'sweep@example.com', '555-0100')");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'sweep-user'", Long.class);
+
+        notificationService = mock(NotificationService.class);
+        wheel = new ReminderTimingWheel();
+        // Shares this node's lease, which the application's own sweep already holds
+        reminders = new AppointmentImpl(appointmentRepository, userReferenceCache, notificationService, wheel,
+                reminderLedgerRepository, schedulerLease, transactionTemplate, mock(AppointmentSearchIndex.class),
+                notificationOutboxRepository, messageTemplates);
+        now = LocalDateTime.now().withNano(0);
+    }
+
+    @Test
+    public void testLedgerSuppressesAResend() {
+        LocalDateTime appointmentDate = now.plusHours(2).minusMinutes(5);
+        Long appointmentId = insertAppointment("Dr. Ledger", appointmentDate);
+        wheel.reset(now.minusMinutes(10));
+        wheel.schedule(appointmentId, appointmentDate);
+
+        reminders.sendAppointmentReminders();
+        // The same reminder comes round again, as after a failed sweep or a resync
+        wheel.schedule(appointmentId, appointmentDate, now.minusMinutes(10));
+        reminders.sendAppointmentReminders();
+
+        ArgumentCaptor<Collection<NotificationDto>> sent = ArgumentCaptor.forClass(Collection.class);
+        verify(notificationService, times(1)).createNotifications(sent.capture());
+        assertTrue(sent.getValue().stream()
+                .anyMatch(notification -> ReminderType.TWO_HOUR.getNotificationType().equals(notification.getType())));
+        assertEquals(1, ledgerEntries(appointmentId, ReminderType.TWO_HOUR));
+    }
+
+    @Test
+    public void testReminderAnotherNodeSentIsSkipped() {
+        LocalDateTime appointmentDate = now.plusHours(2).minusMinutes(5);
+        Long appointmentId = insertAppointment("Dr. Other Node", appointmentDate);
+        for (ReminderType type : ReminderType.values()) {
+            LocalDateTime fireTime = type.fireTimeFor(appointmentDate);
+            if (fireTime != null) {
+                jdbcTemplate.update("INSERT INTO reminder_ledger (appointment_id, reminder_type, fire_time, sent_at) " +
+                        "VALUES (?, ?, ?, ?)", appointmentId, type.name(), Timestamp.valueOf(fireTime), Timestamp.valueOf(now));
+            }
+        }
+        wheel.reset(now.minusMinutes(10));
+        wheel.schedule(appointmentId, appointmentDate);
+
+        reminders.sendAppointmentReminders();
+
+        verify(notificationService, never()).createNotifications(any());
+        assertEquals(1, ledgerEntries(appointmentId, ReminderType.TWO_HOUR));
+    }
+
+    @Test
+    public void testUnloadedWheelIsRebuiltFromUpcomingAppointments() {
+        LocalDateTime upcomingDate = now.plusHours(10);
+        Long upcomingId = insertAppointment("Dr. Upcoming", upcomingDate);
+        Long pastId = insertAppointment("Dr. Past", now.minusHours(1));
+
+        reminders.sendAppointmentReminders();
+
+        assertTrue(wheel.isLoaded());
+        List<DueReminder> due = wheel.advanceTo(upcomingDate);
+        assertTrue(due.stream().anyMatch(reminder ->
+                reminder.getAppointmentId().equals(upcomingId) && reminder.getType() == ReminderType.TWO_HOUR));
+        assertTrue(due.stream().noneMatch(reminder -> reminder.getAppointmentId().equals(pastId)));
+    }
+
+    @Test
+    public void testResyncCatchesUpAppointmentsWrittenElsewhere() {
+        wheel.reset(now.minusMinutes(20));
+        // Written by another node since the last sync, so never scheduled on this wheel
+        LocalDateTime overdueDate = now.plusHours(2).minusMinutes(5);
+        Long overdueId = insertAppointment("Dr. Overdue", overdueDate);
+        LocalDateTime laterDate = now.plusHours(10);
+        Long laterId = insertAppointment("Dr. Later", laterDate);
+
+        reminders.sendAppointmentReminders();
+
+        assertFalse(wheel.getSyncedAt().isBefore(now));
+        assertEquals(1, ledgerEntries(overdueId, ReminderType.TWO_HOUR));
+        assertTrue(wheel.advanceTo(laterDate).stream().anyMatch(reminder ->
+                reminder.getAppointmentId().equals(laterId) && reminder.getType() == ReminderType.TWO_HOUR));
+    }
+
+    private Long insertAppointment(String doctorName, LocalDateTime appointmentDate) {
+        jdbcTemplate.update("INSERT INTO appointments (doctor_name, location, appointment_date, reason_for_visit, user_id) " +
+                "VALUES (?, 'City Clinic', ?, 'Checkup', ?)", doctorName, Timestamp.valueOf(appointmentDate), userId);
+        return jdbcTemplate.queryForObject("SELECT id FROM appointments WHERE doctor_name = ?", Long.class, doctorName);
+    }
+
+    private int ledgerEntries(Long appointmentId, ReminderType type) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_ledger WHERE appointment_id = ? AND reminder_type = ?",
+                Integer.class, appointmentId, type.name());
+    }
+}
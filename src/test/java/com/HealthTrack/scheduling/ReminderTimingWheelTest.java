@@ -0,0 +1,119 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.models.ReminderType;
+import com.HealthTrack.scheduling.ReminderTimingWheel.DueReminder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReminderTimingWheelTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 3, 4, 9, 0);
+
+    private ReminderTimingWheel wheel;
+
+    @BeforeEach
+    public void setup() {
+        wheel = new ReminderTimingWheel();
+        wheel.reset(start);
+    }
+
+    @Test
+    public void testEachReminderFiresOnceAtItsDueMinute() {
+        LocalDateTime appointmentDate = start.plusDays(2).withHour(14).withMinute(15);
+        wheel.schedule(1L, appointmentDate);
+        assertEquals(3, wheel.size());
+
+        List<DueReminder> fired = new ArrayList<>();
+        List<LocalDateTime> firedAt = new ArrayList<>();
+        for (LocalDateTime now = start.plusMinutes(1); !now.isAfter(appointmentDate); now = now.plusMinutes(1)) {
+            for (DueReminder reminder : wheel.advanceTo(now)) {
+                fired.add(reminder);
+                firedAt.add(now);
+            }
+        }
+
+        assertEquals(3, fired.size());
+        assertEquals(ReminderType.TWENTY_FOUR_HOUR, fired.get(0).getType());
+        assertEquals(appointmentDate.minusHours(24), firedAt.get(0));
+        assertEquals(ReminderType.DAY_OF, fired.get(1).getType());
+        assertEquals(appointmentDate.withHour(8).withMinute(0), firedAt.get(1));
+        assertEquals(ReminderType.TWO_HOUR, fired.get(2).getType());
+        assertEquals(appointmentDate.minusHours(2), firedAt.get(2));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testAdvancingPastSeveralDueMinutesReturnsAllOfThem() {
+        wheel.schedule(1L, start.plusHours(3));
+        wheel.schedule(2L, start.plusDays(400));
+
+        List<DueReminder> due = wheel.advanceTo(start.plusHours(2));
+
+        assertEquals(1, due.size());
+        assertEquals(1L, due.get(0).getAppointmentId());
+        assertEquals(ReminderType.TWO_HOUR, due.get(0).getType());
+
+        List<DueReminder> farFuture = wheel.advanceTo(start.plusDays(400));
+        assertEquals(3, farFuture.stream().filter(r -> r.getAppointmentId() == 2L).count());
+    }
+
+    @Test
+    public void testRescheduleReplacesAndCancelRemovesReminders() {
+        wheel.schedule(1L, start.plusHours(5));
+        wheel.schedule(1L, start.plusHours(10));
+        wheel.schedule(2L, start.plusHours(5));
+        wheel.cancel(2L);
+
+        assertTrue(wheel.advanceTo(start.plusHours(3)).isEmpty());
+
+        List<DueReminder> due = wheel.advanceTo(start.plusHours(8));
+        assertEquals(1, due.size());
+        assertEquals(1L, due.get(0).getAppointmentId());
+        assertEquals(start.plusHours(10), due.get(0).getAppointmentDate());
+    }
+
+    @Test
+    public void testPastDueRemindersAreNotScheduled() {
+        wheel.schedule(1L, start.plusHours(1));
+
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advanceTo(start.plusHours(1)).isEmpty());
+    }
+
+    @Test
+    public void testRescheduledRemindersFireOnNextAdvance() {
+        wheel.schedule(1L, start.plusHours(3));
+        List<DueReminder> due = wheel.advanceTo(start.plusHours(1));
+        assertEquals(1, due.size());
+
+        wheel.reschedule(due);
+
+        assertEquals(1, wheel.advanceTo(start.plusHours(1)).size());
+        assertTrue(wheel.advanceTo(start.plusHours(1).plusMinutes(1)).isEmpty());
+    }
+
+    @Test
+    public void testInvalidatedWheelDropsTimersAndIgnoresChangesUntilReset() {
+        wheel.schedule(1L, start.plusDays(2));
+        List<DueReminder> due = List.of(new DueReminder(1L, ReminderType.TWO_HOUR, start.plusDays(2)));
+
+        wheel.invalidate();
+        wheel.schedule(2L, start.plusDays(2));
+        wheel.reschedule(due);
+        wheel.cancel(1L);
+
+        assertFalse(wheel.isLoaded());
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advanceTo(start.plusDays(2)).isEmpty());
+
+        wheel.reset(start.plusDays(2));
+        wheel.schedule(2L, start.plusDays(4));
+        assertEquals(3, wheel.size());
+    }
+}
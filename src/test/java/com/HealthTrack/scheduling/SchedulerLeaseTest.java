@@ -0,0 +1,87 @@
+package com.HealthTrack.scheduling;
+
+import com.HealthTrack.repositories.SchedulerLockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two SchedulerLease instances over the same H2 table stand in for two nodes competing for a lease
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reminder-sweep;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/reminder-sweep"
+})
+public class SchedulerLeaseTest {
+
+    private static final String LEASE = "scheduler-lease-test";
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SchedulerLease nodeA;
+    private SchedulerLease nodeB;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM scheduler_locks WHERE name = ?", LEASE);
+        nodeA = new SchedulerLease(schedulerLockRepository);
+        nodeB = new SchedulerLease(schedulerLockRepository);
+    }
+
+    @Test
+    public void testFirstNodeAcquiresAndSecondIsRefused() {
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(3)));
+
+        assertFalse(nodeB.tryAcquire(LEASE, Duration.ofMinutes(3)));
+        assertEquals(nodeA.getNodeId(), owner());
+    }
+
+    @Test
+    public void testHolderRenewsItsLease() {
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(1)));
+        LocalDateTime firstExpiry = lockedUntil();
+
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(10)));
+
+        assertTrue(lockedUntil().isAfter(firstExpiry));
+        assertFalse(nodeB.tryAcquire(LEASE, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    public void testAnotherNodeTakesOverAnExpiredLease() {
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(3)));
+        // The holder stopped renewing and its lease ran out
+        jdbcTemplate.update("UPDATE scheduler_locks SET locked_until = ? WHERE name = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), LEASE);
+
+        assertTrue(nodeB.tryAcquire(LEASE, Duration.ofMinutes(3)));
+
+        assertEquals(nodeB.getNodeId(), owner());
+        assertFalse(nodeA.tryAcquire(LEASE, Duration.ofMinutes(3)));
+    }
+
+    private String owner() {
+        return jdbcTemplate.queryForObject("SELECT owner FROM scheduler_locks WHERE name = ?", String.class, LEASE);
+    }
+
+    private LocalDateTime lockedUntil() {
+        return jdbcTemplate.queryForObject("SELECT locked_until FROM scheduler_locks WHERE name = ?",
+                Timestamp.class, LEASE).toLocalDateTime();
+    }
+}
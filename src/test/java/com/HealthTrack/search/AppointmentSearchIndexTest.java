@@ -0,0 +1,128 @@
+package com.HealthTrack.search;
+
+import com.HealthTrack.models.Appointment;
+import com.HealthTrack.models.User;
+import com.HealthTrack.repositories.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AppointmentSearchIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private AppointmentRepository appointmentRepository;
+    private AppointmentSearchIndex searchIndex;
+
+    private final User alice = user(1L);
+    private final User bob = user(2L);
+
+    @BeforeEach
+    public void setup() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(any(Long.class), any(Pageable.class))).thenReturn(new ArrayList<>());
+
+        searchIndex = new AppointmentSearchIndex(appointmentRepository, indexDir.toString());
+        searchIndex.open();
+
+        searchIndex.index(appointment(1L, alice, "Smith", "Downtown Cardiology Center", "Annual checkup"));
+        searchIndex.index(appointment(2L, alice, "Cardoso", "Northside Clinic", "Cardiology follow-up"));
+        searchIndex.index(appointment(3L, alice, "Nguyen", "Eastside Dental", "Tooth cleaning"));
+        searchIndex.index(appointment(4L, bob, "Smith", "Downtown Cardiology Center", "Cardiology consult"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        searchIndex.close();
+    }
+
+    @Test
+    public void testPrefixMatchesAreScopedToUser() {
+        assertEquals(List.of(2L, 1L), searchIndex.search(1L, "cardio", 10));
+        assertEquals(List.of(4L), searchIndex.search(2L, "cardio", 10));
+    }
+
+    @Test
+    public void testFuzzyMatchToleratesTypo() {
+        assertEquals(List.of(3L), searchIndex.search(1L, "dentl", 10));
+    }
+
+    @Test
+    public void testEveryWordMustMatch() {
+        assertEquals(List.of(1L), searchIndex.search(1L, "smith downtown", 10));
+        assertTrue(searchIndex.search(1L, "smith dental", 10).isEmpty());
+    }
+
+    @Test
+    public void testUpdatesAndRemovalsAreVisibleImmediately() {
+        searchIndex.index(appointment(3L, alice, "Nguyen", "Eastside Dental", "Root canal"));
+        assertEquals(List.of(3L), searchIndex.search(1L, "canal", 10));
+        assertTrue(searchIndex.search(1L, "cleaning", 10).isEmpty());
+
+        searchIndex.remove(3L);
+        assertTrue(searchIndex.search(1L, "canal", 10).isEmpty());
+    }
+
+    @Test
+    public void testRebuildReloadsFromDatabase() {
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(appointment(7L, alice, "Patel", "Westside Imaging", "Knee MRI")));
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(7L), searchIndex.search(1L, "knee", 10));
+        assertTrue(searchIndex.search(1L, "cardio", 10).isEmpty());
+    }
+
+    @Test
+    public void testCatchUpIndexesAppointmentsCreatedElsewhere() {
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(appointment(9L, alice, "Patel", "Westside Imaging", "Knee MRI")));
+
+        searchIndex.catchUp();
+
+        assertEquals(List.of(9L), searchIndex.search(1L, "knee", 10));
+        assertEquals(List.of(2L, 1L), searchIndex.search(1L, "cardio", 10));
+    }
+
+    @Test
+    public void testReconcileDropsDeletedHitsAndReindexesChangedOnes() {
+        List<Long> hits = searchIndex.search(1L, "cardio", 10);
+        assertEquals(List.of(2L, 1L), hits);
+
+        // Changed on another node: appointment 1 moved away from cardiology, appointment 2 was deleted
+        boolean changed = searchIndex.reconcile(hits,
+                Map.of(1L, appointment(1L, alice, "Smith", "Uptown Clinic", "Annual checkup")));
+
+        assertTrue(changed);
+        assertTrue(searchIndex.search(1L, "cardio", 10).isEmpty());
+        assertEquals(List.of(1L), searchIndex.search(1L, "uptown", 10));
+        assertFalse(searchIndex.reconcile(List.of(1L),
+                Map.of(1L, appointment(1L, alice, "Smith", "Uptown Clinic", "Annual checkup"))));
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static Appointment appointment(Long id, User user, String doctorName, String location, String reason) {
+        return new Appointment(id, doctorName, location, LocalDateTime.of(2030, 1, 15, 10, 0), reason, user);
+    }
+}
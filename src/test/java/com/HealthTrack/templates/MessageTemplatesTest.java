@@ -0,0 +1,130 @@
+package com.HealthTrack.templates;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageTemplatesTest {
+
+    @TempDir
+    Path templatesDir;
+
+    @Test
+    public void testBundledTemplatesMatchPreviousMessages() {
+        MessageTemplates templates = new MessageTemplates(new DefaultResourceLoader(), MessageTemplates.DEFAULT_LOCATION,
+                Locale.ENGLISH);
+        LocalDateTime date = LocalDateTime.of(2030, 3, 1, 14, 5);
+
+        assertEquals(String.format("📅 24-HOUR REMINDER: You have an appointment tomorrow with Dr. %s at %s. " +
+                                "Location: %s. Reason: %s. Please prepare any necessary documents and arrive 15 minutes early.",
+                        "Smith", date.format(DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' h:mm a", Locale.ENGLISH)),
+                        "City Clinic", "Checkup"),
+                templates.render("appointment.reminder.24h", "Smith", date, "City Clinic", "Checkup"));
+        assertEquals("⚠️ HIGH SEVERITY ALERT: You've logged chest pain with severe severity (8/10). " +
+                        "Description: null. Please consider seeking medical attention if symptoms persist or worsen.",
+                templates.render("symptom.highSeverity", "Chest Pain", "severe", 8, null));
+        assertEquals("Warning! Your Heart Rate is abnormally high: 120.46 (Threshold: 100.00). Please consult a healthcare provider.",
+                templates.render("metric.abnormal", "Heart Rate", 120.455, 100.0));
+        assertEquals("Your recorded height is 80.00 inches (6.7 feet). Please verify this measurement is correct.",
+                templates.render("metric.height.unusual", 80.0, 80.0 / 12.0));
+        assertEquals("minimal", templates.render("symptom.severity.minimal"));
+    }
+
+    @Test
+    public void testFixedDecimalsMatchStringFormat() {
+        double[] values = {0, 0.5, 1.005, 2.675, -0.125, 0.045, 99.995, -1234.5678, 1e9 + 0.125, 1e15 / 3, Double.NaN,
+                Double.POSITIVE_INFINITY};
+        for (double value : values) {
+            assertFixed(value);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            assertFixed((random.nextDouble() - 0.3) * Math.pow(10, random.nextInt(8)));
+            // Values with few decimals, where ties are common
+            assertFixed(random.nextInt(100_000) / 1000.0);
+        }
+    }
+
+    @Test
+    public void testLocaleTemplatesFallBackToLanguageThenBase() throws IOException {
+        write("notifications.properties", """
+                format.day=MMM dd, yyyy
+                greeting=Hello {0}
+                farewell=Goodbye {0}
+                reading=Reading {0,fixed,1} on {1,date,day}
+                """);
+        write("notifications_fr.properties", """
+                format.day=dd MMM yyyy
+                greeting=Bonjour {0}
+                farewell=Au revoir {0}
+                """);
+        write("notifications_fr_CA.properties", "greeting=Allô {0}\n");
+        MessageTemplates templates = new MessageTemplates(new DefaultResourceLoader(),
+                templatesDir.resolve("notifications").toUri().toString(), Locale.ENGLISH);
+        LocalDateTime date = LocalDateTime.of(2030, 3, 1, 9, 30);
+
+        assertEquals("Allô Ana", templates.render(Locale.CANADA_FRENCH, "greeting", "Ana"));
+        assertEquals("Au revoir Ana", templates.render(Locale.CANADA_FRENCH, "farewell", "Ana"));
+        assertEquals("Reading 36,6 on 01 mars 2030", templates.render(Locale.FRANCE, "reading", 36.6, date));
+        assertEquals("Hello Ana", templates.render(Locale.GERMAN, "greeting", "Ana"));
+        assertEquals("Reading 36.6 on Mar 01, 2030", templates.render("reading", 36.6, date));
+    }
+
+    @Test
+    public void testDefaultLocaleFallsBackToItsLanguage() throws IOException {
+        write("notifications.properties", """
+                greeting=Hello {0}
+                reading=Reading {0,fixed,1}
+                """);
+        write("notifications_fr.properties", "greeting=Bonjour {0}\n");
+        MessageTemplates templates = new MessageTemplates(new DefaultResourceLoader(),
+                templatesDir.resolve("notifications").toUri().toString(), Locale.CANADA_FRENCH);
+
+        assertEquals("Bonjour Ana", templates.render("greeting", "Ana"));
+        assertEquals("Reading 36,6", templates.render("reading", 36.6));
+    }
+
+    @Test
+    public void testMissingTemplateOrArgumentsFail() {
+        MessageTemplates templates = new MessageTemplates(new DefaultResourceLoader(), MessageTemplates.DEFAULT_LOCATION,
+                Locale.ENGLISH);
+
+        assertThrows(RuntimeException.class, () -> templates.render("no.such.template"));
+        assertThrows(RuntimeException.class, () -> templates.render("appointment.updated.doctor", "Smith"));
+    }
+
+    @Test
+    public void testInvalidTemplateFailsStartup() throws IOException {
+        write("notifications.properties", "reading=Reading {0,date,missing}\n");
+
+        assertThrows(RuntimeException.class, () -> new MessageTemplates(new DefaultResourceLoader(),
+                templatesDir.resolve("notifications").toUri().toString(), Locale.ENGLISH));
+
+        write("notifications.properties", "reading=Reading {0\n");
+
+        assertThrows(RuntimeException.class, () -> new MessageTemplates(new DefaultResourceLoader(),
+                templatesDir.resolve("notifications").toUri().toString(), Locale.ENGLISH));
+    }
+
+    private void assertFixed(double value) {
+        for (int decimals = 0; decimals <= 3; decimals++) {
+            StringBuilder out = new StringBuilder();
+            MessageTemplate.appendFixed(out, value, decimals, '.');
+            assertEquals(String.format(Locale.ENGLISH, "%." + decimals + "f", value), out.toString(), "value " + value);
+        }
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(templatesDir.resolve(name), content);
+    }
+}
@@ -0,0 +1,67 @@
+package com.HealthTrack.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GorillaCodecTest {
+
+    @Test
+    public void testRoundTripIsLossless() {
+        Random random = new Random(42);
+        int count = 1024;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        long timestamp = 1_900_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            // Mostly regular, with jitter, occasional long gaps and a few repeated timestamps
+            timestamp += i % 100 == 0 ? 86_400_000L * 40 : i % 37 == 0 ? 0 : 1000 + random.nextInt(200) - 100;
+            timestamps[i] = timestamp;
+            values[i] = i % 11 == 0 ? values[Math.max(i - 1, 0)] : random.nextGaussian() * 1e6;
+        }
+        values[5] = Double.NaN;
+        values[6] = -0.0;
+        values[7] = Double.MAX_VALUE;
+
+        GorillaCodec.DecodedBlock decoded = GorillaCodec.decode(GorillaCodec.encode(timestamps, values));
+
+        assertArrayEquals(timestamps, decoded.timestamps());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoded.values()[i]), "sample " + i);
+        }
+    }
+
+    @Test
+    public void testRegularHeartRateCompressesWell() {
+        int count = 1024;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = 1_900_000_000_000L + i * 1000L;
+            values[i] = 60 + (i / 30) % 20;
+        }
+
+        byte[] encoded = GorillaCodec.encode(timestamps, values);
+
+        // 16 bytes per sample uncompressed
+        assertTrue(encoded.length < count, "encoded " + count + " samples into " + encoded.length + " bytes");
+        assertArrayEquals(values, GorillaCodec.decode(encoded).values());
+    }
+
+    @Test
+    public void testEmptyAndSingleSampleBlocks() {
+        assertEquals(0, GorillaCodec.decode(GorillaCodec.encode(new long[0], new double[0])).timestamps().length);
+
+        GorillaCodec.DecodedBlock single = GorillaCodec.decode(GorillaCodec.encode(new long[]{-5L}, new double[]{98.6}));
+        assertArrayEquals(new long[]{-5L}, single.timestamps());
+        assertArrayEquals(new double[]{98.6}, single.values());
+    }
+
+    @Test
+    public void testOutOfOrderTimestampsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> GorillaCodec.encode(new long[]{2000L, 1000L}, new double[]{1.0, 2.0}));
+    }
+}
@@ -0,0 +1,259 @@
+package com.HealthTrack.timeseries;
+
+import com.HealthTrack.dtos.HealthMetricBucketDto;
+import com.HealthTrack.dtos.HealthMetricDto;
+import com.HealthTrack.dtos.HealthMetricSeriesDto;
+import com.HealthTrack.models.HealthMetricRollup;
+import com.HealthTrack.models.RollupResolution;
+import com.HealthTrack.scheduling.NotificationOutboxDispatcher;
+import com.HealthTrack.services.HealthMetricService;
+import com.HealthTrack.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Records health metrics through the service against H2 and checks the rollups, compaction and reads
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:health-metric-time-series;MODE=MySQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "healthtrack.search.index-dir=target/search-index/health-metric-time-series"
+})
+public class HealthMetricTimeSeriesTest {
+
+    @Autowired
+    private HealthMetricService healthMetricService;
+
+    @Autowired
+    private HealthMetricTimeSeries healthMetricTimeSeries;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Abnormal samples would otherwise have notifications written for them in the background while tables are cleared
+    @MockBean
+    private NotificationOutboxDispatcher notificationOutboxDispatcher;
+
+    private Long userId;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM health_metric_rollups");
+        jdbcTemplate.update("DELETE FROM health_metric_blocks");
+        jdbcTemplate.update("DELETE FROM health_metrics");
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM users");
+
+        jdbcTemplate.update("INSERT INTO users (username, email, phone_number) VALUES ('series-user', 'series@example.com', '555-0100')");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'series-user'", Long.class);
+    }
+
+    @Test
+    public void testRollupsAreMaintainedOnIngest() {
+        LocalDateTime minute = LocalDateTime.of(2031, 3, 4, 10, 15);
+        healthMetricService.createHealthMetricBatch(userId, List.of(
+                sample("Heart Rate", 70.0, minute.plusSeconds(5)),
+                sample("Heart Rate", 90.0, minute.plusSeconds(40)),
+                sample("Heart Rate", 80.0, minute.plusMinutes(1).plusSeconds(10))
+        ).iterator());
+        healthMetricService.createHealthMetric(sample("Heart Rate", 60.0, minute.plusMinutes(20)));
+
+        List<HealthMetricRollup> minutes = rollups(RollupResolution.MINUTE);
+        assertEquals(3, minutes.size());
+        assertEquals(2, minutes.get(0).getSampleCount());
+        assertEquals(80.0, minutes.get(0).getAverage());
+
+        List<HealthMetricRollup> hours = rollups(RollupResolution.HOUR);
+        assertEquals(1, hours.size());
+        assertEquals(4, hours.get(0).getSampleCount());
+        assertEquals(60.0, hours.get(0).getMinValue());
+        assertEquals(90.0, hours.get(0).getMaxValue());
+        assertEquals(300.0, hours.get(0).getValueSum());
+    }
+
+    @Test
+    public void testDeleteRebuildsRollups() {
+        LocalDateTime minute = LocalDateTime.of(2031, 3, 4, 10, 15);
+        healthMetricService.createHealthMetric(sample("Heart Rate", 70.0, minute));
+        HealthMetricDto highest = healthMetricService.createHealthMetric(sample("Heart Rate", 150.0, minute.plusSeconds(30)));
+
+        healthMetricService.deleteHealthMetric(highest.getId());
+
+        HealthMetricRollup day = rollups(RollupResolution.DAY).get(0);
+        assertEquals(1, day.getSampleCount());
+        assertEquals(70.0, day.getMaxValue());
+    }
+
+    @Test
+    public void testCompactionMovesOldSamplesIntoBlocks() {
+        LocalDateTime start = LocalDateTime.now().minusDays(60).withNano(0);
+        List<HealthMetricDto> samples = new ArrayList<>();
+        for (int i = 0; i < HealthMetricTimeSeries.BLOCK_SIZE + 10; i++) {
+            samples.add(sample("Heart Rate", 60 + i % 25, start.plusSeconds(i)));
+        }
+        samples.add(sample("Heart Rate", 75.0, LocalDateTime.now().minusHours(12).withNano(0)));
+        healthMetricService.createHealthMetricBatch(userId, samples.iterator());
+        List<HealthMetricRollup> rollupsBefore = rollups(RollupResolution.HOUR);
+
+        healthMetricTimeSeries.compactRawSamples();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metrics", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metric_blocks", Integer.class));
+
+        // Every sample is still readable, and the rollups are untouched
+        List<HealthMetricDto> all = healthMetricService.findAllHealthMetricsByUserId(userId);
+        assertEquals(samples.size(), all.size());
+        all.sort(Comparator.comparing(HealthMetricDto::getTimestamp));
+        assertEquals(60.0, all.get(0).getValue());
+        assertNull(all.get(0).getId());
+        assertEquals(toStored(start), all.get(0).getTimestamp());
+        assertEquals(rollupsBefore.size(), rollups(RollupResolution.HOUR).size());
+    }
+
+    @Test
+    public void testDeleteUserRemovesBlocksAndRollups() {
+        LocalDateTime start = LocalDateTime.now().minusDays(60).withNano(0);
+        List<HealthMetricDto> samples = new ArrayList<>();
+        for (int i = 0; i < HealthMetricTimeSeries.BLOCK_SIZE; i++) {
+            samples.add(sample("Heart Rate", 70.0, start.plusSeconds(i)));
+        }
+        healthMetricService.createHealthMetricBatch(userId, samples.iterator());
+        healthMetricTimeSeries.compactRawSamples();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metric_blocks", Integer.class));
+
+        userService.deleteUser(userId);
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM health_metric_blocks WHERE user_id = ?", Integer.class, userId));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM health_metric_rollups WHERE user_id = ?", Integer.class, userId));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId));
+    }
+
+    @Test
+    public void testSeriesAggregatesBucketsFromRollupsAndSamples() {
+        LocalDateTime start = LocalDateTime.now().minusDays(60).truncatedTo(ChronoUnit.DAYS);
+        // Start on an even stored hour, so the samples begin a 2h bucket
+        start = start.plusHours(toStored(start).getHour() % 2);
+        List<HealthMetricDto> samples = new ArrayList<>();
+        for (int i = 0; i < HealthMetricTimeSeries.BLOCK_SIZE + 200; i++) {
+            // Values 1-100 repeating, one sample every 10 seconds
+            samples.add(sample("Heart Rate", 1 + i % 100, start.plusSeconds(10L * i)));
+        }
+        healthMetricService.createHealthMetricBatch(userId, samples.iterator());
+        LocalDateTime stored = toStored(start);
+        LocalDateTime hour = stored.truncatedTo(ChronoUnit.HOURS);
+
+        HealthMetricSeriesDto beforeCompaction = healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                hour, hour.plusHours(6), "2h", List.of("avg", "min", "max", "p95"));
+        healthMetricTimeSeries.compactRawSamples();
+        HealthMetricSeriesDto afterCompaction = healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                hour, hour.plusHours(6), "2h", List.of("avg", "min", "max", "p95"));
+
+        // 1224 samples over 3h24m: a full 2h bucket (720 samples) and the rest
+        for (HealthMetricSeriesDto series : List.of(beforeCompaction, afterCompaction)) {
+            assertEquals(2, series.getBuckets().size());
+            HealthMetricBucketDto first = series.getBuckets().get(0);
+            assertEquals(720L, first.getCount());
+            assertEquals(1.0, first.getMin());
+            assertEquals(100.0, first.getMax());
+            assertEquals(95.0, first.getP95());
+            assertEquals(stored.plusHours(2), series.getBuckets().get(1).getStart());
+            assertEquals(504L, series.getBuckets().get(1).getCount());
+        }
+        assertEquals(beforeCompaction.getBuckets().get(1).getP95(), afterCompaction.getBuckets().get(1).getP95());
+        assertEquals(beforeCompaction.getBuckets().get(1).getAvg(), afterCompaction.getBuckets().get(1).getAvg());
+    }
+
+    @Test
+    public void testCompactionBackfillsRollupsOfSamplesStoredWithoutThem() {
+        // Samples stored before rollups existed: one day that compaction moves into a block, and one recent sample
+        LocalDateTime old = LocalDateTime.now().minusDays(60).truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < 120; i++) {
+            insertRawSample(1_000_000L + i, 1 + i % 10, old.plusMinutes(i));
+        }
+        LocalDateTime recent = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.MINUTES);
+        insertRawSample(1_000_200L, 42.0, recent);
+        assertTrue(healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                old, old.plusHours(2), "1h", null).getBuckets().isEmpty());
+
+        healthMetricTimeSeries.compactRawSamples();
+        // A second run finds the counts matching and leaves the rollups as they are
+        healthMetricTimeSeries.compactRawSamples();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metrics", Integer.class));
+        HealthMetricSeriesDto archived = healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                old, old.plusHours(2), "1h", List.of("avg", "min", "max"));
+        assertEquals(2, archived.getBuckets().size());
+        for (HealthMetricBucketDto bucket : archived.getBuckets()) {
+            assertEquals(60L, bucket.getCount());
+            assertEquals(5.5, bucket.getAvg());
+            assertEquals(1.0, bucket.getMin());
+            assertEquals(10.0, bucket.getMax());
+        }
+        HealthMetricSeriesDto current = healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                recent, recent.plusMinutes(1), "1m", null);
+        assertEquals(1, current.getBuckets().size());
+        assertEquals(42.0, current.getBuckets().get(0).getAvg());
+    }
+
+    @Test
+    public void testSeriesOnlyFillsRequestedAggregates() {
+        LocalDateTime minute = LocalDateTime.of(2031, 3, 4, 10, 15);
+        healthMetricService.createHealthMetric(sample("Heart Rate", 70.0, minute));
+        healthMetricService.createHealthMetric(sample("Heart Rate", 80.0, minute.plusMinutes(10)));
+        LocalDateTime stored = toStored(minute);
+
+        HealthMetricSeriesDto series = healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                stored.minusHours(1), stored.plusHours(1), null, null);
+
+        assertEquals(1, series.getBuckets().size());
+        HealthMetricBucketDto bucket = series.getBuckets().get(0);
+        assertEquals(stored.truncatedTo(ChronoUnit.HOURS), bucket.getStart());
+        assertEquals(2L, bucket.getCount());
+        assertEquals(75.0, bucket.getAvg());
+        assertNull(bucket.getMax());
+        assertNull(bucket.getP95());
+        assertThrows(RuntimeException.class, () -> healthMetricService.findHealthMetricSeries(userId, "Heart Rate",
+                stored.minusHours(1), stored.plusHours(1), "90s", null));
+    }
+
+    private List<HealthMetricRollup> rollups(RollupResolution resolution) {
+        return healthMetricTimeSeries.findRollups(userId, "Heart Rate", resolution,
+                LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2100, 1, 1, 0, 0));
+    }
+
+    private void insertRawSample(long id, double value, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO health_metrics (id, metric_type, value, timestamp, user_id) VALUES (?, ?, ?, ?, ?)",
+                id, "Heart Rate", value, timestamp, userId);
+    }
+
+        private HealthMetricDto sample(String metricType, double value, LocalDateTime timestamp) {
+        return new HealthMetricDto(null, metricType, value, timestamp, userId);
+    }
+
+    // The service stores submitted UTC timestamps as Chicago local time
+    private static LocalDateTime toStored(LocalDateTime utc) {
+        return utc.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.of("America/Chicago")).toLocalDateTime();
+    }
+}